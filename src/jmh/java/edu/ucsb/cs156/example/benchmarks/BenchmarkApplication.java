@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.time.ZonedDateTime;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application, started once per benchmark fork on a random port, on an in-memory H2 database
+ * created by the Liquibase changelog, as in development. The web server is kept because the
+ * security configuration needs the OAuth2 client beans that only a servlet application gets.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkApplication {
+  private ConfigurableApplicationContext context;
+
+  JobsRepository jobsRepository;
+  JobLogService jobLogService;
+  JobRetentionService jobRetentionService;
+
+  /** The JobService itself rather than its proxy, so that `runJobAsync` runs on the caller */
+  JobService jobService;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context =
+        new SpringApplicationBuilder(ExampleApplication.class)
+            .web(WebApplicationType.SERVLET)
+            .run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1",
+                "--logging.level.root=WARN",
+                "--logging.level.sql=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "--app.jobs.retention.enabled=false");
+    jobsRepository = context.getBean(JobsRepository.class);
+    jobLogService = context.getBean(JobLogService.class);
+    jobRetentionService = context.getBean(JobRetentionService.class);
+    jobService = (JobService) AopProxyUtils.getSingletonTarget(context.getBean(JobService.class));
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  /** Saves a job that is ready to run, as `JobService.runAsJob` does before running it */
+  Job newJob() {
+    return jobsRepository.save(
+        Job.builder().status("running").queuedAt(ZonedDateTime.now()).build());
+  }
+
+  /** Deletes every job and its log, so that the database does not grow across iterations */
+  void deleteAllJobs() {
+    jobRetentionService.deleteAllJobs();
+  }
+}
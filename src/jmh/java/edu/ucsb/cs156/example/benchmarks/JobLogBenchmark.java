@@ -0,0 +1,73 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobLogWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of `JobContext.log`, including saving the lines to the database, with one operation
+ * per log line; run with `-prof gc` to see the bytes allocated per line (`gc.alloc.rate.norm`).
+ *
+ * <p>Each thread logs to a job of its own, which is opened before each iteration, and closed
+ * (flushing the last lines) and deleted after it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class JobLogBenchmark {
+
+  @State(Scope.Thread)
+  public static class JobLog {
+    /** Length of each log line, in characters */
+    @Param({"40", "2000"})
+    int lineLength;
+
+    String line;
+    Job job;
+    JobLogWriter writer;
+    JobContext context;
+
+    @Setup(Level.Iteration)
+    public void open(BenchmarkApplication app) {
+      line = "x".repeat(lineLength);
+      job = app.newJob();
+      writer = app.jobLogService.openWriter(job.getId());
+      context = new JobContext(writer, job);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close(BenchmarkApplication app) {
+      app.jobLogService.closeWriter(writer);
+      app.jobsRepository.deleteById(job.getId());
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void log(JobLog log) {
+    log.context.log(log.line);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void logConcurrently(JobLog log) {
+    log.context.log(log.line);
+  }
+}
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to run a whole job through `JobService.runJobAsync` (on the benchmark thread rather than
+ * the job executor), from opening its log to saving its result, archiving its log and recording
+ * its metrics. Divide by `linesPerJob` for the cost per log line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JobRunBenchmark {
+
+  /** Lines each job logs: a small log and a large one */
+  @Param({"10", "10000"})
+  int linesPerJob;
+
+  @TearDown(Level.Iteration)
+  public void deleteJobs(BenchmarkApplication app) {
+    app.deleteAllJobs();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Job runJob(BenchmarkApplication app) {
+    return run(app);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Job runJobsConcurrently(BenchmarkApplication app) {
+    return run(app);
+  }
+
+  private Job run(BenchmarkApplication app) {
+    Job job = app.newJob();
+    int lines = linesPerJob;
+    app.jobService.runJobAsync(
+        job,
+        ctx -> {
+          for (int i = 0; i < lines; i++) {
+            ctx.log("Processed item " + i);
+          }
+        });
+    return job;
+  }
+}
@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+/**
+ * Wraps the JDBC session repository so that a request which does not change its session does not
+ * write to the session tables, when app.session.store is jdbc.
+ *
+ * <p>Spring Session already collects the attributes set during a request and writes them together
+ * when the request ends, but it also writes the session's last access time after every request.
+ * Here, a session that is not new, and has had no attribute, id or timeout changes, is only saved
+ * once at least app.session.jdbc.touch-interval has passed since its last access time was saved.
+ *
+ * @param <S> the type of session kept by the wrapped repository
+ */
+class ChangeTrackingSessionRepository<S extends Session>
+    implements SessionRepository<ChangeTrackingSessionRepository.TrackedSession<S>> {
+
+  private final SessionRepository<S> delegate;
+  private final Duration touchInterval;
+
+  ChangeTrackingSessionRepository(SessionRepository<S> delegate, Duration touchInterval) {
+    this.delegate = delegate;
+    this.touchInterval = touchInterval;
+  }
+
+  @Override
+  public TrackedSession<S> createSession() {
+    return new TrackedSession<>(delegate.createSession(), true);
+  }
+
+  @Override
+  public void save(TrackedSession<S> session) {
+    if (session.needsSave(touchInterval)) {
+      delegate.save(session.delegate);
+      session.saved();
+    }
+  }
+
+  @Override
+  public TrackedSession<S> findById(String id) {
+    S session = delegate.findById(id);
+    return session == null ? null : new TrackedSession<>(session, false);
+  }
+
+  @Override
+  public void deleteById(String id) {
+    delegate.deleteById(id);
+  }
+
+  /** A session that records whether it has been changed since it was loaded or last saved */
+  static final class TrackedSession<S extends Session> implements Session {
+    private final S delegate;
+    private boolean isNew;
+    private boolean changed;
+    private Instant savedLastAccessedTime;
+
+    private TrackedSession(S delegate, boolean isNew) {
+      this.delegate = delegate;
+      this.isNew = isNew;
+      this.savedLastAccessedTime = delegate.getLastAccessedTime();
+    }
+
+    boolean needsSave(Duration touchInterval) {
+      return isNew
+          || changed
+          || Duration.between(savedLastAccessedTime, getLastAccessedTime()).compareTo(touchInterval)
+              >= 0;
+    }
+
+    private void saved() {
+      isNew = false;
+      changed = false;
+      savedLastAccessedTime = getLastAccessedTime();
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public String changeSessionId() {
+      changed = true;
+      return delegate.changeSessionId();
+    }
+
+    @Override
+    public <T> T getAttribute(String attributeName) {
+      return delegate.getAttribute(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+      return delegate.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+      changed = true;
+      delegate.setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+      if (delegate.getAttribute(attributeName) != null) {
+        changed = true;
+      }
+      delegate.removeAttribute(attributeName);
+    }
+
+    @Override
+    public Instant getCreationTime() {
+      return delegate.getCreationTime();
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+      delegate.setLastAccessedTime(lastAccessedTime);
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+      return delegate.getLastAccessedTime();
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+      if (!interval.equals(delegate.getMaxInactiveInterval())) {
+        changed = true;
+      }
+      delegate.setMaxInactiveInterval(interval);
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+      return delegate.getMaxInactiveInterval();
+    }
+
+    @Override
+    public boolean isExpired() {
+      return delegate.isExpired();
+    }
+  }
+}
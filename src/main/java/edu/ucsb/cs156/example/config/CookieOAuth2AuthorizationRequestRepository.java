@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.services.SessionTokenService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Optional;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+
+/**
+ * Keeps the OAuth2 authorization request, between redirecting the user to the OAuth2 provider and
+ * their coming back, in a short-lived signed cookie rather than in the HttpSession, when
+ * app.session.stateless is true, so that the login can finish on a different instance of the app.
+ *
+ * <p>The request is serialized, and only deserialized once its signature has been checked.
+ */
+class CookieOAuth2AuthorizationRequestRepository
+    implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+  static final String COOKIE_NAME = "OAUTH2_AUTHORIZATION_REQUEST";
+  static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+  private final SessionTokenService sessionTokenService;
+
+  CookieOAuth2AuthorizationRequestRepository(SessionTokenService sessionTokenService) {
+    this.sessionTokenService = sessionTokenService;
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies == null) {
+      return null;
+    }
+    for (Cookie cookie : cookies) {
+      if (COOKIE_NAME.equals(cookie.getName())) {
+        return sessionTokenService
+            .unsign(cookie.getValue())
+            .flatMap(CookieOAuth2AuthorizationRequestRepository::deserialize)
+            .orElse(null);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void saveAuthorizationRequest(
+      OAuth2AuthorizationRequest authorizationRequest,
+      HttpServletRequest request,
+      HttpServletResponse response) {
+    if (authorizationRequest == null) {
+      writeCookie(request, response, "", Duration.ZERO);
+      return;
+    }
+    writeCookie(
+        request, response, sessionTokenService.sign(serialize(authorizationRequest)), MAX_AGE);
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(
+      HttpServletRequest request, HttpServletResponse response) {
+    OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+    if (authorizationRequest != null) {
+      writeCookie(request, response, "", Duration.ZERO);
+    }
+    return authorizationRequest;
+  }
+
+  private static byte[] serialize(OAuth2AuthorizationRequest authorizationRequest) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(authorizationRequest);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Optional<OAuth2AuthorizationRequest> deserialize(byte[] bytes) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return Optional.of((OAuth2AuthorizationRequest) in.readObject());
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static void writeCookie(
+      HttpServletRequest request, HttpServletResponse response, String value, Duration maxAge) {
+    ResponseCookie cookie =
+        ResponseCookie.from(COOKIE_NAME, value)
+            .path("/")
+            .httpOnly(true)
+            .secure(request.isSecure())
+            .sameSite("Lax")
+            .maxAge(maxAge)
+            .build();
+    response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+  }
+}
@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.FlushMode;
+import org.springframework.session.SaveMode;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+
+/**
+ * The `JdbcSessionConfig` class keeps HttpSessions in the SPRING_SESSION and
+ * SPRING_SESSION_ATTRIBUTES tables of the app's own database, rather than in the memory of each
+ * instance, when app.session.store is jdbc. Instances then share logins, so they need neither
+ * sticky sessions nor a new login after a restart.
+ *
+ * <p>Only the attributes set during a request are written, together, when it ends, and a request
+ * that changes nothing writes nothing (see {@link ChangeTrackingSessionRepository}). Expired
+ * sessions are deleted every app.session.jdbc.cleanup-interval-ms.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.session.store", havingValue = "jdbc")
+@EnableJdbcHttpSession(
+    cleanupCron = Scheduled.CRON_DISABLED,
+    flushMode = FlushMode.ON_SAVE,
+    saveMode = SaveMode.ON_SET_ATTRIBUTE)
+public class JdbcSessionConfig {
+
+  @Autowired private JdbcIndexedSessionRepository jdbcIndexedSessionRepository;
+
+  /**
+   * Sets how long a session lasts without requests from the standard server.servlet.session.timeout
+   * property. It is static so that the repository it customizes can be injected into this class.
+   *
+   * @param timeout how long an idle session lasts
+   * @return the customizer
+   */
+  @Bean
+  public static SessionRepositoryCustomizer<JdbcIndexedSessionRepository> sessionTimeoutCustomizer(
+      @Value("${server.servlet.session.timeout:30m}") Duration timeout) {
+    return repository -> repository.setDefaultMaxInactiveInterval(timeout);
+  }
+
+  /**
+   * The session repository used by Spring Session's filter, which skips writing sessions that a
+   * request did not change.
+   *
+   * @param touchInterval how often the last access time of an unchanged session is written
+   * @return the session repository
+   */
+  @Bean
+  @Primary
+  public SessionRepository<?> changeTrackingSessionRepository(
+      @Value("${app.session.jdbc.touch-interval:1m}") Duration touchInterval) {
+    return new ChangeTrackingSessionRepository<>(jdbcIndexedSessionRepository, touchInterval);
+  }
+
+  /** Deletes expired sessions */
+  @Scheduled(fixedDelayString = "${app.session.jdbc.cleanup-interval-ms:60000}")
+  public void cleanUpExpiredSessions() {
+    jdbcIndexedSessionRepository.cleanUpExpiredSessions();
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `JobExecutorConfig` class defines the thread pool that jobs launched through `JobService` run
+ * on, so that a burst of jobs cannot exhaust the threads used by the rest of the application.
+ *
+ * <p>`JobDispatchService` hands a job to the pool only when one of its core threads is free, and
+ * holds the jobs waiting for one itself, so the pool never grows past its core size. Because the
+ * pool is a `ThreadPoolTaskExecutor` bean, Spring Boot Actuator publishes its active and completed
+ * task counts as `executor.*` metrics tagged with `name=jobExecutor`.
+ */
+@Configuration
+public class JobExecutorConfig {
+
+  @Value("${app.jobs.executor.core-pool-size:2}")
+  private int corePoolSize;
+
+  @Value("${app.jobs.executor.queue-capacity:100}")
+  private int queueCapacity;
+
+  @Value("${app.jobs.executor.virtual-threads:false}")
+  private boolean virtualThreads;
+
+  /**
+   * The executor used by `@Async("jobExecutor")` methods.
+   *
+   * @return the job executor
+   */
+  @Bean(name = "jobExecutor")
+  public ThreadPoolTaskExecutor jobExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(corePoolSize);
+    executor.setMaxPoolSize(corePoolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("job-");
+    executor.setVirtualThreads(virtualThreads);
+    return executor;
+  }
+
+  /**
+   * Declaring any executor bean turns off the one Spring Boot would otherwise auto-configure, so it
+   * is declared here explicitly; everything other than jobs keeps using it.
+   *
+   * @param builder builder configured from the spring.task.execution properties
+   * @return the general purpose application task executor
+   */
+  @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+  public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+    return builder.build();
+  }
+}
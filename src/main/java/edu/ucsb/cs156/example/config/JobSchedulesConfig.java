@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.services.jobs.ScheduledJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The `JobSchedulesConfig` class declares the recurring jobs that `JobScheduleService` runs. Each
+ * one's cron expression can be set with a property, and is "-" (off) unless set.
+ */
+@Configuration
+public class JobSchedulesConfig {
+
+  /**
+   * Runs the test job, e.g. to check that schedules fire.
+   *
+   * @param cron when to run it (property `app.jobs.schedules.test-job.cron`)
+   * @return the recurring job
+   */
+  @Bean
+  public ScheduledJob testJobSchedule(@Value("${app.jobs.schedules.test-job.cron:-}") String cron) {
+    return ScheduledJob.builder()
+        .name("test-job")
+        .cron(cron)
+        .job(() -> TestJob.builder().fail(false).sleepMs(0).build())
+        .build();
+  }
+}
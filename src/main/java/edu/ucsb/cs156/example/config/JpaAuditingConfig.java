@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * The `JpaAuditingConfig` class turns on JPA auditing, so that fields annotated with `@CreatedDate`
+ * and `@LastModifiedDate` (e.g. `Job.createdAt`) are filled in when an entity is saved.
+ *
+ * <p>The default provider returns a `LocalDateTime`, which cannot be stored in the `ZonedDateTime`
+ * fields used by the entities, so a provider of `ZonedDateTime` is defined here.
+ */
+@Configuration
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+public class JpaAuditingConfig {
+
+  /**
+   * The source of the timestamps written by JPA auditing.
+   *
+   * @return a provider of the current time
+   */
+  @Bean
+  public DateTimeProvider auditingDateTimeProvider() {
+    return () -> Optional.of(ZonedDateTime.now());
+  }
+}
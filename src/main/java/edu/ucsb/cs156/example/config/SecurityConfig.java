@@ -2,18 +2,17 @@ package edu.ucsb.cs156.example.config;
 
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.RolesService;
+import edu.ucsb.cs156.example.services.SessionTokenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
@@ -25,18 +24,25 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
 import org.springframework.security.web.csrf.CsrfTokenRequestHandler;
 import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -51,15 +57,19 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Slf4j
 public class SecurityConfig {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
+  @Autowired RolesService rolesService;
 
-  @Autowired UserRepository userRepository;
+  @Autowired SessionTokenService sessionTokenService;
+
+  @Autowired CurrentUserService currentUserService;
+
+  @Value("${app.session.stateless:false}")
+  private boolean stateless;
 
   /**
    * The `filterChain` method in this Java code configures various security settings for an HTTP
    * request, including authorization, exception handling, OAuth2 login, CSRF protection, and logout
-   * behavior.
+   * behavior. Actuator endpoints such as `/actuator/metrics` are only available to admins.
    *
    * @param http injected HttpSecurity object (injected by Spring framework) //
    */
@@ -77,15 +87,47 @@ public class SecurityConfig {
                 csrf.csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
                     .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler()))
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
-        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+        .authorizeHttpRequests(
+            auth -> auth.requestMatchers("/actuator/**").hasRole("ADMIN").anyRequest().permitAll())
         .logout(
             logout ->
                 logout
                     .logoutRequestMatcher(new AntPathRequestMatcher("/logout"))
                     .logoutSuccessUrl("/"));
+    if (stateless) {
+      configureStateless(http);
+    } else {
+      http.addFilterAfter(new RolesRefreshFilter(rolesService), CsrfCookieFilter.class);
+    }
     return http.build();
   }
 
+  /**
+   * Keeps logins in signed cookies instead of the HttpSession, so that requests can be served by
+   * any instance of the app: the security context (see {@link
+   * SessionTokenSecurityContextRepository}) and, while logging in, the OAuth2 authorization request
+   * (see {@link CookieOAuth2AuthorizationRequestRepository}). No session is created.
+   *
+   * @param http the HttpSecurity being configured by {@link #filterChain(HttpSecurity)}
+   */
+  private void configureStateless(HttpSecurity http) throws Exception {
+    SessionTokenSecurityContextRepository securityContextRepository =
+        new SessionTokenSecurityContextRepository(
+            sessionTokenService, rolesService, currentUserService);
+    http.sessionManagement(
+            session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+        .securityContext(context -> context.securityContextRepository(securityContextRepository))
+        .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+        .oauth2Login(
+            oauth2 ->
+                oauth2.authorizationEndpoint(
+                    authorization ->
+                        authorization.authorizationRequestRepository(
+                            new CookieOAuth2AuthorizationRequestRepository(sessionTokenService))))
+        .addFilterAfter(
+            new SessionTokenRenewalFilter(securityContextRepository), CsrfCookieFilter.class);
+  }
+
   /**
    * The `webSecurityCustomizer` method is used to configure web security in Java, specifically
    * ignoring requests to the "/h2-console/**" path.
@@ -95,32 +137,25 @@ public class SecurityConfig {
     return web -> web.ignoring().requestMatchers(antMatcher("/h2-console/**"));
   }
 
+  /**
+   * Adds the roles of the user (see {@link RolesService#resolveRoles(String)}) to the authorities
+   * from the OAuth2 provider. This runs once, at login; the roles are then kept with the
+   * authentication in the security context.
+   */
   private GrantedAuthoritiesMapper userAuthoritiesMapper() {
     return (authorities) -> {
       Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
-      log.info("********** authorities={}", authorities);
 
       authorities.forEach(
           authority -> {
-            log.info("********** authority={}", authority);
             mappedAuthorities.add(authority);
             if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
               Map<String, Object> userAttributes = oauth2UserAuthority.getAttributes();
-              log.info("********** userAttributes={}", userAttributes);
-
-              mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-
               String email = (String) userAttributes.get("email");
-              if (getAdmin(email)) {
-                mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
-              }
-
-              if (email.endsWith("@ucsb.edu")) {
-                mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
-              }
+              mappedAuthorities.addAll(rolesService.resolveRoles(email));
             }
           });
-      log.info("********** mappedAuthorities={}", mappedAuthorities);
+      log.debug("mappedAuthorities={}", mappedAuthorities);
       return mappedAuthorities;
     };
   }
@@ -133,11 +168,7 @@ public class SecurityConfig {
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return rolesService.isAdmin(email);
   }
 }
 
@@ -193,3 +224,85 @@ final class CsrfCookieFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 }
+
+/**
+ * Resolves the roles of a logged in user again if they were invalidated (see {@link
+ * RolesService#invalidate(String)}) since they were last resolved for this session, or were
+ * resolved more than app.roles.max-age ago, and saves the updated authentication in the session.
+ */
+final class RolesRefreshFilter extends OncePerRequestFilter {
+  static final String RESOLVED_AT_ATTRIBUTE = RolesRefreshFilter.class.getName() + ".RESOLVED_AT";
+
+  private final RolesService rolesService;
+  private final SecurityContextRepository securityContextRepository =
+      new HttpSessionSecurityContextRepository();
+
+  RolesRefreshFilter(RolesService rolesService) {
+    this.rolesService = rolesService;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    HttpSession session = request.getSession(false);
+    if (authentication instanceof OAuth2AuthenticationToken token && session != null) {
+      // until the first refresh, the roles are those resolved at login, after the session began
+      Long resolvedAt = (Long) session.getAttribute(RESOLVED_AT_ATTRIBUTE);
+      long since = resolvedAt != null ? resolvedAt : session.getCreationTime();
+      if (rolesService.isStale(token.getPrincipal().getAttribute("email"), since)) {
+        session.setAttribute(RESOLVED_AT_ATTRIBUTE, System.currentTimeMillis());
+        refresh(token, request, response);
+      }
+    }
+    filterChain.doFilter(request, response);
+  }
+
+  private void refresh(
+      OAuth2AuthenticationToken token, HttpServletRequest request, HttpServletResponse response) {
+    Set<GrantedAuthority> authorities = new HashSet<>();
+    for (GrantedAuthority authority : token.getAuthorities()) {
+      if (!authority.getAuthority().startsWith("ROLE_")) {
+        authorities.add(authority);
+      }
+    }
+    authorities.addAll(rolesService.resolveRoles(token.getPrincipal().getAttribute("email")));
+    OAuth2AuthenticationToken refreshed =
+        new OAuth2AuthenticationToken(
+            token.getPrincipal(), authorities, token.getAuthorizedClientRegistrationId());
+    refreshed.setDetails(token.getDetails());
+
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(refreshed);
+    SecurityContextHolder.setContext(context);
+    securityContextRepository.saveContext(context, request, response);
+  }
+}
+
+/**
+ * Replaces the session token cookie (see {@link SessionTokenSecurityContextRepository}) when the
+ * token the request came with is past half its lifetime, or its roles were invalidated, so that
+ * active users stay logged in with up to date roles.
+ */
+final class SessionTokenRenewalFilter extends OncePerRequestFilter {
+  private final SecurityContextRepository securityContextRepository;
+
+  SessionTokenRenewalFilter(SecurityContextRepository securityContextRepository) {
+    this.securityContextRepository = securityContextRepository;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    // reading the authentication loads the context, which decides whether to renew
+    SecurityContext context = SecurityContextHolder.getContext();
+    if (context.getAuthentication() != null
+        && Boolean.TRUE.equals(
+            request.getAttribute(SessionTokenSecurityContextRepository.RENEW_ATTRIBUTE))) {
+      securityContextRepository.saveContext(context, request, response);
+    }
+    filterChain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.RolesService;
+import edu.ucsb.cs156.example.services.SessionTokenService;
+import edu.ucsb.cs156.example.services.SessionTokenService.SessionToken;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+/**
+ * Keeps the security context in a signed cookie (see {@link SessionTokenService}) rather than in
+ * the HttpSession, when app.session.stateless is true, so that any instance of the app can serve
+ * any request.
+ *
+ * <p>The cookie is set at login, and replaced once it is past half its lifetime, or when the user's
+ * roles have been invalidated (see {@link RolesService#invalidate(String)}), by {@link
+ * SessionTokenRenewalFilter}.
+ */
+class SessionTokenSecurityContextRepository implements SecurityContextRepository {
+  static final String COOKIE_NAME = "SESSION_TOKEN";
+
+  /** Request attribute set when the token the request came with should be replaced */
+  static final String RENEW_ATTRIBUTE =
+      SessionTokenSecurityContextRepository.class.getName() + ".RENEW";
+
+  private final SessionTokenService sessionTokenService;
+  private final RolesService rolesService;
+  private final CurrentUserService currentUserService;
+
+  SessionTokenSecurityContextRepository(
+      SessionTokenService sessionTokenService,
+      RolesService rolesService,
+      CurrentUserService currentUserService) {
+    this.sessionTokenService = sessionTokenService;
+    this.rolesService = rolesService;
+    this.currentUserService = currentUserService;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+    HttpServletRequest request = requestResponseHolder.getRequest();
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    Optional<SessionToken> verified = readCookie(request).flatMap(sessionTokenService::verify);
+    if (verified.isEmpty()) {
+      return context;
+    }
+    SessionToken token = verified.get();
+    String email = (String) token.attributes().get("email");
+
+    Set<GrantedAuthority> authorities = new HashSet<>();
+    boolean stale = rolesService.isStale(email, token.issuedAt().toEpochMilli());
+    if (stale) {
+      authorities.addAll(rolesService.resolveRoles(email));
+    } else {
+      token.roles().forEach(role -> authorities.add(new SimpleGrantedAuthority(role)));
+    }
+    if (stale || token.isDueForRenewal(Instant.now())) {
+      request.setAttribute(RENEW_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    String nameAttribute = token.attributes().containsKey("sub") ? "sub" : "email";
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(authorities, token.attributes(), nameAttribute);
+    context.setAuthentication(
+        new OAuth2AuthenticationToken(principal, authorities, token.registrationId()));
+    return context;
+  }
+
+  @Override
+  public void saveContext(
+      SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+    Authentication authentication = context.getAuthentication();
+    if (authentication instanceof OAuth2AuthenticationToken token) {
+      User user = currentUserService.getUser();
+      String value =
+          sessionTokenService.issue(
+              user.getId(),
+              token.getAuthorizedClientRegistrationId(),
+              token.getPrincipal().getAttributes(),
+              token.getAuthorities());
+      writeCookie(request, response, value, sessionTokenService.getTtl());
+    } else if (containsContext(request)) {
+      writeCookie(request, response, "", Duration.ZERO);
+    }
+  }
+
+  @Override
+  public boolean containsContext(HttpServletRequest request) {
+    return readCookie(request).isPresent();
+  }
+
+  private static Optional<String> readCookie(HttpServletRequest request) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies != null) {
+      for (Cookie cookie : cookies) {
+        if (COOKIE_NAME.equals(cookie.getName())) {
+          return Optional.of(cookie.getValue());
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static void writeCookie(
+      HttpServletRequest request, HttpServletResponse response, String value, Duration maxAge) {
+    ResponseCookie cookie =
+        ResponseCookie.from(COOKIE_NAME, value)
+            .path("/")
+            .httpOnly(true)
+            .secure(request.isSecure())
+            .sameSite("Lax")
+            .maxAge(maxAge)
+            .build();
+    response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+  }
+}
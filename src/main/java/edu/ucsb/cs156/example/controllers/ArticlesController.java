@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -27,10 +28,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/articles")
 @RestController
 @Slf4j
-public class ArticlesController extends ApiController {
+public class ArticlesController extends BulkTransferController {
 
   @Autowired ArticlesRepository articlesRepository;
 
+  public ArticlesController() {
+    super(ImportTable.ARTICLES);
+  }
+
   /**
    * List all articles
    *
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.imports.BulkImportService;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * This is an abstract class for API controllers of tables that can be filled and saved in bulk. It
+ * provides their /import and /export endpoints, which run as jobs on the given {@link ImportTable}.
+ */
+public abstract class BulkTransferController extends ApiController {
+  @Autowired private BulkImportService bulkImportService;
+
+  @Autowired private BulkExportService bulkExportService;
+
+  private final ImportTable importTable;
+
+  /**
+   * @param importTable the table that the endpoints import into and export from
+   */
+  protected BulkTransferController(ImportTable importTable) {
+    this.importTable = importTable;
+  }
+
+  /**
+   * Import rows in bulk, as a job
+   *
+   * @param contentType text/csv (with a header row naming the fields) or application/x-ndjson
+   * @param body the rows to import
+   * @return the job doing the import
+   * @throws IOException if the upload cannot be saved
+   */
+  @Operation(
+      summary =
+          "Import in bulk from CSV or NDJSON, with fields named as in the JSON of one row;"
+              + " returns the import job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping(
+      value = "/import",
+      consumes = {"text/csv", "application/x-ndjson"})
+  public Job importRows(
+      @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+      throws IOException {
+    return bulkImportService.launch(importTable, contentType, body);
+  }
+
+  /**
+   * Export all rows to a gzip-compressed file, as a job
+   *
+   * @param format CSV (with a header row naming the fields) or NDJSON
+   * @return the job doing the export; when it completes, its result links to the file
+   */
+  @Operation(
+      summary =
+          "Export all rows to a gzip-compressed CSV or NDJSON file that can be downloaded from the"
+              + " job; returns the export job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/export")
+  public Job exportRows(
+      @Parameter(name = "format", description = "CSV or NDJSON") @RequestParam(defaultValue = "CSV")
+          ImportFormat format) {
+    return bulkExportService.launch(importTable, format);
+  }
+}
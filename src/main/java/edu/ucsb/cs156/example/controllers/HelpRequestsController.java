@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -27,10 +28,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/helprequests")
 @RestController
 @Slf4j
-public class HelpRequestsController extends ApiController {
+public class HelpRequestsController extends BulkTransferController {
 
   @Autowired HelpRequestRepository helpRequestRepository;
 
+  public HelpRequestsController() {
+    super(ImportTable.HELP_REQUESTS);
+  }
+
   /**
    * List all Help Requests
    *
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.JobScheduleSummary;
+import edu.ucsb.cs156.example.services.jobs.JobScheduleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Job Schedules")
+@RequestMapping("/api/jobs/schedules")
+@RestController
+@Slf4j
+public class JobSchedulesController extends ApiController {
+  @Autowired private JobScheduleService jobScheduleService;
+
+  @Operation(summary = "List recurring jobs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("")
+  public List<JobScheduleSummary> allSchedules() {
+    return jobScheduleService.getSchedules();
+  }
+
+  @Operation(summary = "Pause a recurring job, on every node")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{name}/pause")
+  public JobScheduleSummary pauseSchedule(
+      @Parameter(name = "name", description = "Name of the schedule") @PathVariable String name) {
+    return jobScheduleService.setPaused(name, true);
+  }
+
+  @Operation(summary = "Resume a paused recurring job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{name}/resume")
+  public JobScheduleSummary resumeSchedule(
+      @Parameter(name = "name", description = "Name of the schedule") @PathVariable String name) {
+    return jobScheduleService.setPaused(name, false);
+  }
+}
@@ -5,22 +5,50 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobLogSlice;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobTree;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.jobs.JobAwaitService;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamService;
+import edu.ucsb.cs156.example.services.jobs.JobOptions;
+import edu.ucsb.cs156.example.services.jobs.JobPipeline;
+import edu.ucsb.cs156.example.services.jobs.JobPipelineService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
@@ -31,8 +59,29 @@ public class JobsController extends ApiController {
 
   @Autowired private JobService jobService;
 
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Autowired private JobAwaitService jobAwaitService;
+
+  @Autowired private JobRetentionService jobRetentionService;
+
+  @Autowired private JobPipelineService jobPipelineService;
+
+  @Autowired private BulkExportService bulkExportService;
+
   @Autowired ObjectMapper mapper;
 
+  /** Largest page that `pagedJobs` will return */
+  public static final int MAX_PAGE_SIZE = 100;
+
+  /** Range header asking for lines, e.g. `lines=100-199`, `lines=100-` or `lines=-100` */
+  private static final Pattern LINE_RANGE = Pattern.compile("lines=(\\d{0,9})-(\\d{0,9})");
+
+  private static final MediaType TEXT_PLAIN_UTF8 =
+      MediaType.parseMediaType("text/plain;charset=UTF-8");
+
+  private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
   @Operation(summary = "List all jobs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
@@ -41,11 +90,33 @@ public class JobsController extends ApiController {
     return jobs;
   }
 
+  @Operation(summary = "List jobs one page at a time, newest first, without their logs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/paged")
+  public PagedModel<JobSummary> pagedJobs(
+      @Parameter(name = "page", description = "Page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Jobs per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "status", description = "Only list jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "createdById", description = "Only list jobs launched by this user")
+          @RequestParam(required = false)
+          Long createdById) {
+
+    PageRequest pageRequest =
+        PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+    return new PagedModel<>(jobsRepository.findSummaries(status, createdById, pageRequest));
+  }
+
   @Operation(summary = "Delete all job records")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
   public Map<String, String> deleteAllJobs() {
-    jobsRepository.deleteAll();
+    jobRetentionService.deleteAllJobs();
     return Map.of("message", "All jobs deleted");
   }
 
@@ -66,10 +137,9 @@ public class JobsController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Map<String, String> deleteAllJobs(@Parameter(name = "id") @RequestParam Long id) {
-    if (!jobsRepository.existsById(id)) {
+    if (jobsRepository.deleteByIdIn(List.of(id)) == 0) {
       return Map.of("message", String.format("Job with id %d not found", id));
     }
-    jobsRepository.deleteById(id);
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
@@ -78,17 +148,284 @@ public class JobsController extends ApiController {
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(name = "timeoutMs", description = "Stop the job if it runs longer than this")
+          @RequestParam(required = false)
+          Long timeoutMs,
+      @Parameter(name = "priority", description = "Jobs with a higher priority run sooner")
+          @RequestParam(defaultValue = "0")
+          int priority,
+      @Parameter(
+              name = "idempotencyKey",
+              description =
+                  "Launching again with the same key returns the same job (may also be sent as an"
+                      + " Idempotency-Key header)")
+          @RequestParam(required = false)
+          String idempotencyKey,
+      @Parameter(hidden = true) @RequestHeader(name = "Idempotency-Key", required = false)
+          String idempotencyKeyHeader) {
 
     TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    return jobService.runAsJob(
+        testJob,
+        JobOptions.builder()
+            .timeoutMs(timeoutMs)
+            .priority(priority)
+            .idempotencyKey(idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKey)
+            .build());
+  }
+
+  @Operation(
+      summary =
+          "Launch Test Pipeline: test jobs run in parallel, then joined (pick a part to fail to test"
+              + " failure handling)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/launch/testpipeline")
+  public Job launchTestPipeline(
+      @Parameter(name = "parts", description = "Number of test jobs to run in parallel")
+          @RequestParam(defaultValue = "3")
+          int parts,
+      @Parameter(name = "sleepMs") @RequestParam(defaultValue = "1000") int sleepMs,
+      @Parameter(
+              name = "failPart",
+              description = "Number of the part that fails, from 1 (none if 0)")
+          @RequestParam(defaultValue = "0")
+          int failPart,
+      @Parameter(
+              name = "tolerateFailures",
+              description = "Carry on when parts fail, rather than cancelling the other parts")
+          @RequestParam(defaultValue = "false")
+          boolean tolerateFailures) {
+
+    List<JobContextConsumer> testJobs = new ArrayList<>();
+    for (int part = 1; part <= parts; part++) {
+      testJobs.add(TestJob.builder().fail(part == failPart).sleepMs(sleepMs).build());
+    }
+    JobPipeline pipeline =
+        JobPipeline.builder()
+            .parts(testJobs)
+            .join(
+                (ctx, children) ->
+                    ctx.log(
+                        "Joined %d parts: %s"
+                            .formatted(
+                                children.size(), children.stream().map(Job::getStatus).toList())))
+            .tolerateFailures(tolerateFailures)
+            .build();
+    return jobPipelineService.runPipeline(pipeline);
+  }
+
+  @Operation(summary = "Cancel a job that is queued or running")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/cancel")
+  public Job cancelJob(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    return jobService.cancelJob(id);
+  }
+
+  @Operation(
+      summary =
+          "Wait for a job to finish, for up to timeoutMs (at most a minute by default); returns the"
+              + " job, which is still queued or running if the wait timed out")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/{id}/await")
+  public DeferredResult<Job> awaitJob(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "timeoutMs", description = "How long to wait, in milliseconds")
+          @RequestParam(defaultValue = "30000")
+          long timeoutMs) {
+    return jobAwaitService.await(id, timeoutMs);
+  }
+
+  @Operation(summary = "Get a job with its child jobs (e.g. the parts of a pipeline) and progress")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/{id}/tree")
+  public JobTree getJobTree(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    return jobPipelineService.getJobTree(id);
+  }
+
+  @Operation(
+      summary =
+          "Get the result a job reported, as JSON (204 No Content if it has not reported one, e.g."
+              + " because it is still running)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/{id}/result")
+  public ResponseEntity<String> getJobResult(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    return jobService
+        .getJobResult(id)
+        .map(result -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(result))
+        .orElseGet(() -> ResponseEntity.noContent().build());
+  }
+
+  @Operation(
+      summary =
+          "Download the file a job exported, e.g. a bulk export (404 Not Found if it has not"
+              + " finished writing one); supports Range requests")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/{id}/download")
+  public ResponseEntity<Resource> downloadJobFile(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    return bulkExportService
+        .findExport(id)
+        .map(
+            file ->
+                ResponseEntity.ok()
+                    .contentType(APPLICATION_GZIP)
+                    .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment()
+                            .filename(file.getFileName().toString())
+                            .build()
+                            .toString())
+                    .<Resource>body(new FileSystemResource(file)))
+        .orElseGet(() -> ResponseEntity.notFound().build());
   }
 
-  @Operation(summary = "Get long job logs")
+  @Operation(
+      summary =
+          "Get job logs, either whole or in part (with tail, fromLine/limit or a Range header of"
+              + " lines, e.g. Range: lines=100-199)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/logs/{id}")
-  public String getJobLogs(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+  public ResponseEntity<?> getJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "tail", description = "Return only this many lines from the end")
+          @RequestParam(required = false)
+          Integer tail,
+      @Parameter(name = "fromLine", description = "First line to return, counting from 0")
+          @RequestParam(required = false)
+          Integer fromLine,
+      @Parameter(name = "limit", description = "Maximum number of lines to return")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(name = "Range", description = "Lines to return, e.g. lines=0-99 or lines=-100")
+          @RequestHeader(name = "Range", required = false)
+          String range,
+      @Parameter(
+              name = "Accept-Encoding",
+              description = "With gzip, a compressed log is sent as is, with Content-Encoding gzip")
+          @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
+
+    Matcher lineRange = range != null ? LINE_RANGE.matcher(range.trim()) : null;
+    if (lineRange != null && lineRange.matches() && isValidLineRange(lineRange)) {
+      return getJobLogRange(id, lineRange);
+    }
+
+    if (tail != null) {
+      return jobLogSliceResponse(jobService.getJobLogTail(id, tail));
+    }
+    if (fromLine != null || limit != null) {
+      JobLogSlice slice =
+          jobService.getJobLogLines(
+              id,
+              fromLine != null ? fromLine : 0,
+              limit != null ? limit : JobService.MAX_LOG_LINES_PER_READ);
+      return jobLogSliceResponse(slice);
+    }
+
+    if (acceptsGzip(acceptEncoding)) {
+      Optional<byte[]> compressedLog = jobService.getCompressedJobLogs(id);
+      if (compressedLog.isPresent()) {
+        return ResponseEntity.ok()
+            .header(HttpHeaders.ACCEPT_RANGES, "lines")
+            .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .contentType(TEXT_PLAIN_UTF8)
+            .body(compressedLog.get());
+      }
+    }
+
+    return ResponseEntity.ok()
+        .header(HttpHeaders.ACCEPT_RANGES, "lines")
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        .body(jobService.getJobLogs(id));
+  }
+
+  /** Whether an Accept-Encoding header allows gzip, i.e. lists it without q=0. */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equalsIgnoreCase("gzip")) {
+        return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  private static boolean isValidLineRange(Matcher lineRange) {
+    String first = lineRange.group(1);
+    String last = lineRange.group(2);
+    if (first.isEmpty()) {
+      return !last.isEmpty();
+    }
+    return last.isEmpty() || Integer.parseInt(last) >= Integer.parseInt(first);
+  }
+
+  private ResponseEntity<String> getJobLogRange(Long id, Matcher lineRange) {
+    String first = lineRange.group(1);
+    String last = lineRange.group(2);
+
+    JobLogSlice slice;
+    if (first.isEmpty()) {
+      slice = jobService.getJobLogTail(id, Integer.parseInt(last));
+    } else {
+      int fromLine = Integer.parseInt(first);
+      int limit =
+          last.isEmpty()
+              ? JobService.MAX_LOG_LINES_PER_READ
+              : Integer.parseInt(last) - fromLine + 1;
+      slice = jobService.getJobLogLines(id, fromLine, limit);
+    }
+
+    if (slice.getLines().isEmpty()) {
+      return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+          .header(HttpHeaders.CONTENT_RANGE, "lines */" + slice.getTotalLines())
+          .build();
+    }
+    int toLine = slice.getFromLine() + slice.getLines().size() - 1;
+    return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+        .header(
+            HttpHeaders.CONTENT_RANGE,
+            String.format("lines %d-%d/%d", slice.getFromLine(), toLine, slice.getTotalLines()))
+        .headers(jobLogSliceHeaders(slice))
+        .body(String.join("\n", slice.getLines()));
+  }
+
+  private ResponseEntity<String> jobLogSliceResponse(JobLogSlice slice) {
+    return ResponseEntity.ok()
+        .headers(jobLogSliceHeaders(slice))
+        .body(String.join("\n", slice.getLines()));
+  }
+
+  private HttpHeaders jobLogSliceHeaders(JobLogSlice slice) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT_RANGES, "lines");
+    headers.set("X-First-Line", Integer.toString(slice.getFromLine()));
+    headers.set("X-Total-Lines", Integer.toString(slice.getTotalLines()));
+    return headers;
+  }
+
+  @Operation(
+      summary = "Stream job logs as Server-Sent Events, one event per line, until the job finishes")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/logs/{id}/stream")
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "offset", description = "Number of lines to skip")
+          @RequestParam(defaultValue = "0")
+          int offset,
+      @Parameter(name = "Last-Event-ID", description = "Resume after this line (set by browsers)")
+          @RequestHeader(name = "Last-Event-ID", required = false)
+          Integer lastEventId) {
+
+    Job job =
+        jobsRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Job.class, id));
 
-    return jobService.getJobLogs(id);
+    int fromLine = lastEventId != null ? lastEventId + 1 : offset;
+    return jobLogStreamService.subscribe(job, fromLine);
   }
 }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -27,10 +28,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/menuitemreview")
 @RestController
 @Slf4j
-public class MenuItemReviewController extends ApiController {
+public class MenuItemReviewController extends BulkTransferController {
 
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
 
+  public MenuItemReviewController() {
+    super(ImportTable.MENU_ITEM_REVIEWS);
+  }
+
   /**
    * List all Menu Item Reviews
    *
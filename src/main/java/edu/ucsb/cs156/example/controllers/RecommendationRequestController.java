@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -27,10 +28,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/recommendationrequest")
 @RestController
 @Slf4j
-public class RecommendationRequestController extends ApiController {
+public class RecommendationRequestController extends BulkTransferController {
 
   @Autowired RecommendationRequestRepository recommendationRequest;
 
+  public RecommendationRequestController() {
+    super(ImportTable.RECOMMENDATION_REQUESTS);
+  }
+
   /**
    * List all records in table
    *
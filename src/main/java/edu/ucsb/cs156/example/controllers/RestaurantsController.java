@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,10 +23,14 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "Restaurants")
 @RequestMapping("/api/restaurants")
 @RestController
-public class RestaurantsController extends ApiController {
+public class RestaurantsController extends BulkTransferController {
 
   @Autowired RestaurantRepository restaurantRepository;
 
+  public RestaurantsController() {
+    super(ImportTable.RESTAURANTS);
+  }
+
   /**
    * This method returns a list of all restaurants.
    *
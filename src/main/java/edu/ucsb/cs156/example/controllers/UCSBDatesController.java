@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -27,10 +28,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/ucsbdates")
 @RestController
 @Slf4j
-public class UCSBDatesController extends ApiController {
+public class UCSBDatesController extends BulkTransferController {
 
   @Autowired UCSBDateRepository ucsbDateRepository;
 
+  public UCSBDatesController() {
+    super(ImportTable.DATES);
+  }
+
   /**
    * List all UCSB dates
    *
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,10 +25,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
 @Slf4j
-public class UCSBDiningCommonsController extends ApiController {
+public class UCSBDiningCommonsController extends BulkTransferController {
 
   @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+  public UCSBDiningCommonsController() {
+    super(ImportTable.DINING_COMMONS);
+  }
+
   /**
    * THis method returns a list of all ucsbdiningcommons.
    *
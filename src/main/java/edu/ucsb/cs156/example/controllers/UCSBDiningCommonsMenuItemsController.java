@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemsRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -25,10 +26,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/ucsbdiningcommonsmenuitems")
 @RestController
 @Slf4j
-public class UCSBDiningCommonsMenuItemsController extends ApiController {
+public class UCSBDiningCommonsMenuItemsController extends BulkTransferController {
 
   @Autowired UCSBDiningCommonsMenuItemsRepository ucsbDiningCommonsMenuItemsRepository;
 
+  public UCSBDiningCommonsMenuItemsController() {
+    super(ImportTable.DINING_COMMONS_MENU_ITEMS);
+  }
+
   /**
    * List all UCSB dining commons menu items
    *
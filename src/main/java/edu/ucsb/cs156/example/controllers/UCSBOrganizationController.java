@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -25,10 +26,14 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/ucsborganization")
 @RestController
 @Slf4j
-public class UCSBOrganizationController extends ApiController {
+public class UCSBOrganizationController extends BulkTransferController {
 
   @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
 
+  public UCSBOrganizationController() {
+    super(ImportTable.ORGANIZATIONS);
+  }
+
   /**
    * List all UCSB dates
    *
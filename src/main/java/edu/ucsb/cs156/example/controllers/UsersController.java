@@ -3,14 +3,19 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.RolesService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -26,6 +31,8 @@ public class UsersController extends ApiController {
 
   @Autowired ObjectMapper mapper;
 
+  @Autowired RolesService rolesService;
+
   /**
    * This method returns a list of all users. Accessible only to users with the role "ROLE_ADMIN".
    *
@@ -40,4 +47,26 @@ public class UsersController extends ApiController {
     String body = mapper.writeValueAsString(users);
     return ResponseEntity.ok().body(body);
   }
+
+  /**
+   * This method makes a user an admin, or stops them being one. The user's existing logins pick up
+   * the change on their next request. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param id id of the user
+   * @param admin whether the user should be an admin
+   * @return the updated user
+   */
+  @Operation(summary = "Make a user an admin, or stop them being one")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/admin")
+  public User setAdmin(
+      @Parameter(name = "id") @RequestParam long id,
+      @Parameter(name = "admin") @RequestParam boolean admin) {
+    User user =
+        userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(User.class, id));
+    user.setAdmin(admin);
+    userRepository.save(user);
+    rolesService.invalidate(user.getEmail());
+    return user;
+  }
 }
@@ -24,9 +24,17 @@ public class Job {
   @JoinColumn(name = "created_by_id")
   private User createdBy;
 
+  /** The pipeline this job is a part of (null if it is not part of a pipeline) */
+  private Long parentId;
+
   @CreatedDate private ZonedDateTime createdAt;
   @LastModifiedDate private ZonedDateTime updatedAt;
 
+  /** When the job started running (saved with the job once it finishes) */
+  private ZonedDateTime startedAt;
+
+  private ZonedDateTime finishedAt;
+
   private String status;
 
   // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
@@ -35,4 +43,51 @@ public class Job {
       length = 1048576) // needed for long strings, i.e. log entries longer than 255
   // characters
   private String log;
+
+  /**
+   * Class name of the JobContextConsumer, for jobs that were put on the database-backed queue and
+   * can therefore be run by any node, or that were launched with an idempotency key
+   */
+  private String type;
+
+  /**
+   * Key sent by the client that launched the job, so that retries of the launch get this job back
+   * rather than starting another; unique for each type
+   */
+  @JsonIgnore private String idempotencyKey;
+
+  /** JSON form of the JobContextConsumer of a queued job */
+  @JsonIgnore
+  @Column(columnDefinition = "TEXT")
+  private String payload;
+
+  private ZonedDateTime queuedAt;
+
+  /** Higher priorities run sooner; see `JobDispatchService` */
+  private int priority;
+
+  /**
+   * Queued jobs run in order of this time: the time the job was queued, moved earlier by its
+   * priority
+   */
+  private ZonedDateTime dispatchAt;
+
+  /** Node currently running the job; the node must renew its lease until the job finishes */
+  private String leaseOwner;
+
+  private ZonedDateTime leaseExpiresAt;
+
+  /** How long the job may run before it is stopped with status "timed_out" (no limit if null) */
+  private Long timeoutMs;
+
+  /** Set when the job is cancelled, so that the node running it can stop it */
+  private boolean cancelRequested;
+
+  /**
+   * JSON form of the result the job set through its JobContext (null if it set none); served by
+   * `GET /api/jobs/{id}/result` rather than with the job
+   */
+  @JsonIgnore
+  @Column(columnDefinition = "TEXT")
+  private String result;
 }
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that holds the gzip-compressed log of a finished Job.
+ *
+ * <p>When a job finishes, its log lines are joined with newlines, compressed and stored here, and
+ * the individual lines are deleted. Lines logged after that (e.g. by a late cancellation) are
+ * stored as log lines again, numbered after the archived ones.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_log_archives")
+public class JobLogArchive {
+  @Id private long jobId;
+
+  /** Number of lines in the archived log */
+  private int lineCount;
+
+  /** The archived log, as gzip-compressed UTF-8 text */
+  private byte[] content;
+}
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that holds the state shared by all nodes of a recurring job (see
+ * `JobScheduleService`): whether it is paused, and when it last ran.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_schedules")
+public class JobSchedule {
+  @Id private String name;
+
+  private boolean paused;
+
+  /** Scheduled time of the last run; a node may only fire a run scheduled after this */
+  private ZonedDateTime lastFiredAt;
+
+  /** Node that fired the last run */
+  private String lastFiredBy;
+
+  /** Job launched by the last run (null if no job has been launched yet) */
+  private Long lastJobId;
+}
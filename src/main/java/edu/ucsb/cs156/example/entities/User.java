@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import java.time.ZonedDateTime;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,4 +32,10 @@ public class User {
   private String locale;
   private String hostedDomain;
   private boolean admin;
+
+  /** When the user last made a request, as recorded by UserSyncService every few seconds */
+  private ZonedDateTime lastSeenAt;
+
+  /** When the user's roles last changed, as recorded by RolesService.invalidate */
+  private ZonedDateTime rolesInvalidatedAt;
 }
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is thrown by
+ * `JobContext.checkCancelled` to stop a job that has been cancelled or has run out of time.
+ */
+public class JobCancelledException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param jobId id of the job that was cancelled
+   */
+  public JobCancelledException(long jobId) {
+    super("Job %d was cancelled".formatted(jobId));
+  }
+}
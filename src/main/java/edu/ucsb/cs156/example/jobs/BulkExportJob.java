@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.LocalJobContextConsumer;
+import lombok.Builder;
+
+/**
+ * Exports the rows of a table to a compressed file. The file is served by the node that wrote it,
+ * so the job always runs on the node that launched it.
+ */
+@Builder
+public class BulkExportJob implements LocalJobContextConsumer {
+
+  private BulkExportService bulkExportService;
+  private ImportTable table;
+  private ImportFormat format;
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    bulkExportService.exportTable(ctx, table, format);
+  }
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.imports.BulkImportService;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.LocalJobContextConsumer;
+import java.nio.file.Path;
+import lombok.Builder;
+
+/**
+ * Imports the rows of an uploaded file into a table. The upload is kept in a file on the node that
+ * received it, so the job always runs there.
+ */
+@Builder
+public class BulkImportJob implements LocalJobContextConsumer {
+
+  private BulkImportService bulkImportService;
+  private ImportTable table;
+  private ImportFormat format;
+  private Path file;
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    bulkImportService.importFile(ctx, table, format, file);
+  }
+}
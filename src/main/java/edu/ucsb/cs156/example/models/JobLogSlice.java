@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents a run of consecutive lines of a job's log. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobLogSlice {
+  /** Number of the first line in `lines`, counting from 0 */
+  private int fromLine;
+
+  /** Number of lines in the whole log */
+  private int totalLines;
+
+  private List<String> lines;
+}
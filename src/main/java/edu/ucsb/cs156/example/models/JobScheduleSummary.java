@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents a recurring job, as listed for admins. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobScheduleSummary {
+  private String name;
+  private String cron;
+  private boolean paused;
+  private ZonedDateTime lastFiredAt;
+  private Long lastJobId;
+
+  /** When the schedule next fires (null if it is turned off) */
+  private ZonedDateTime nextRunAt;
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a job in a listing of jobs. Unlike `Job`, it leaves out the
+ * log, which is fetched separately for one job at a time.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummary {
+  private long id;
+  private Long createdById;
+  private String createdByEmail;
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private String status;
+  private String type;
+  private Long parentId;
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a job together with its child jobs, e.g. a pipeline and its
+ * parts, and how many of the children have finished.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobTree {
+  private JobSummary job;
+  private List<JobSummary> children;
+  private int total;
+  private int finished;
+
+  /** Children that finished with any status other than "complete" */
+  private int failed;
+
+  /** Share of the children that have finished, from 0 to 100 */
+  private int percentComplete;
+}
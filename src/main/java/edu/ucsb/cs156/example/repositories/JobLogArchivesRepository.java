@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** The JobLogArchivesRepository is a repository for JobLogArchive entities. */
+@Repository
+public interface JobLogArchivesRepository extends CrudRepository<JobLogArchive, Long> {
+  /**
+   * This method returns the number of lines in the archived log of a job, without loading the log
+   * itself.
+   *
+   * @param jobId id of the job
+   * @return number of archived lines (empty if the log of the job has not been archived)
+   */
+  @Query("SELECT a.lineCount FROM job_log_archives a WHERE a.jobId = :jobId")
+  Optional<Integer> findLineCountByJobId(@Param("jobId") long jobId);
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobLogLinesRepository is a repository for JobLogLine entities. */
+@Repository
+public interface JobLogLinesRepository extends CrudRepository<JobLogLine, Long> {
+  /**
+   * This method returns the text of every log line of a job, in the order they were logged.
+   *
+   * @param jobId id of the job
+   * @return the lines of the log (empty if nothing has been logged)
+   */
+  @Query("SELECT l.content FROM job_log_lines l WHERE l.jobId = :jobId ORDER BY l.lineNumber")
+  List<String> findContentByJobId(@Param("jobId") long jobId);
+
+  /**
+   * This method returns the number of lines logged by a job so far.
+   *
+   * @param jobId id of the job
+   * @return number of lines
+   */
+  int countByJobId(long jobId);
+
+  /**
+   * This method returns the log lines of a job starting at a given line, in order.
+   *
+   * @param jobId id of the job
+   * @param lineNumber number of the first line to return
+   * @param limit maximum number of lines to return
+   * @return the lines
+   */
+  List<JobLogLine> findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+      long jobId, int lineNumber, Limit limit);
+
+  /**
+   * This method deletes the log lines of a job that come before a given line, e.g. once they have
+   * been archived.
+   *
+   * @param jobId id of the job
+   * @param lineNumber number of the first line to keep
+   * @return number of lines deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM job_log_lines l WHERE l.jobId = :jobId AND l.lineNumber < :lineNumber")
+  int deleteByJobIdAndLineNumberLessThan(
+      @Param("jobId") long jobId, @Param("lineNumber") int lineNumber);
+}
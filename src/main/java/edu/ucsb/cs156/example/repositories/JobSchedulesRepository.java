@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import java.time.ZonedDateTime;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobSchedulesRepository is a repository for JobSchedule entities. */
+@Repository
+public interface JobSchedulesRepository extends CrudRepository<JobSchedule, String> {
+  /**
+   * This method claims a scheduled run of a recurring job for one node. Every node tries to claim
+   * each run, and the update only succeeds for the first of them, so the run fires exactly once.
+   *
+   * @param name name of the schedule
+   * @param firedAt scheduled time of the run
+   * @param node id of the node claiming the run
+   * @return 1 if this node claimed the run, 0 if the schedule is paused or the run was already
+   *     claimed
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE job_schedules s SET s.lastFiredAt = :firedAt, s.lastFiredBy = :node"
+          + " WHERE s.name = :name AND s.paused = false"
+          + " AND (s.lastFiredAt IS NULL OR s.lastFiredAt < :firedAt)")
+  int claimRun(
+      @Param("name") String name,
+      @Param("firedAt") ZonedDateTime firedAt,
+      @Param("node") String node);
+
+  /**
+   * This method records the job launched by the last run of a schedule.
+   *
+   * @param name name of the schedule
+   * @param jobId id of the job
+   * @return number of schedules updated
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE job_schedules s SET s.lastJobId = :jobId WHERE s.name = :name")
+  int updateLastJobId(@Param("name") String name, @Param("jobId") long jobId);
+
+  /**
+   * This method pauses or resumes a schedule.
+   *
+   * @param name name of the schedule
+   * @param paused whether the schedule should be paused
+   * @return 1 if the schedule was updated, 0 if it does not exist
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE job_schedules s SET s.paused = :paused WHERE s.name = :name")
+  int updatePaused(@Param("name") String name, @Param("paused") boolean paused);
+}
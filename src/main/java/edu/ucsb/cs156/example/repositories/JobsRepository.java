@@ -1,8 +1,298 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobSummary;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+  /**
+   * This method returns one page of jobs, newest first, without their logs.
+   *
+   * @param status only return jobs with this status (all jobs if null)
+   * @param createdById only return jobs launched by this user (all jobs if null)
+   * @param pageable which page to return
+   * @return the page of jobs, along with the total number of matching jobs
+   */
+  @Query(
+      value =
+          "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+              + "j.id, u.id, u.email, j.createdAt, j.updatedAt, j.status, j.type, j.parentId)"
+              + " FROM jobs j LEFT JOIN j.createdBy u"
+              + " WHERE (:status IS NULL OR j.status = :status)"
+              + " AND (:createdById IS NULL OR u.id = :createdById)"
+              + " ORDER BY j.createdAt DESC, j.id DESC",
+      countQuery =
+          "SELECT COUNT(j) FROM jobs j LEFT JOIN j.createdBy u"
+              + " WHERE (:status IS NULL OR j.status = :status)"
+              + " AND (:createdById IS NULL OR u.id = :createdById)")
+  Page<JobSummary> findSummaries(
+      @Param("status") String status, @Param("createdById") Long createdById, Pageable pageable);
+
+  /**
+   * This method returns the parts of a pipeline, in the order they were launched.
+   *
+   * @param parentId id of the pipeline job
+   * @return the parts
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, u.id, u.email, j.createdAt, j.updatedAt, j.status, j.type, j.parentId)"
+          + " FROM jobs j LEFT JOIN j.createdBy u WHERE j.parentId = :parentId ORDER BY j.id")
+  List<JobSummary> findSummariesByParentId(@Param("parentId") long parentId);
+
+  /**
+   * This method returns the summaries of several jobs in one query, e.g. to check which of them
+   * have finished.
+   *
+   * @param ids ids of the jobs
+   * @return the summaries of the jobs that exist, in no particular order
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, u.id, u.email, j.createdAt, j.updatedAt, j.status, j.type, j.parentId)"
+          + " FROM jobs j LEFT JOIN j.createdBy u WHERE j.id IN :ids")
+  List<JobSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method returns the summary of a single job.
+   *
+   * @param id id of the job
+   * @return the summary (empty if the job does not exist)
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, u.id, u.email, j.createdAt, j.updatedAt, j.status, j.type, j.parentId)"
+          + " FROM jobs j LEFT JOIN j.createdBy u WHERE j.id = :id")
+  Optional<JobSummary> findSummaryById(@Param("id") long id);
+
+  /**
+   * This method returns the status of a job without loading the rest of it.
+   *
+   * @param id id of the job
+   * @return the status (empty if the job does not exist)
+   */
+  @Query("SELECT j.status FROM jobs j WHERE j.id = :id")
+  Optional<String> findStatusById(@Param("id") long id);
+
+  /**
+   * This method returns the result of a job, as JSON, without loading the rest of it.
+   *
+   * @param id id of the job
+   * @return the result (empty if the job does not exist or has no result)
+   */
+  @Query("SELECT j.result FROM jobs j WHERE j.id = :id")
+  Optional<String> findResultById(@Param("id") long id);
+
+  /**
+   * This method returns the job that was launched with an idempotency key.
+   *
+   * @param type class name of the job's JobContextConsumer
+   * @param idempotencyKey key sent by the client
+   * @return the job (empty if there is none)
+   */
+  Optional<Job> findByTypeAndIdempotencyKey(String type, String idempotencyKey);
+
+  /**
+   * This method frees the idempotency key of a job, so that a new job can be launched with it.
+   *
+   * @param id id of the job
+   * @return 1 if the key was freed, 0 if the job does not exist
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE jobs j SET j.idempotencyKey = NULL WHERE j.id = :id")
+  int releaseIdempotencyKey(@Param("id") long id);
+
+  /**
+   * This method locks and returns the queued jobs that are next in line, skipping any that another
+   * node has already locked, and any whose user already has the maximum number of jobs running. It
+   * must be called inside a transaction; the locks are held until it commits.
+   *
+   * @param limit maximum number of jobs to return
+   * @param maxRunningPerUser maximum number of running jobs per user (no limit if 0 or less)
+   * @return the locked jobs, in the order they should run
+   */
+  @Query(
+      value =
+          "SELECT * FROM jobs j WHERE j.status = 'queued' AND j.payload IS NOT NULL"
+              + " AND (:maxRunningPerUser <= 0 OR j.created_by_id IS NULL"
+              + " OR (SELECT COUNT(*) FROM jobs r WHERE r.status = 'running'"
+              + " AND r.created_by_id = j.created_by_id) < :maxRunningPerUser)"
+              + " ORDER BY j.dispatch_at, j.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Job> findQueuedForUpdate(
+      @Param("limit") int limit, @Param("maxRunningPerUser") int maxRunningPerUser);
+
+  /**
+   * This method returns the number of jobs a user has running.
+   *
+   * @param createdById id of the user
+   * @return number of running jobs
+   */
+  @Query("SELECT COUNT(j) FROM jobs j WHERE j.createdBy.id = :createdById AND j.status = 'running'")
+  int countRunningByCreatedById(@Param("createdById") long createdById);
+
+  /**
+   * This method extends the lease on every running or waiting job owned by a node.
+   *
+   * @param leaseOwner id of the node
+   * @param leaseExpiresAt new expiry time of the leases
+   * @return number of jobs whose lease was renewed
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.leaseExpiresAt = :leaseExpiresAt"
+          + " WHERE j.leaseOwner = :leaseOwner AND j.status IN ('running', 'queued')")
+  int renewLeases(
+      @Param("leaseOwner") String leaseOwner,
+      @Param("leaseExpiresAt") ZonedDateTime leaseExpiresAt);
+
+  /**
+   * This method puts running jobs whose lease has expired back on the queue, so that another node
+   * can pick them up.
+   *
+   * @param now the current time
+   * @return number of jobs put back on the queue
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = 'queued', j.leaseOwner = NULL, j.leaseExpiresAt = NULL"
+          + " WHERE j.status = 'running' AND j.leaseExpiresAt < :now AND j.payload IS NOT NULL")
+  int requeueExpiredLeases(@Param("now") ZonedDateTime now);
+
+  /**
+   * This method marks running or waiting jobs whose lease has expired as failed, for jobs that
+   * cannot be run again because they were never put on the database-backed queue.
+   *
+   * @param now the current time
+   * @return number of jobs marked as failed
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = 'error', j.leaseOwner = NULL, j.leaseExpiresAt = NULL"
+          + " WHERE j.status IN ('running', 'queued') AND j.leaseExpiresAt < :now"
+          + " AND j.payload IS NULL")
+  int failExpiredLeases(@Param("now") ZonedDateTime now);
+
+  /**
+   * This method cancels a job that is still waiting on the queue.
+   *
+   * @param id id of the job
+   * @param finishedAt the current time
+   * @return 1 if the job was cancelled, 0 if it was not queued
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = 'cancelled', j.cancelRequested = true,"
+          + " j.finishedAt = :finishedAt WHERE j.id = :id AND j.status = 'queued'")
+  int cancelQueued(@Param("id") long id, @Param("finishedAt") ZonedDateTime finishedAt);
+
+  /**
+   * This method flags a running job as cancelled, so that the node running it stops it.
+   *
+   * @param id id of the job
+   * @return 1 if the job was flagged, 0 if it was not running
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE jobs j SET j.cancelRequested = true WHERE j.id = :id AND j.status = 'running'")
+  int requestCancel(@Param("id") long id);
+
+  /**
+   * This method returns which of the given jobs have been flagged as cancelled.
+   *
+   * @param ids ids of jobs
+   * @return ids of the flagged jobs
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.id IN :ids AND j.cancelRequested = true")
+  List<Long> findCancelRequestedIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method returns which of the given jobs have one of the given statuses, e.g. which have
+   * finished.
+   *
+   * @param ids ids of jobs
+   * @param statuses statuses to look for
+   * @return the jobs that have one of the statuses
+   */
+  @Query("SELECT j FROM jobs j WHERE j.id IN :ids AND j.status IN :statuses")
+  List<Job> findByIdInAndStatusIn(
+      @Param("ids") Collection<Long> ids, @Param("statuses") Collection<String> statuses);
+
+  /**
+   * This method returns the ids of the oldest jobs, for deleting jobs in batches.
+   *
+   * @param limit maximum number of ids to return
+   * @return the ids, lowest first
+   */
+  @Query("SELECT j.id FROM jobs j ORDER BY j.id")
+  List<Long> findIds(Limit limit);
+
+  /**
+   * This method returns the ids of jobs with one of the given statuses that finished (or, for jobs
+   * without a finish time, were created) before a given time.
+   *
+   * @param statuses statuses of the jobs
+   * @param cutoff only jobs older than this are returned
+   * @param limit maximum number of ids to return
+   * @return the ids, lowest first
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.status IN :statuses"
+          + " AND COALESCE(j.finishedAt, j.createdAt) < :cutoff ORDER BY j.id")
+  List<Long> findIdsOlderThan(
+      @Param("statuses") Collection<String> statuses,
+      @Param("cutoff") ZonedDateTime cutoff,
+      Limit limit);
+
+  /**
+   * This method returns the ids of the jobs with a given status, newest first. Ask for a page of
+   * size 1 starting at offset N to find the newest job beyond the first N.
+   *
+   * @param status status of the jobs
+   * @param pageable which ids to return
+   * @return the ids, highest first
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.status = :status ORDER BY j.id DESC")
+  List<Long> findIdsByStatusNewestFirst(@Param("status") String status, Pageable pageable);
+
+  /**
+   * This method returns the ids of the jobs with a given status, up to a given id.
+   *
+   * @param status status of the jobs
+   * @param maxId highest id to return
+   * @param limit maximum number of ids to return
+   * @return the ids, lowest first
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.status = :status AND j.id <= :maxId ORDER BY j.id")
+  List<Long> findIdsByStatusUpTo(
+      @Param("status") String status, @Param("maxId") long maxId, Limit limit);
+
+  /**
+   * This method deletes jobs, and with them their log lines, in a single statement.
+   *
+   * @param ids ids of the jobs
+   * @return number of jobs deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM jobs j WHERE j.id IN :ids")
+  int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -1,9 +1,15 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UserRepository is a repository for User entities. */
 @Repository
@@ -15,4 +21,25 @@ public interface UserRepository extends CrudRepository<User, Long> {
    * @return Optional of User (empty if not found)
    */
   Optional<User> findByEmail(String email);
+
+  /**
+   * This method records that the roles of a user changed.
+   *
+   * @param email email address of the user
+   * @param invalidatedAt when the roles changed
+   * @return the number of users updated (0 if there is no user with the email)
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE users u SET u.rolesInvalidatedAt = :invalidatedAt WHERE u.email = :email")
+  int updateRolesInvalidatedAt(
+      @Param("email") String email, @Param("invalidatedAt") ZonedDateTime invalidatedAt);
+
+  /**
+   * This method returns the users whose roles changed after a given time.
+   *
+   * @param since the time
+   * @return the users
+   */
+  List<User> findByRolesInvalidatedAtAfter(ZonedDateTime since);
 }
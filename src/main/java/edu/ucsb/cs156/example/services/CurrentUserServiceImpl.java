@@ -3,13 +3,10 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -32,8 +29,11 @@ public class CurrentUserServiceImpl extends CurrentUserService {
 
   @Autowired GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
+  @Autowired UserCache userCache;
+
+  @Autowired UserSyncService userSyncService;
+
+  @Autowired RolesService rolesService;
 
   /**
    * This method returns the current user as a User object.
@@ -53,6 +53,10 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * <p>This method also has a side effect of storing the user in the database if they are not
    * already there.
    *
+   * <p>The user is cached by email (see {@link UserCache}), so most requests do not look it up at
+   * all. Changes to the user's name or picture, and when they were last seen, are written later by
+   * {@link UserSyncService}.
+   *
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
    * @return the User object representing the current user
@@ -61,9 +65,16 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
-    String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
     String fullName = oAuthUser.getAttribute("name");
+
+    Optional<User> cached = userCache.get(email);
+    if (cached.isPresent()) {
+      userSyncService.seen(cached.get(), pictureUrl, fullName);
+      return cached.get();
+    }
+
+    String googleSub = oAuthUser.getAttribute("sub");
     String givenName = oAuthUser.getAttribute("given_name");
     String familyName = oAuthUser.getAttribute("family_name");
     boolean emailVerified = oAuthUser.getAttribute("email_verified");
@@ -76,10 +87,13 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     Optional<User> ou = userRepository.findByEmail(email);
     if (ou.isPresent()) {
       User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
+      if (rolesService.isAdminEmail(email) && !u.getAdmin()) {
         u.setAdmin(true);
         userRepository.save(u);
+        rolesService.invalidate(email);
       }
+      userCache.put(u);
+      userSyncService.seen(u, pictureUrl, fullName);
       return u;
     }
 
@@ -94,9 +108,11 @@ public class CurrentUserServiceImpl extends CurrentUserService {
             .emailVerified(emailVerified)
             .locale(locale)
             .hostedDomain(hostedDomain)
-            .admin(adminEmails.contains(email))
+            .admin(rolesService.isAdminEmail(email))
             .build();
     userRepository.save(u);
+    userCache.put(u);
+    userSyncService.seen(u, pictureUrl, fullName);
     return u;
   }
 
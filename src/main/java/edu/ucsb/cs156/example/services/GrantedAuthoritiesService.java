@@ -9,16 +9,17 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 /**
- * The is a service that retrieves and logs the granted authorities for the current user's
- * authentication.
+ * The is a service that retrieves the granted authorities for the current user's authentication.
+ * These are resolved once, at login (see {@link RolesService}), so this does not query the
+ * database.
  */
 @Slf4j
 @Service("grantedAuthorities")
 public class GrantedAuthoritiesService {
 
   /**
-   * The function retrieves and logs the granted authorities from the current security context in a
-   * Java application.
+   * The function retrieves the granted authorities from the current security context in a Java
+   * application, logging them at debug level.
    *
    * @return collection of authorities granted to the currently authenticated user.
    */
@@ -26,7 +27,7 @@ public class GrantedAuthoritiesService {
     SecurityContext securityContext = SecurityContextHolder.getContext();
     Authentication authentication = securityContext.getAuthentication();
     Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
-    log.info("authorities={}", authorities);
+    log.debug("authorities={}", authorities);
     return authorities;
   }
 }
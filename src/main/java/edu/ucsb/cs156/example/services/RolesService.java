@@ -0,0 +1,146 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that decides which roles a user has. Roles are resolved once, when the user
+ * logs in, and kept with their authentication, so checks such as `@PreAuthorize` do not query the
+ * database.
+ *
+ * <p>When a user is made an admin, or stops being one, call {@link #invalidate(String)}; requests
+ * from that user's existing logins then resolve their roles again. The time of the change is saved
+ * with the user, so that every instance of the app sees it within app.roles.poll-interval-ms, and
+ * each instance keeps the changes from the last app.roles.max-age in memory, so that checking them
+ * does not query the database. Roles resolved longer ago than that are resolved again anyway.
+ */
+@Slf4j
+@Service
+public class RolesService {
+  public static final SimpleGrantedAuthority ROLE_USER = new SimpleGrantedAuthority("ROLE_USER");
+  public static final SimpleGrantedAuthority ROLE_ADMIN = new SimpleGrantedAuthority("ROLE_ADMIN");
+  public static final SimpleGrantedAuthority ROLE_MEMBER =
+      new SimpleGrantedAuthority("ROLE_MEMBER");
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private UserCache userCache;
+
+  @Value("${app.admin.emails}")
+  private final Set<String> adminEmails = new HashSet<>();
+
+  @Value("${app.roles.max-age:1h}")
+  private Duration maxAge;
+
+  private final Map<String, Long> invalidatedAtMs = new ConcurrentHashMap<>();
+
+  /**
+   * Returns whether the email is one of the admin emails in the configuration.
+   *
+   * @param email email address of the user
+   * @return whether the email is configured as an admin
+   */
+  public boolean isAdminEmail(String email) {
+    return adminEmails.contains(email);
+  }
+
+  /**
+   * Returns whether the user with the given email is an admin, either because the email is
+   * configured as an admin, or because the user is saved as one.
+   *
+   * @param email email address of the user
+   * @return whether the user with the given email is an admin
+   */
+  public boolean isAdmin(String email) {
+    if (isAdminEmail(email)) {
+      return true;
+    }
+    Optional<User> u = userRepository.findByEmail(email);
+    return u.isPresent() && u.get().getAdmin();
+  }
+
+  /**
+   * Returns the roles of the user with the given email.
+   *
+   * @param email email address of the user
+   * @return ROLE_USER, ROLE_ADMIN for admins, and ROLE_MEMBER for ucsb.edu emails
+   */
+  public Set<GrantedAuthority> resolveRoles(String email) {
+    Set<GrantedAuthority> roles = new HashSet<>();
+    roles.add(ROLE_USER);
+    if (isAdmin(email)) {
+      roles.add(ROLE_ADMIN);
+    }
+    if (email.endsWith("@ucsb.edu")) {
+      roles.add(ROLE_MEMBER);
+    }
+    log.debug("roles for {} are {}", email, roles);
+    return roles;
+  }
+
+  /**
+   * Marks the roles of the user with the given email as out of date, e.g. after they are granted or
+   * lose admin, on every instance of the app, and drops the user from the {@link UserCache}.
+   *
+   * @param email email address of the user
+   */
+  public void invalidate(String email) {
+    Instant now = Instant.now();
+    userRepository.updateRolesInvalidatedAt(email, now.atZone(ZoneId.systemDefault()));
+    invalidatedAtMs.merge(email, now.toEpochMilli(), Math::max);
+    userCache.evict(email);
+  }
+
+  /**
+   * Picks up the roles invalidated by other instances of the app, and forgets those invalidated
+   * more than app.roles.max-age ago.
+   */
+  @Scheduled(
+      fixedDelayString = "${app.roles.poll-interval-ms:5000}",
+      initialDelayString = "${app.roles.poll-interval-ms:5000}")
+  public void refreshInvalidations() {
+    long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+    for (User user :
+        userRepository.findByRolesInvalidatedAtAfter(
+            Instant.ofEpochMilli(cutoff).atZone(ZoneId.systemDefault()))) {
+      long invalidatedAt = user.getRolesInvalidatedAt().toInstant().toEpochMilli();
+      Long known = invalidatedAtMs.get(user.getEmail());
+      if (known == null || known < invalidatedAt) {
+        invalidatedAtMs.merge(user.getEmail(), invalidatedAt, Math::max);
+        userCache.evict(user.getEmail());
+      }
+    }
+    invalidatedAtMs.values().removeIf(invalidatedAt -> invalidatedAt < cutoff);
+  }
+
+  /**
+   * Returns whether roles resolved at the given time are out of date.
+   *
+   * @param email email address of the user
+   * @param resolvedAtMs when the roles were resolved, in milliseconds since the epoch
+   * @return whether the roles were invalidated at or after that time, or were resolved more than
+   *     app.roles.max-age ago
+   */
+  public boolean isStale(String email, long resolvedAtMs) {
+    if (resolvedAtMs < System.currentTimeMillis() - maxAge.toMillis()) {
+      return true;
+    }
+    Long invalidatedAt = invalidatedAtMs.get(email);
+    return invalidatedAt != null && invalidatedAt >= resolvedAtMs;
+  }
+}
@@ -0,0 +1,231 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that issues and verifies the signed tokens used instead of server side sessions
+ * when app.session.stateless is true.
+ *
+ * <p>A token is `payload.signature`, both base64url encoded, where the payload is JSON holding the
+ * user's id, the OAuth2 attributes the app reads, their roles, and when the token was issued and
+ * expires, and the signature is an HMAC-SHA256 of the payload with app.session.token.secret. Every
+ * instance of the app must use the same secret, so the app refuses to start in stateless mode
+ * without one; otherwise, a random one is used to sign the few values that need it.
+ */
+@Slf4j
+@Service
+public class SessionTokenService {
+  private static final String ALGORITHM = "HmacSHA256";
+
+  /** The OAuth2 attributes kept in a token, which are those `CurrentUserServiceImpl` reads */
+  public static final List<String> ATTRIBUTES =
+      List.of(
+          "sub",
+          "email",
+          "email_verified",
+          "name",
+          "given_name",
+          "family_name",
+          "picture",
+          "locale",
+          "hd");
+
+  @Autowired private ObjectMapper mapper;
+
+  @Value("${app.session.token.ttl:15m}")
+  private Duration ttl;
+
+  private SecretKeySpec key;
+
+  /**
+   * Creates the service with the key to sign with.
+   *
+   * @param secret the shared secret; if blank, a random one is generated
+   * @param stateless whether app.session.stateless is true, in which case the secret must be set
+   * @throws IllegalStateException if the secret is blank in stateless mode, where a random secret
+   *     would log users out whenever a request reaches another instance
+   */
+  public SessionTokenService(
+      @Value("${app.session.token.secret:}") String secret,
+      @Value("${app.session.stateless:false}") boolean stateless) {
+    byte[] bytes;
+    if (secret.isBlank()) {
+      if (stateless) {
+        throw new IllegalStateException(
+            "app.session.token.secret (SESSION_TOKEN_SECRET) must be set when"
+                + " app.session.stateless is true");
+      }
+      bytes = new byte[32];
+      new SecureRandom().nextBytes(bytes);
+    } else {
+      bytes = secret.getBytes(StandardCharsets.UTF_8);
+    }
+    key = new SecretKeySpec(bytes, ALGORITHM);
+  }
+
+  /**
+   * The contents of a verified token.
+   *
+   * @param userId id of the user in the users table
+   * @param registrationId the OAuth2 client registration the user logged in with, e.g. google
+   * @param attributes the user's OAuth2 attributes
+   * @param roles names of the user's roles, e.g. ROLE_USER
+   * @param issuedAt when the token was issued
+   * @param expiresAt when the token stops being accepted
+   */
+  public record SessionToken(
+      long userId,
+      String registrationId,
+      Map<String, Object> attributes,
+      List<String> roles,
+      Instant issuedAt,
+      Instant expiresAt) {
+
+    /**
+     * Returns whether the token is past half its lifetime, and should be replaced with a new one.
+     *
+     * @param now the current time
+     * @return whether to issue a new token
+     */
+    public boolean isDueForRenewal(Instant now) {
+      return now.isAfter(issuedAt.plus(Duration.between(issuedAt, expiresAt).dividedBy(2)));
+    }
+  }
+
+  /**
+   * Returns how long a token is accepted for, which is also how long the cookie holding it lasts.
+   *
+   * @return the lifetime of a token
+   */
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  /**
+   * Issues a token for a user.
+   *
+   * @param userId id of the user in the users table
+   * @param registrationId the OAuth2 client registration the user logged in with
+   * @param attributes the user's OAuth2 attributes; only those in {@link #ATTRIBUTES} are kept
+   * @param authorities the user's authorities; only their roles are kept
+   * @return the signed token
+   */
+  public String issue(
+      long userId,
+      String registrationId,
+      Map<String, Object> attributes,
+      Collection<? extends GrantedAuthority> authorities) {
+    Map<String, Object> kept = new LinkedHashMap<>();
+    for (String name : ATTRIBUTES) {
+      if (attributes.get(name) != null) {
+        kept.put(name, attributes.get(name));
+      }
+    }
+    List<String> roles =
+        authorities.stream()
+            .map(GrantedAuthority::getAuthority)
+            .filter(a -> a.startsWith("ROLE_"))
+            .sorted()
+            .toList();
+    Instant now = Instant.now();
+    SessionToken token = new SessionToken(userId, registrationId, kept, roles, now, now.plus(ttl));
+    try {
+      return sign(mapper.writeValueAsBytes(token));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Verifies a token.
+   *
+   * @param value the token, as issued by {@link #issue}
+   * @return the contents of the token, or empty if it is malformed, not signed with this app's key,
+   *     or expired
+   */
+  public Optional<SessionToken> verify(String value) {
+    Optional<byte[]> payload = unsign(value);
+    if (payload.isEmpty()) {
+      return Optional.empty();
+    }
+    SessionToken token;
+    try {
+      token = mapper.readValue(payload.get(), SessionToken.class);
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+    if (!Instant.now().isBefore(token.expiresAt())) {
+      return Optional.empty();
+    }
+    return Optional.of(token);
+  }
+
+  /**
+   * Signs a value, so that it can be handed to the browser and trusted when it comes back.
+   *
+   * @param payload the value to sign
+   * @return `payload.signature`, both base64url encoded
+   */
+  public String sign(byte[] payload) {
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    return encoder.encodeToString(payload) + "." + encoder.encodeToString(mac(payload));
+  }
+
+  /**
+   * Checks a value signed by {@link #sign(byte[])}.
+   *
+   * @param value the signed value
+   * @return the payload, or empty if the value is malformed or its signature does not match
+   */
+  public Optional<byte[]> unsign(String value) {
+    int dot = value.indexOf('.');
+    if (dot < 0) {
+      return Optional.empty();
+    }
+    byte[] bytes;
+    byte[] signature;
+    try {
+      Base64.Decoder decoder = Base64.getUrlDecoder();
+      bytes = decoder.decode(value.substring(0, dot));
+      signature = decoder.decode(value.substring(dot + 1));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    if (!MessageDigest.isEqual(mac(bytes), signature)) {
+      log.debug("rejected a value with a bad signature");
+      return Optional.empty();
+    }
+    return Optional.of(bytes);
+  }
+
+  private byte[] mac(byte[] bytes) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac.doFinal(bytes);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
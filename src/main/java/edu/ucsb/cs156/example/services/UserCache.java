@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * A bounded cache of the users resolved for logged in principals, keyed by email, so that requests
+ * by the same user do not each look them up in the database.
+ *
+ * <p>Entries expire after `app.users.cache.ttl`, and the least recently used entry is dropped once
+ * there are more than `app.users.cache.max-size`. Anything that changes a user in the database must
+ * call {@link #evict(String)} so that the next request sees the change.
+ */
+@Service
+public class UserCache {
+
+  @Value("${app.users.cache.max-size:10000}")
+  private int maxSize;
+
+  @Value("${app.users.cache.ttl:5m}")
+  private Duration ttl;
+
+  private record Entry(User user, long expiresAtMs) {}
+
+  private final Map<String, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+          return size() > maxSize;
+        }
+      };
+
+  /**
+   * Returns the cached user with the given email, unless it has expired.
+   *
+   * @param email email of the user
+   * @return the cached user, or empty if there is none
+   */
+  public synchronized Optional<User> get(String email) {
+    Entry entry = entries.get(email);
+    if (entry == null) {
+      return Optional.empty();
+    }
+    if (System.currentTimeMillis() >= entry.expiresAtMs()) {
+      entries.remove(email);
+      return Optional.empty();
+    }
+    return Optional.of(entry.user());
+  }
+
+  /**
+   * Caches a user, replacing any entry for the same email.
+   *
+   * @param user the user, as saved in the database
+   */
+  public synchronized void put(User user) {
+    entries.put(user.getEmail(), new Entry(user, System.currentTimeMillis() + ttl.toMillis()));
+  }
+
+  /**
+   * Drops the user with the given email, e.g. after their admin flag or profile changes.
+   *
+   * @param email email of the user
+   */
+  public synchronized void evict(String email) {
+    entries.remove(email);
+  }
+
+  /** Drops every cached user. */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of cached users, including any that have expired but not been dropped yet.
+   *
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,133 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that keeps the users table up to date with what each user's OAuth2 provider
+ * last said about their name and picture, and with when they were last seen, without making
+ * requests wait for the writes.
+ *
+ * <p>Requests only record the user in memory; a user seen many times between flushes is recorded
+ * once, with the latest values. Every app.users.sync.interval-ms the recorded users are written in
+ * batches of app.users.sync.batch-size UPDATE statements, and users whose name or picture changed
+ * are evicted from the {@link UserCache}.
+ */
+@Slf4j
+@Service
+public class UserSyncService {
+  static final String UPDATE_SQL =
+      "UPDATE users SET picture_url = ?, full_name = ?, last_seen_at = ? WHERE id = ?";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private UserCache userCache;
+
+  @Value("${app.users.sync.batch-size:500}")
+  private int batchSize;
+
+  private record Seen(
+      String email, String pictureUrl, String fullName, boolean profileChanged, Instant at) {}
+
+  private final Map<Long, Seen> pending = new ConcurrentHashMap<>();
+
+  /**
+   * Records that a user made a request now, to be written at the next flush.
+   *
+   * @param user the user, as currently saved
+   * @param pictureUrl the picture the OAuth2 provider gave for the user
+   * @param fullName the name the OAuth2 provider gave for the user
+   */
+  public void seen(User user, String pictureUrl, String fullName) {
+    boolean profileChanged =
+        !Objects.equals(user.getPictureUrl(), pictureUrl)
+            || !Objects.equals(user.getFullName(), fullName);
+    Seen seen = new Seen(user.getEmail(), pictureUrl, fullName, profileChanged, Instant.now());
+    pending.merge(user.getId(), seen, UserSyncService::coalesce);
+  }
+
+  private static Seen coalesce(Seen earlier, Seen later) {
+    return earlier.profileChanged() && !later.profileChanged()
+        ? new Seen(later.email(), later.pictureUrl(), later.fullName(), true, later.at())
+        : later;
+  }
+
+  /**
+   * Returns the number of users waiting to be written.
+   *
+   * @return the number of users
+   */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /** Writes the recorded users. */
+  @Scheduled(fixedDelayString = "${app.users.sync.interval-ms:5000}")
+  @PreDestroy
+  public void scheduledFlush() {
+    flush();
+  }
+
+  /**
+   * Writes the users recorded since the last flush, in batches. If a batch fails, its users are
+   * recorded again, keeping any newer values recorded since, and are written at the next flush.
+   *
+   * @return number of users written
+   */
+  public synchronized int flush() {
+    int written = 0;
+    List<Long> ids = new ArrayList<>();
+    List<Seen> batch = new ArrayList<>();
+    for (Long id : new ArrayList<>(pending.keySet())) {
+      ids.add(id);
+      batch.add(pending.remove(id));
+      if (ids.size() == batchSize) {
+        written += write(ids, batch);
+        ids = new ArrayList<>();
+        batch = new ArrayList<>();
+      }
+    }
+    if (!ids.isEmpty()) {
+      written += write(ids, batch);
+    }
+    return written;
+  }
+
+  private int write(List<Long> ids, List<Seen> batch) {
+    List<Object[]> args = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i++) {
+      Seen seen = batch.get(i);
+      args.add(
+          new Object[] {seen.pictureUrl(), seen.fullName(), Timestamp.from(seen.at()), ids.get(i)});
+    }
+    try {
+      jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+    } catch (DataAccessException e) {
+      log.warn("Could not update {} users, will retry: {}", ids.size(), e.getMessage());
+      for (int i = 0; i < ids.size(); i++) {
+        pending.merge(ids.get(i), batch.get(i), (seenSince, failed) -> coalesce(failed, seenSince));
+      }
+      return 0;
+    }
+    for (Seen seen : batch) {
+      if (seen.profileChanged()) {
+        userCache.evict(seen.email());
+      }
+    }
+    return ids.size();
+  }
+}
@@ -0,0 +1,260 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.BulkExportJob;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a service that exports the tables of the CRUD entities to gzip-compressed CSV or NDJSON
+ * files, as jobs, and serves the files afterwards.
+ *
+ * <p>The rows are read in a read-only transaction through a forward-only cursor that fetches
+ * app.exports.fetch-size rows at a time, and each row is written out as soon as it is read, so an
+ * export takes the same memory however large the table is. The file is written under a temporary
+ * name in app.exports.directory and renamed when it is complete, so a file that is there can be
+ * downloaded; files older than app.exports.max-age are deleted.
+ */
+@Slf4j
+@Service
+public class BulkExportService {
+  @Autowired private JobService jobService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Value("${app.exports.directory:${java.io.tmpdir}/exports}")
+  private Path directory;
+
+  @Value("${app.exports.fetch-size:1000}")
+  private int fetchSize;
+
+  @Value("${app.exports.progress-interval:100000}")
+  private int progressInterval;
+
+  @Value("${app.exports.max-age:7d}")
+  private Duration maxAge;
+
+  /**
+   * Launches a job that exports a table.
+   *
+   * @param table the table to export
+   * @param format the format to write
+   * @return the job
+   */
+  public Job launch(ImportTable table, ImportFormat format) {
+    return jobService.runAsJob(
+        BulkExportJob.builder().bulkExportService(this).table(table).format(format).build());
+  }
+
+  /**
+   * Exports a table to a file named after the job. Progress is logged every
+   * app.exports.progress-interval rows; the number of rows exported and the URL the file can be
+   * downloaded from are reported as the result of the job.
+   *
+   * @param ctx context of the job doing the export
+   * @param table the table to export
+   * @param format the format to write
+   * @throws IOException if the file cannot be written
+   */
+  public void exportTable(JobContext ctx, ImportTable table, ImportFormat format)
+      throws IOException {
+    Files.createDirectories(directory);
+    Path file = directory.resolve(fileName(ctx.getJobId(), format));
+    Path part = directory.resolve(file.getFileName() + ".part");
+    ctx.log("Exporting %s as %s".formatted(table.getTableName(), format));
+
+    RowWriter rows = new RowWriter(ctx, table.getExportFields().size());
+    try {
+      try (ExportRowWriter writer = openWriter(part, table, format)) {
+        rows.writer = writer;
+        TransactionTemplate readOnly =
+            new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(
+            status -> jdbcTemplate.query(con -> select(con, table), rows));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(part);
+      ctx.putResult("rowsExported", rows.count);
+    }
+    ctx.putResult("download", "/api/jobs/%d/download".formatted(ctx.getJobId()));
+    ctx.log("Export finished: %d rows".formatted(rows.count));
+  }
+
+  /**
+   * Finds the file a job exported.
+   *
+   * @param jobId id of the job
+   * @return the file, if the job exported one and it has not been deleted
+   */
+  public Optional<Path> findExport(long jobId) {
+    for (ImportFormat format : ImportFormat.values()) {
+      Path file = directory.resolve(fileName(jobId, format));
+      if (Files.isRegularFile(file)) {
+        return Optional.of(file);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** Deletes old exports. */
+  @Scheduled(
+      initialDelayString = "${app.exports.cleanup.initial-delay-ms:60000}",
+      fixedDelayString = "${app.exports.cleanup.interval-ms:3600000}")
+  public void scheduledPurge() {
+    try {
+      purge();
+    } catch (IOException e) {
+      log.warn("Could not purge old exports", e);
+    }
+  }
+
+  /**
+   * Deletes the exports (complete or not) that were last written more than app.exports.max-age ago.
+   *
+   * @return number of files deleted
+   * @throws IOException if the directory cannot be read
+   */
+  public int purge() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return 0;
+    }
+    Instant cutoff = Instant.now().minus(maxAge);
+    int deleted = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "export-*")) {
+      for (Path file : files) {
+        if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && delete(file)) {
+          deleted++;
+        }
+      }
+    }
+    if (deleted > 0) {
+      log.info("Purged {} old exports", deleted);
+    }
+    return deleted;
+  }
+
+  /**
+   * Deletes one export.
+   *
+   * @param file the export
+   * @return false if it was already gone, e.g. purged by another node
+   * @throws IOException if it cannot be deleted
+   */
+  boolean delete(Path file) throws IOException {
+    return Files.deleteIfExists(file);
+  }
+
+  static String fileName(long jobId, ImportFormat format) {
+    return "export-%d.%s.gz".formatted(jobId, format.name().toLowerCase());
+  }
+
+  private ExportRowWriter openWriter(Path file, ImportTable table, ImportFormat format)
+      throws IOException {
+    Writer out =
+        new BufferedWriter(
+            new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8));
+    try {
+      return switch (format) {
+        case CSV -> new CsvRowWriter(out, table.getExportFields());
+        case NDJSON -> new NdjsonRowWriter(out, table.getExportFields(), mapper);
+      };
+    } catch (IOException e) {
+      out.close();
+      throw e;
+    }
+  }
+
+  /** Prepares the query of an export, so that the driver streams the rows rather than load all */
+  private PreparedStatement select(Connection con, ImportTable table) throws SQLException {
+    PreparedStatement statement =
+        con.prepareStatement(
+            table.getSelectSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    statement.setFetchSize(fetchSize);
+    return statement;
+  }
+
+  /** Writes each row of an export as it is read, checking now and then for cancellation */
+  private class RowWriter implements RowCallbackHandler {
+    private final JobContext ctx;
+    private final Object[] values;
+    private ExportRowWriter writer;
+    private long count;
+
+    RowWriter(JobContext ctx, int columns) {
+      this.ctx = ctx;
+      this.values = new Object[columns];
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+      for (int i = 0; i < values.length; i++) {
+        values[i] = exportValue(rs.getObject(i + 1));
+      }
+      try {
+        writer.write(values);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      count++;
+      if (count % fetchSize == 0) {
+        ctx.checkCancelled();
+      }
+      if (count % progressInterval == 0) {
+        ctx.log("%d rows exported".formatted(count));
+        ctx.putResult("rowsExported", count);
+      }
+    }
+  }
+
+  /** Converts a value read from the database into one that imports accept */
+  private static Object exportValue(Object value) {
+    if (value instanceof Timestamp timestamp) {
+      value = timestamp.toLocalDateTime();
+    }
+    if (value instanceof LocalDateTime dateTime) {
+      return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes CSV (RFC 4180), starting with a header that names the fields. Fields are quoted only when
+ * they contain commas, quotes or line breaks; null values are written as empty fields.
+ */
+public class CsvRowWriter implements ExportRowWriter {
+  private final Writer out;
+
+  /**
+   * Writes the header of the CSV.
+   *
+   * @param out where to write the CSV; should be buffered, since fields are written separately
+   * @param fields names of the fields of each row
+   * @throws IOException if the CSV cannot be written
+   */
+  public CsvRowWriter(Writer out, List<String> fields) throws IOException {
+    this.out = out;
+    write(fields.toArray());
+  }
+
+  @Override
+  public void write(Object[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      if (values[i] != null) {
+        writeField(values[i].toString());
+      }
+    }
+    out.write("\r\n");
+  }
+
+  private void writeField(String field) throws IOException {
+    boolean quoted = false;
+    for (int i = 0; i < field.length() && !quoted; i++) {
+      char c = field.charAt(i);
+      quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+    }
+    if (!quoted) {
+      out.write(field);
+      return;
+    }
+    out.write('"');
+    out.write(field.replace("\"", "\"\""));
+    out.write('"');
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,15 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Writes the rows of an export one at a time, so that the export is never held in memory. */
+public interface ExportRowWriter extends Closeable {
+  /**
+   * Writes the next row.
+   *
+   * @param values a value for each field, in order; null if the row has no value for it
+   * @throws IOException if the export cannot be written
+   */
+  void write(Object[] values) throws IOException;
+}
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes NDJSON: one JSON object per line, with a property for each field. Null values are left
+ * out.
+ */
+public class NdjsonRowWriter implements ExportRowWriter {
+  private final JsonGenerator generator;
+  private final List<String> fields;
+
+  /**
+   * Starts writing NDJSON.
+   *
+   * @param out where to write the NDJSON
+   * @param fields names of the fields of each row
+   * @param mapper used to write values
+   * @throws IOException if the NDJSON cannot be written
+   */
+  public NdjsonRowWriter(Writer out, List<String> fields, ObjectMapper mapper) throws IOException {
+    this.generator = mapper.getFactory().createGenerator(out);
+    this.generator.setRootValueSeparator(null);
+    this.fields = fields;
+  }
+
+  @Override
+  public void write(Object[] values) throws IOException {
+    generator.writeStartObject();
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        generator.writeObjectField(fields.get(i), values[i]);
+      }
+    }
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.close();
+  }
+}
@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.BulkImportJob;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a service that imports CSV or NDJSON uploads into the tables of the CRUD entities, as
+ * jobs.
+ *
+ * <p>The upload is first copied to a temporary file, so that the request can return right away. The
+ * job then reads it one row at a time, validates each row, and inserts the valid rows with JDBC
+ * batch inserts of app.imports.batch-size rows, each committed on its own. Rows that are not valid,
+ * or that the database refuses, are logged and skipped; the job fails once more than
+ * app.imports.max-errors rows have been skipped.
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+  @Autowired private JobService jobService;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Value("${app.imports.batch-size:1000}")
+  private int batchSize;
+
+  @Value("${app.imports.progress-interval:100000}")
+  private int progressInterval;
+
+  @Value("${app.imports.max-errors:1000}")
+  private int maxErrors;
+
+  /** Rows of an import that have been read, inserted and skipped so far */
+  private static class Counts {
+    long read;
+    long imported;
+    long rejected;
+  }
+
+  /**
+   * Saves an upload and launches a job that imports it.
+   *
+   * @param table the table to import into
+   * @param contentType the Content-Type of the upload: text/csv or application/x-ndjson
+   * @param body the upload
+   * @return the job
+   * @throws IOException if the upload cannot be saved
+   */
+  public Job launch(ImportTable table, String contentType, InputStream body) throws IOException {
+    ImportFormat format = ImportFormat.fromContentType(contentType);
+    Path file = Files.createTempFile("import-", "." + format.name().toLowerCase());
+    try {
+      Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+
+    Job job =
+        jobService.runAsJob(
+            BulkImportJob.builder()
+                .bulkImportService(this)
+                .table(table)
+                .format(format)
+                .file(file)
+                .build());
+    if (JobService.isFinished(job.getStatus())) {
+      // rejected, so the job will never read the file
+      Files.deleteIfExists(file);
+    }
+    return job;
+  }
+
+  /**
+   * Imports an upload into a table, then deletes the upload. Progress is logged every
+   * app.imports.progress-interval rows; the numbers of rows read, imported and rejected are
+   * reported as the result of the job.
+   *
+   * @param ctx context of the job doing the import
+   * @param table the table to import into
+   * @param format the format of the upload
+   * @param file the upload
+   * @throws IOException if the upload cannot be read
+   */
+  public void importFile(JobContext ctx, ImportTable table, ImportFormat format, Path file)
+      throws IOException {
+    Counts counts = new Counts();
+    List<Object[]> batch = new ArrayList<>(batchSize);
+    List<Long> batchRows = new ArrayList<>(batchSize);
+    ctx.log("Importing %s into %s".formatted(format, table.getTableName()));
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      ImportRowReader rows = format.open(in, mapper);
+      while (true) {
+        Map<String, String> row;
+        try {
+          row = rows.next();
+        } catch (IllegalArgumentException e) {
+          counts.read++;
+          reject(ctx, counts, counts.read, e.getMessage());
+          continue;
+        }
+        if (row == null) {
+          break;
+        }
+        counts.read++;
+        try {
+          batch.add(table.toValues(row));
+          batchRows.add(counts.read);
+        } catch (IllegalArgumentException e) {
+          reject(ctx, counts, counts.read, e.getMessage());
+        }
+
+        if (batch.size() == batchSize) {
+          insert(ctx, table, batch, batchRows, counts);
+          ctx.checkCancelled();
+        }
+        if (counts.read % progressInterval == 0) {
+          logProgress(ctx, counts);
+        }
+      }
+      insert(ctx, table, batch, batchRows, counts);
+    } finally {
+      report(ctx, counts);
+      Files.deleteIfExists(file);
+    }
+    ctx.log(
+        "Import finished: %d rows read, %d imported, %d rejected"
+            .formatted(counts.read, counts.imported, counts.rejected));
+  }
+
+  /**
+   * Inserts a batch of rows in one transaction. If the database refuses the batch, its rows are
+   * inserted one at a time instead, so that only the rows it refuses are skipped.
+   */
+  private void insert(
+      JobContext ctx,
+      ImportTable table,
+      List<Object[]> batch,
+      List<Long> batchRows,
+      Counts counts) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> jdbcTemplate.batchUpdate(table.getInsertSql(), batch));
+      counts.imported += batch.size();
+    } catch (DataAccessException e) {
+      log.debug("Batch insert into {} failed, inserting rows one at a time", table, e);
+      for (int i = 0; i < batch.size(); i++) {
+        try {
+          jdbcTemplate.update(table.getInsertSql(), batch.get(i));
+          counts.imported++;
+        } catch (DataAccessException rowError) {
+          reject(ctx, counts, batchRows.get(i), rowError.getMostSpecificCause().getMessage());
+        }
+      }
+    }
+    batch.clear();
+    batchRows.clear();
+  }
+
+  private void reject(JobContext ctx, Counts counts, long rowNumber, String reason) {
+    counts.rejected++;
+    if (counts.rejected > maxErrors) {
+      throw new IllegalStateException(
+          "Import stopped: more than %d rows were rejected".formatted(maxErrors));
+    }
+    ctx.log("Row %d rejected: %s".formatted(rowNumber, reason));
+  }
+
+  private void logProgress(JobContext ctx, Counts counts) {
+    ctx.log(
+        "%d rows read, %d imported, %d rejected"
+            .formatted(counts.read, counts.imported, counts.rejected));
+    report(ctx, counts);
+  }
+
+  private void report(JobContext ctx, Counts counts) {
+    ctx.putResult("rowsRead", counts.read);
+    ctx.putResult("rowsImported", counts.imported);
+    ctx.putResult("rowsRejected", counts.rejected);
+  }
+}
@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads CSV (RFC 4180) one record at a time. The first record names the fields of the rows that
+ * follow. Fields may be quoted with double quotes, in which case they may contain commas, newlines
+ * and doubled quotes. Blank lines are skipped.
+ */
+public class CsvRowReader implements ImportRowReader {
+  private final Reader in;
+  private final List<String> header;
+
+  /**
+   * Reads the header of the CSV.
+   *
+   * @param in the CSV; should be buffered, since it is read one character at a time
+   * @throws IOException if the CSV cannot be read
+   */
+  public CsvRowReader(Reader in) throws IOException {
+    this.in = in;
+    List<String> names = readRecord();
+    if (names == null) {
+      names = List.of();
+    } else if (names.get(0).startsWith("\uFEFF")) {
+      // byte order mark, as written by e.g. Excel
+      names.set(0, names.get(0).substring(1));
+    }
+    this.header = names;
+  }
+
+  @Override
+  public Map<String, String> next() throws IOException {
+    List<String> record;
+    do {
+      record = readRecord();
+      if (record == null) {
+        return null;
+      }
+    } while (record.size() == 1 && record.get(0).isEmpty());
+
+    if (record.size() != header.size()) {
+      throw new IllegalArgumentException(
+          "expected %d fields but found %d".formatted(header.size(), record.size()));
+    }
+    Map<String, String> row = new LinkedHashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      row.put(header.get(i), record.get(i));
+    }
+    return row;
+  }
+
+  /** Reads the fields of the next record, or returns null at the end of the CSV. */
+  private List<String> readRecord() throws IOException {
+    int c = in.read();
+    if (c == -1) {
+      return null;
+    }
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == -1) {
+          throw new IllegalArgumentException("quoted field is not closed");
+        }
+        if (c == '"') {
+          c = in.read();
+          if (c != '"') {
+            quoted = false;
+            continue;
+          }
+        }
+        field.append((char) c);
+      } else if (c == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n' || c == -1) {
+        if (!field.isEmpty() && field.charAt(field.length() - 1) == '\r') {
+          field.setLength(field.length() - 1);
+        }
+        fields.add(field.toString());
+        return fields;
+      } else {
+        field.append((char) c);
+      }
+      c = in.read();
+    }
+  }
+}
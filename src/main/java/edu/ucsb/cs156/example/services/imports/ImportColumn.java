@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.Function;
+
+/**
+ * A column that bulk imports fill in: the field of the upload it comes from, and how that field is
+ * validated and converted into the value that is inserted.
+ *
+ * @param field name of the field in the upload, as in the JSON form of the entity
+ * @param column name of the database column
+ * @param optional whether the field may be missing or empty (it is then inserted as null)
+ * @param parser converts the text of the field into the value to insert; throws
+ *     IllegalArgumentException if the text is not valid
+ */
+public record ImportColumn(
+    String field, String column, boolean optional, Function<String, Object> parser) {
+
+  /** Most characters a VARCHAR(255) column holds */
+  static final int MAX_TEXT_LENGTH = 255;
+
+  /**
+   * Validates and converts a field of a row.
+   *
+   * @param text the text of the field (null if the row does not have it)
+   * @return the value to insert
+   * @throws IllegalArgumentException if the field is not valid, with a message naming the field
+   */
+  public Object parse(String text) {
+    if (text == null || text.isBlank()) {
+      if (optional) {
+        return null;
+      }
+      throw new IllegalArgumentException(field + " is missing");
+    }
+    try {
+      return parser.apply(text);
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new IllegalArgumentException("%s is not valid: %s".formatted(field, e.getMessage()));
+    }
+  }
+
+  static ImportColumn text(String field, String column) {
+    return new ImportColumn(field, column, false, ImportColumn::parseText);
+  }
+
+  static ImportColumn optionalText(String field, String column) {
+    return new ImportColumn(field, column, true, ImportColumn::parseText);
+  }
+
+  static ImportColumn email(String field, String column) {
+    return new ImportColumn(
+        field,
+        column,
+        false,
+        text -> {
+          String email = parseText(text.trim());
+          if (!email.matches("[^@\\s]+@[^@\\s]+")) {
+            throw new IllegalArgumentException("not an email address");
+          }
+          return email;
+        });
+  }
+
+  static ImportColumn longValue(String field, String column) {
+    return new ImportColumn(field, column, false, text -> Long.parseLong(text.trim()));
+  }
+
+  static ImportColumn intValue(String field, String column, int min, int max) {
+    return new ImportColumn(
+        field,
+        column,
+        false,
+        text -> {
+          int value = Integer.parseInt(text.trim());
+          if (value < min || value > max) {
+            throw new IllegalArgumentException("must be from %d to %d".formatted(min, max));
+          }
+          return value;
+        });
+  }
+
+  static ImportColumn optionalDouble(String field, String column) {
+    return new ImportColumn(field, column, true, text -> Double.parseDouble(text.trim()));
+  }
+
+  static ImportColumn bool(String field, String column) {
+    return new ImportColumn(
+        field,
+        column,
+        false,
+        text ->
+            switch (text.trim().toLowerCase()) {
+              case "true" -> true;
+              case "false" -> false;
+              default -> throw new IllegalArgumentException("must be true or false");
+            });
+  }
+
+  /** A date and time in ISO format, e.g. 2022-01-03T00:00:00, as the API takes them */
+  static ImportColumn dateTime(String field, String column) {
+    return new ImportColumn(field, column, false, text -> LocalDateTime.parse(text.trim()));
+  }
+
+  private static String parseText(String text) {
+    if (text.length() > MAX_TEXT_LENGTH) {
+      throw new IllegalArgumentException("longer than %d characters".formatted(MAX_TEXT_LENGTH));
+    }
+    return text;
+  }
+}
@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import org.springframework.http.MediaType;
+
+/** Formats that bulk imports can be uploaded in, by content type. */
+public enum ImportFormat {
+  CSV("text/csv"),
+  NDJSON("application/x-ndjson");
+
+  private final MediaType mediaType;
+
+  ImportFormat(String mediaType) {
+    this.mediaType = MediaType.parseMediaType(mediaType);
+  }
+
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  /**
+   * Returns the format of an upload.
+   *
+   * @param contentType the Content-Type of the upload, e.g. `text/csv; charset=UTF-8`
+   * @return the format
+   * @throws IllegalArgumentException if the content type is not one of the formats
+   */
+  public static ImportFormat fromContentType(String contentType) {
+    MediaType type = MediaType.parseMediaType(contentType);
+    for (ImportFormat format : values()) {
+      if (format.mediaType.equalsTypeAndSubtype(type)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Cannot import " + contentType);
+  }
+
+  /**
+   * Starts reading the rows of an upload in this format.
+   *
+   * @param in the upload
+   * @param mapper used to parse NDJSON
+   * @return the reader
+   * @throws IOException if the upload cannot be read
+   */
+  public ImportRowReader open(BufferedReader in, ObjectMapper mapper) throws IOException {
+    return this == CSV ? new CsvRowReader(in) : new NdjsonRowReader(in, mapper);
+  }
+}
@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import java.io.IOException;
+import java.util.Map;
+
+/** Reads the rows of an upload one at a time, so that the upload is never held in memory. */
+public interface ImportRowReader {
+  /**
+   * Reads the next row.
+   *
+   * @return the fields of the row by name, or null at the end of the upload
+   * @throws IllegalArgumentException if the row is malformed; the row is skipped, and the next call
+   *     reads the row after it
+   * @throws IOException if the upload cannot be read
+   */
+  Map<String, String> next() throws IOException;
+}
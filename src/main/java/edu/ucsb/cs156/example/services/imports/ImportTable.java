@@ -0,0 +1,160 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.bool;
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.dateTime;
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.email;
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.intValue;
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.longValue;
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.optionalDouble;
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.optionalText;
+import static edu.ucsb.cs156.example.services.imports.ImportColumn.text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The tables that can be filled by bulk imports, with the columns each import fills in. Fields are
+ * named as in the JSON form of the entity; ids are generated by the database, except for dining
+ * commons, whose code is their id.
+ *
+ * <p>Bulk exports write the same fields, preceded by the id where it is generated, so that an
+ * export can be imported again.
+ */
+public enum ImportTable {
+  ARTICLES(
+      "articles",
+      text("title", "title"),
+      text("url", "url"),
+      optionalText("explanation", "explanation"),
+      email("email", "email"),
+      dateTime("dateAdded", "date_added")),
+  DINING_COMMONS(
+      "ucsbdiningcommons",
+      false,
+      text("code", "code"),
+      text("name", "name"),
+      bool("hasSackMeal", "has_sack_meal"),
+      bool("hasTakeOutMeal", "has_take_out_meal"),
+      bool("hasDiningCam", "has_dining_cam"),
+      optionalDouble("latitude", "latitude"),
+      optionalDouble("longitude", "longitude")),
+  DINING_COMMONS_MENU_ITEMS(
+      "ucsbdiningcommonsmenuitems",
+      text("diningCommonsCode", "dining_commons_code"),
+      text("name", "name"),
+      text("station", "station")),
+  DATES(
+      "ucsbdates",
+      text("quarterYYYYQ", "quarteryyyyq"),
+      text("name", "name"),
+      dateTime("localDateTime", "local_date_time")),
+  HELP_REQUESTS(
+      "helprequests",
+      email("requesterEmail", "requester_email"),
+      text("teamId", "team_id"),
+      text("tableOrBreakoutRoom", "table_or_breakout_room"),
+      dateTime("requestTime", "request_time"),
+      optionalText("explanation", "explanation"),
+      bool("solved", "solved")),
+  MENU_ITEM_REVIEWS(
+      "menuitemreviews",
+      longValue("itemId", "item_id"),
+      email("reviewerEmail", "reviewer_email"),
+      intValue("stars", "stars", 0, 5),
+      dateTime("dateReviewed", "date_reviewed"),
+      optionalText("comments", "comments")),
+  ORGANIZATIONS(
+      "ucsborganization",
+      text("orgCode", "org_code"),
+      text("orgTranslationShort", "org_translation_short"),
+      text("orgTranslation", "org_translation"),
+      bool("inactive", "inactive")),
+  RECOMMENDATION_REQUESTS(
+      "recommendationrequest",
+      email("requesterEmail", "requester_email"),
+      email("professorEmail", "professor_email"),
+      optionalText("explanation", "explanation"),
+      dateTime("dateRequested", "date_requested"),
+      dateTime("dateNeeded", "date_needed"),
+      bool("done", "done")),
+  RESTAURANTS("restaurants", text("name", "name"), optionalText("description", "description"));
+
+  private final String tableName;
+  private final List<ImportColumn> columns;
+  private final String insertSql;
+  private final List<String> exportFields;
+  private final String selectSql;
+
+  ImportTable(String tableName, ImportColumn... columns) {
+    this(tableName, true, columns);
+  }
+
+  ImportTable(String tableName, boolean generatedId, ImportColumn... columns) {
+    this.tableName = tableName;
+    this.columns = List.of(columns);
+    this.insertSql =
+        "INSERT INTO %s (%s) VALUES (%s)"
+            .formatted(
+                tableName,
+                this.columns.stream().map(ImportColumn::column).collect(Collectors.joining(", ")),
+                String.join(", ", Collections.nCopies(columns.length, "?")));
+
+    List<String> fields = new ArrayList<>();
+    List<String> selected = new ArrayList<>();
+    if (generatedId) {
+      fields.add("id");
+      selected.add("id");
+    }
+    for (ImportColumn column : columns) {
+      fields.add(column.field());
+      selected.add(column.column());
+    }
+    this.exportFields = List.copyOf(fields);
+    this.selectSql =
+        "SELECT %s FROM %s ORDER BY %s"
+            .formatted(String.join(", ", selected), tableName, selected.get(0));
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public List<ImportColumn> getColumns() {
+    return columns;
+  }
+
+  /** INSERT statement for one row, with a parameter for each column in order */
+  public String getInsertSql() {
+    return insertSql;
+  }
+
+  /** Names of the fields that exports write, in order: the id, if generated, then the columns */
+  public List<String> getExportFields() {
+    return exportFields;
+  }
+
+  /** SELECT statement for exports, with a column for each of `getExportFields`, in key order */
+  public String getSelectSql() {
+    return selectSql;
+  }
+
+  /**
+   * Validates a row of an upload and converts it into the parameters of `getInsertSql`. Fields that
+   * are not columns are ignored.
+   *
+   * @param row the fields of the row by name
+   * @return the values to insert
+   * @throws IllegalArgumentException if a field is missing or not valid
+   */
+  public Object[] toValues(Map<String, String> row) {
+    Object[] values = new Object[columns.size()];
+    for (int i = 0; i < values.length; i++) {
+      ImportColumn column = columns.get(i);
+      values[i] = column.parse(row.get(column.field()));
+    }
+    return values;
+  }
+}
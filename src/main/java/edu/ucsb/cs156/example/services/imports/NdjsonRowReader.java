@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads NDJSON (one JSON object per line) one line at a time. Fields that are null are left out of
+ * the row; other values are turned into text. Blank lines are skipped.
+ */
+public class NdjsonRowReader implements ImportRowReader {
+  private final BufferedReader in;
+  private final ObjectMapper mapper;
+
+  public NdjsonRowReader(BufferedReader in, ObjectMapper mapper) {
+    this.in = in;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public Map<String, String> next() throws IOException {
+    String line;
+    do {
+      line = in.readLine();
+      if (line == null) {
+        return null;
+      }
+    } while (line.isBlank());
+
+    JsonNode object;
+    try {
+      object = mapper.readTree(line);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("not valid JSON: " + e.getOriginalMessage());
+    }
+    if (!object.isObject()) {
+      throw new IllegalArgumentException("not a JSON object");
+    }
+    Map<String, String> row = new LinkedHashMap<>();
+    object
+        .fields()
+        .forEachRemaining(
+            field -> {
+              JsonNode value = field.getValue();
+              if (!value.isNull()) {
+                row.put(field.getKey(), value.isValueNode() ? value.asText() : value.toString());
+              }
+            });
+    return row;
+  }
+}
@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * This is a service that lets clients wait for jobs to finish with a single long-polling request,
+ * rather than polling in a loop.
+ *
+ * <p>Each waiting request is held as a `DeferredResult`, so it does not tie up a servlet thread. It
+ * is completed with the job as soon as a job running on this node finishes; jobs running on other
+ * nodes are checked for by polling, with one query for all waiting jobs. A request that times out
+ * is completed with the job as it is then, still queued or running.
+ */
+@Service
+public class JobAwaitService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Value("${app.jobs.await.max-timeout-ms:60000}")
+  private long maxTimeoutMs;
+
+  private final Map<Long, Set<DeferredResult<Job>>> waiting = new ConcurrentHashMap<>();
+
+  /**
+   * Waits for a job to finish.
+   *
+   * @param jobId id of the job
+   * @param timeoutMs how long to wait; at least 1 ms and at most app.jobs.await.max-timeout-ms (a
+   *     timeout of 0 would mean waiting forever)
+   * @return the job, once it has finished or the wait has timed out
+   * @throws EntityNotFoundException if there is no such job
+   */
+  public DeferredResult<Job> await(long jobId, long timeoutMs) {
+    DeferredResult<Job> result =
+        new DeferredResult<>(Math.max(1, Math.min(timeoutMs, maxTimeoutMs)));
+    waiting.computeIfAbsent(jobId, id -> ConcurrentHashMap.newKeySet()).add(result);
+    result.onCompletion(() -> remove(jobId, result));
+    result.onTimeout(
+        () -> {
+          remove(jobId, result);
+          complete(result, jobId, jobsRepository.findById(jobId));
+        });
+
+    // checked after registering, so that a job finishing in between is not missed
+    Optional<Job> job = jobsRepository.findById(jobId);
+    if (job.isEmpty()) {
+      remove(jobId, result);
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+    if (JobService.isFinished(job.get().getStatus())) {
+      remove(jobId, result);
+      result.setResult(job.get());
+    }
+    return result;
+  }
+
+  /**
+   * Completes the requests waiting for a job that has just finished on this node.
+   *
+   * @param job the job
+   */
+  public void jobFinished(Job job) {
+    Set<DeferredResult<Job>> results = waiting.remove(job.getId());
+    if (results != null) {
+      results.forEach(result -> result.setResult(job));
+    }
+  }
+
+  /** Completes the requests waiting for jobs that have finished on other nodes. */
+  @Scheduled(fixedDelayString = "${app.jobs.await.poll-interval-ms:1000}")
+  public void pollWaiting() {
+    if (waiting.isEmpty()) {
+      return;
+    }
+    List<Job> finished =
+        jobsRepository.findByIdInAndStatusIn(
+            List.copyOf(waiting.keySet()), JobService.FINISHED_STATUSES);
+    finished.forEach(this::jobFinished);
+  }
+
+  private void complete(DeferredResult<Job> result, long jobId, Optional<Job> job) {
+    if (job.isPresent()) {
+      result.setResult(job.get());
+    } else {
+      result.setErrorResult(new EntityNotFoundException(Job.class, jobId));
+    }
+  }
+
+  private void remove(long jobId, DeferredResult<Job> result) {
+    waiting.computeIfPresent(
+        jobId,
+        (id, results) -> {
+          results.remove(result);
+          return results.isEmpty() ? null : results;
+        });
+  }
+}
@@ -1,20 +1,144 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
+  private JobLogWriter logWriter;
   private Job job;
 
+  /** Thread running the job, while it runs; interrupted when the job is cancelled */
+  private Thread thread;
+
+  /** Final status of a cancelled job ("cancelled" or "timed_out"); null unless cancelled */
+  private volatile String cancelStatus;
+
+  /** Result of the job, saved as JSON when it finishes; see `setResult` */
+  private Object result;
+
+  /** Key/value summary built by `putResult` and `addToResult`, if that is what the result is */
+  private Map<String, Object> summary;
+
+  public JobContext(JobLogWriter logWriter, Job job) {
+    this.logWriter = logWriter;
+    this.job = job;
+  }
+
+  /** Id of the job, e.g. to name the files it writes */
+  public long getJobId() {
+    return job.getId();
+  }
+
   public void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    logWriter.append(message);
+  }
+
+  /** Writes any buffered log lines right away, e.g. after an important message. */
+  public void flush() {
+    logWriter.flush();
+  }
+
+  /**
+   * Sets the result of the job, which is saved as JSON when the job finishes (whatever its status)
+   * and served separately from its log. Replaces any result set earlier.
+   *
+   * @param result anything Jackson can serialize, e.g. a record or a map
+   */
+  public synchronized void setResult(Object result) {
+    this.result = result;
+    this.summary = null;
+  }
+
+  /**
+   * Sets one entry of a key/value summary that becomes the result of the job. Replaces any result
+   * set with `setResult`.
+   *
+   * @param key name of the entry
+   * @param value value of the entry
+   */
+  public synchronized void putResult(String key, Object value) {
+    summary().put(key, value);
+  }
+
+  /**
+   * Adds to a counter in the key/value summary that becomes the result of the job, starting it at 0
+   * if needed. Replaces any result set with `setResult`.
+   *
+   * @param key name of the counter
+   * @param delta amount to add
+   */
+  public synchronized void addToResult(String key, long delta) {
+    summary().merge(key, delta, (count, d) -> ((Number) count).longValue() + (long) d);
+  }
+
+  private Map<String, Object> summary() {
+    if (summary == null) {
+      summary = new LinkedHashMap<>();
+      result = summary;
+    }
+    return summary;
+  }
+
+  synchronized Object getResult() {
+    return result;
+  }
+
+  /**
+   * Whether the job has been cancelled or has run out of time. Long running jobs should check this
+   * (or call `checkCancelled`) regularly, and stop as soon as they can.
+   *
+   * @return true if the job should stop
+   */
+  public boolean isCancelled() {
+    return cancelStatus != null;
+  }
+
+  /**
+   * Stops the job, by throwing an exception, if it has been cancelled or has run out of time.
+   *
+   * @throws JobCancelledException if the job should stop
+   */
+  public void checkCancelled() {
+    if (isCancelled()) {
+      throw new JobCancelledException(job.getId());
+    }
+  }
+
+  String getCancelStatus() {
+    return cancelStatus;
+  }
+
+  /** Marks the current thread as the one running the job, so that cancel can interrupt it. */
+  synchronized void start() {
+    thread = Thread.currentThread();
+  }
+
+  /**
+   * Marks the job as no longer running. Clears any interrupt left by cancel, so that the thread can
+   * go on to save the job and run other jobs.
+   */
+  synchronized void finish() {
+    thread = null;
+    Thread.interrupted();
+  }
+
+  /**
+   * Asks the job to stop, and interrupts it if it is running. Only the first call has any effect on
+   * the final status.
+   *
+   * @param status "cancelled" or "timed_out"
+   */
+  synchronized void cancel(String status) {
+    if (cancelStatus == null) {
+      cancelStatus = status;
+    }
+    if (thread != null) {
+      thread.interrupt();
+    }
   }
 }
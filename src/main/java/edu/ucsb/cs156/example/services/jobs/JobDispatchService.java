@@ -0,0 +1,238 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that decides when jobs run on this node, so that urgent jobs can jump ahead of
+ * bulk work and one user cannot take up every thread.
+ *
+ * <p>A job starts right away if the job executor has a free thread and its user has fewer than
+ * app.jobs.dispatch.max-running-per-user jobs running. Otherwise it waits with status "queued".
+ * Waiting jobs start in order of their dispatch time: the time they were queued, moved earlier by
+ * app.jobs.dispatch.aging-interval-ms for each point of priority. A low priority job therefore
+ * still runs once it has waited long enough, instead of being starved by higher priority jobs.
+ *
+ * <p>Jobs on the database-backed queue are ordered and limited in the same way when they are
+ * claimed (see `JobQueueService`), and then start through this service, so that both kinds of job
+ * share the same threads and the same count of jobs running per user.
+ *
+ * <p>Since jobs only reach the job executor once a thread is free for them, its `executor.queued`
+ * metric stays at 0; the number of jobs waiting here is published as `jobs.dispatch.waiting`.
+ */
+@Slf4j
+@Service
+public class JobDispatchService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired
+  @Qualifier("jobExecutor")
+  private ThreadPoolTaskExecutor jobExecutor;
+
+  @Lazy @Autowired private JobService jobService;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Value("${app.jobs.dispatch.max-running-per-user:0}")
+  private int maxRunningPerUser;
+
+  @Value("${app.jobs.dispatch.aging-interval-ms:60000}")
+  private long agingIntervalMs;
+
+  @Value("${app.jobs.executor.queue-capacity:100}")
+  private int maxWaiting;
+
+  private record WaitingJob(Job job, JobContextConsumer jobFunction, long sequence) {}
+
+  private final TreeSet<WaitingJob> waiting =
+      new TreeSet<>(
+          Comparator.comparing((WaitingJob w) -> w.job().getDispatchAt())
+              .thenComparingLong(WaitingJob::sequence));
+
+  private long nextSequence;
+
+  /**
+   * User (null for none) of each job this service has started that is still running, including jobs
+   * claimed from the database-backed queue
+   */
+  private final Map<Long, Long> running = new HashMap<>();
+
+  private final Map<Long, Integer> runningPerUser = new HashMap<>();
+
+  @PostConstruct
+  void registerMetrics() {
+    Gauge.builder("jobs.dispatch.waiting", this, JobDispatchService::getWaitingCount)
+        .description("Jobs waiting on this node for a free thread")
+        .register(meterRegistry);
+  }
+
+  public int getMaxRunningPerUser() {
+    return maxRunningPerUser;
+  }
+
+  /**
+   * Number of jobs waiting on this node to start.
+   *
+   * @return number of waiting jobs
+   */
+  public synchronized int getWaitingCount() {
+    return waiting.size();
+  }
+
+  /**
+   * Number of threads of the job executor not taken by a job this node is running.
+   *
+   * @return number of jobs that could start now
+   */
+  public synchronized int getFreeThreads() {
+    return Math.max(0, jobExecutor.getCorePoolSize() - running.size());
+  }
+
+  /**
+   * Sets the dispatch time of a job that has just been queued, from its queue time and priority.
+   *
+   * @param job the job
+   */
+  public void setDispatchAt(Job job) {
+    job.setDispatchAt(
+        job.getQueuedAt().minus((long) job.getPriority() * agingIntervalMs, ChronoUnit.MILLIS));
+  }
+
+  /**
+   * Starts a job if it can run now, and otherwise saves it as "queued" until it can.
+   *
+   * @param job the job, not yet saved
+   * @param jobFunction the work the job does
+   * @throws TaskRejectedException if too many jobs are already waiting
+   */
+  public synchronized void submit(Job job, JobContextConsumer jobFunction) {
+    setDispatchAt(job);
+    if (canStart(job)) {
+      start(job, jobFunction);
+      return;
+    }
+    if (waiting.size() >= maxWaiting) {
+      throw new TaskRejectedException("%d jobs are already waiting".formatted(waiting.size()));
+    }
+    job.setStatus("queued");
+    jobsRepository.save(job);
+    waiting.add(new WaitingJob(job, jobFunction, nextSequence++));
+  }
+
+  /**
+   * Starts a job claimed from the database-backed queue, which is already saved as running.
+   *
+   * @param job the job
+   * @param jobFunction the work the job does
+   * @throws TaskRejectedException if no thread is free, or the job's user already has the maximum
+   *     number of jobs running on this node
+   */
+  public synchronized void startClaimed(Job job, JobContextConsumer jobFunction) {
+    if (!canStart(job)) {
+      throw new TaskRejectedException(
+          "Job %d cannot start on this node yet".formatted(job.getId()));
+    }
+    run(job, jobFunction);
+  }
+
+  /**
+   * Removes a job that is waiting to start, e.g. because it has been cancelled.
+   *
+   * @param jobId id of the job
+   * @return true if the job was waiting
+   */
+  public synchronized boolean remove(long jobId) {
+    return waiting.removeIf(w -> w.job().getId() == jobId);
+  }
+
+  /**
+   * Called when a job finishes, so that waiting jobs can take its place.
+   *
+   * @param job the job
+   */
+  public synchronized void jobFinished(Job job) {
+    if (running.containsKey(job.getId())) {
+      stopped(job.getId(), running.get(job.getId()));
+    }
+    dispatch();
+  }
+
+  /** Starts as many waiting jobs as there are free threads for, in order of dispatch time. */
+  public synchronized void dispatch() {
+    Iterator<WaitingJob> iterator = waiting.iterator();
+    while (iterator.hasNext() && running.size() < jobExecutor.getCorePoolSize()) {
+      WaitingJob next = iterator.next();
+      if (!canStart(next.job())) {
+        continue;
+      }
+      iterator.remove();
+      try {
+        start(next.job(), next.jobFunction());
+      } catch (TaskRejectedException e) {
+        log.warn("Job {} could not start yet: {}", next.job().getId(), e.getMessage());
+        next.job().setStatus("queued");
+        jobsRepository.save(next.job());
+        waiting.add(next);
+        return;
+      }
+    }
+  }
+
+  private boolean canStart(Job job) {
+    if (running.size() >= jobExecutor.getCorePoolSize()) {
+      return false;
+    }
+    Long userId = userId(job);
+    return maxRunningPerUser <= 0
+        || userId == null
+        || runningPerUser.getOrDefault(userId, 0) < maxRunningPerUser;
+  }
+
+  private void start(Job job, JobContextConsumer jobFunction) {
+    job.setStatus("running");
+    jobsRepository.save(job);
+    run(job, jobFunction);
+  }
+
+  private void run(Job job, JobContextConsumer jobFunction) {
+    Long userId = userId(job);
+    running.put(job.getId(), userId);
+    if (userId != null) {
+      runningPerUser.merge(userId, 1, Integer::sum);
+    }
+    try {
+      jobService.runJobAsync(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      stopped(job.getId(), userId);
+      throw e;
+    }
+  }
+
+  private void stopped(long jobId, Long userId) {
+    running.remove(jobId);
+    if (userId != null) {
+      runningPerUser.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+  }
+
+  private static Long userId(Job job) {
+    return job.getCreatedBy() != null ? job.getCreatedBy().getId() : null;
+  }
+}
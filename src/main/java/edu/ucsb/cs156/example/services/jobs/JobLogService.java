@@ -0,0 +1,300 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service that hands out log writers to running jobs.
+ *
+ * <p>When app.jobs.log.buffer.enabled is true, writers hold lines in memory and save them in
+ * batches; lines that have waited longer than app.jobs.log.buffer.flush-interval-ms are flushed
+ * periodically so that the log never lags far behind a quiet job.
+ *
+ * <p>It is also the one place logs are read from. When app.jobs.log.compress.enabled is true, the
+ * log of a finished job is archived: its lines are gzip-compressed into a single JobLogArchive and
+ * deleted, and readers decompress the archive transparently.
+ */
+@Slf4j
+@Service
+public class JobLogService {
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Value("${app.jobs.log.buffer.enabled:false}")
+  private boolean bufferEnabled;
+
+  @Value("${app.jobs.log.buffer.max-lines:100}")
+  private int maxBufferedLines;
+
+  @Value("${app.jobs.log.buffer.max-chars:65536}")
+  private int maxBufferedChars;
+
+  @Value("${app.jobs.log.buffer.flush-interval-ms:500}")
+  private long flushIntervalMs;
+
+  @Value("${app.jobs.log.compress.enabled:true}")
+  private boolean compressEnabled;
+
+  private final Set<JobLogWriter> openWriters = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Opens a writer for the log of a job. Every writer opened must be closed with {@link
+   * #closeWriter(JobLogWriter)} when the job finishes.
+   *
+   * @param jobId id of the job
+   * @return the writer
+   */
+  public JobLogWriter openWriter(long jobId) {
+    int firstLineNumber = countLines(jobId);
+    if (!bufferEnabled) {
+      return new JobLogWriter(
+          jobLogLinesRepository,
+          jobId,
+          firstLineNumber,
+          1,
+          Integer.MAX_VALUE,
+          jobLogStreamService::publish);
+    }
+    JobLogWriter writer =
+        new JobLogWriter(
+            jobLogLinesRepository,
+            jobId,
+            firstLineNumber,
+            maxBufferedLines,
+            maxBufferedChars,
+            jobLogStreamService::publish);
+    openWriters.add(writer);
+    return writer;
+  }
+
+  /**
+   * Appends a single line to the log of a job that is not running, e.g. to record why it never
+   * started.
+   *
+   * @param jobId id of the job
+   * @param line the text of the line
+   */
+  public void appendLine(long jobId, String line) {
+    JobLogWriter writer = openWriter(jobId);
+    writer.append(line);
+    closeWriter(writer);
+  }
+
+  /**
+   * Flushes any lines still buffered in the writer and stops flushing it periodically.
+   *
+   * @param writer a writer returned by {@link #openWriter(long)}
+   */
+  public void closeWriter(JobLogWriter writer) {
+    try {
+      writer.flush();
+    } finally {
+      openWriters.remove(writer);
+    }
+  }
+
+  /** Flushes the writers whose oldest buffered line has waited for the flush interval. */
+  @Scheduled(fixedDelayString = "${app.jobs.log.buffer.flush-interval-ms:500}")
+  public void flushStaleWriters() {
+    long now = System.currentTimeMillis();
+    for (JobLogWriter writer : openWriters) {
+      try {
+        writer.flushIfOlderThan(flushIntervalMs, now);
+      } catch (RuntimeException e) {
+        log.warn("Could not flush job log, will retry: {}", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Compresses the log of a finished job into a JobLogArchive and deletes its log lines. Does
+   * nothing if compression is disabled, the job has logged nothing, or its log is already archived.
+   *
+   * <p>Every line is archived as one line of text. A log with lines containing newlines, which
+   * writers no longer save, is left as it is, since archiving would renumber its lines.
+   *
+   * @param jobId id of the job
+   */
+  @Transactional
+  public void archive(long jobId) {
+    if (!compressEnabled || jobLogArchivesRepository.existsById(jobId)) {
+      return;
+    }
+    List<String> lines = jobLogLinesRepository.findContentByJobId(jobId);
+    if (lines.isEmpty()) {
+      return;
+    }
+    if (lines.stream().anyMatch(line -> line != null && line.contains("\n"))) {
+      log.warn("Not archiving the log of job {}: it has lines containing newlines", jobId);
+      return;
+    }
+    String text =
+        String.join("\n", lines.stream().map(line -> Objects.toString(line, "")).toList());
+    jobLogArchivesRepository.save(
+        JobLogArchive.builder().jobId(jobId).lineCount(lines.size()).content(gzip(text)).build());
+    jobLogLinesRepository.deleteByJobIdAndLineNumberLessThan(jobId, lines.size());
+    log.debug("Archived {} log lines of job {}", lines.size(), jobId);
+  }
+
+  /**
+   * Returns the number of lines in the log of a job, archived or not.
+   *
+   * @param jobId id of the job
+   * @return number of lines
+   */
+  public int countLines(long jobId) {
+    return jobLogArchivesRepository.findLineCountByJobId(jobId).orElse(0)
+        + jobLogLinesRepository.countByJobId(jobId);
+  }
+
+  /**
+   * Returns every line of the log of a job, in order.
+   *
+   * @param jobId id of the job
+   * @return the lines (empty if nothing has been logged)
+   */
+  public List<String> readAllLines(long jobId) {
+    List<String> lines = new ArrayList<>();
+    jobLogArchivesRepository
+        .findById(jobId)
+        .ifPresent(
+            archive -> lines.addAll(gunzipLines(archive.getContent(), 0, Integer.MAX_VALUE)));
+    lines.addAll(jobLogLinesRepository.findContentByJobId(jobId));
+    return lines;
+  }
+
+  /**
+   * Returns the lines of the log of a job starting at a given line, in order. Only the requested
+   * lines are read from the log lines; an archive is decompressed only as far as needed.
+   *
+   * @param jobId id of the job
+   * @param fromLine number of the first line to return
+   * @param limit maximum number of lines to return
+   * @return the lines
+   */
+  public List<JobLogLine> readLines(long jobId, int fromLine, int limit) {
+    int archivedLines = jobLogArchivesRepository.findLineCountByJobId(jobId).orElse(0);
+    List<JobLogLine> lines = readLines(jobId, fromLine, limit, archivedLines);
+    if (lines.size() < limit) {
+      // The log may have been archived after its line count was read, deleting the lines that were
+      // about to be read; if so, read them again from the archive. A log is only archived once.
+      int nowArchived = jobLogArchivesRepository.findLineCountByJobId(jobId).orElse(0);
+      if (nowArchived != archivedLines) {
+        return readLines(jobId, fromLine, limit, nowArchived);
+      }
+    }
+    return lines;
+  }
+
+  private List<JobLogLine> readLines(long jobId, int fromLine, int limit, int archivedLines) {
+    List<JobLogLine> lines = new ArrayList<>();
+    if (fromLine < archivedLines) {
+      jobLogArchivesRepository
+          .findById(jobId)
+          .ifPresent(
+              archive -> {
+                int lineNumber = fromLine;
+                for (String content : gunzipLines(archive.getContent(), fromLine, limit)) {
+                  lines.add(
+                      JobLogLine.builder()
+                          .jobId(jobId)
+                          .lineNumber(lineNumber++)
+                          .content(content)
+                          .build());
+                }
+              });
+    }
+    if (lines.size() < limit) {
+      lines.addAll(
+          jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+              jobId, Math.max(fromLine, archivedLines), Limit.of(limit - lines.size())));
+    }
+    return lines;
+  }
+
+  /**
+   * Returns the archived log of a job as gzip-compressed UTF-8 text, so that it can be sent to a
+   * client as is. Only available when every line of the log is in the archive.
+   *
+   * @param jobId id of the job
+   * @return the compressed log (empty if the log is not archived or has lines after the archive)
+   */
+  public Optional<byte[]> findCompressedLog(long jobId) {
+    return jobLogArchivesRepository
+        .findById(jobId)
+        .filter(archive -> jobLogLinesRepository.countByJobId(jobId) == 0)
+        .map(JobLogArchive::getContent);
+  }
+
+  static byte[] gzip(String text) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decompresses the lines [fromLine, fromLine + limit) of gzip-compressed text, stopping as soon
+   * as the last of them has been read.
+   */
+  static List<String> gunzipLines(byte[] content, int fromLine, int limit) {
+    List<String> lines = new ArrayList<>();
+    try (Reader in =
+        new BufferedReader(
+            new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(content)), StandardCharsets.UTF_8))) {
+      StringBuilder line = new StringBuilder();
+      int lineNumber = 0;
+      while (lines.size() < limit) {
+        int c = in.read();
+        if (c == -1 || c == '\n') {
+          if (lineNumber >= fromLine) {
+            lines.add(line.toString());
+          }
+          line.setLength(0);
+          lineNumber++;
+          if (c == -1) {
+            break;
+          }
+        } else if (lineNumber >= fromLine) {
+          line.append((char) c);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,246 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * This is a service that streams job logs to clients as Server-Sent Events.
+ *
+ * <p>Each event carries one log line, with the line number as its id, so a client that reconnects
+ * can resume after the last line it received. Lines written on this node are pushed as soon as they
+ * are saved; lines written by jobs running on other nodes are picked up by polling. When the job
+ * finishes, an "end" event carrying its status is sent and the stream is closed.
+ *
+ * <p>Lines pushed by a job, the end of the job, and lines found by polling are sent to each stream
+ * in order on the application task executor rather than on the job's own thread or the scheduler's,
+ * so that a slow client never holds up the job writing its log or other scheduled tasks.
+ */
+@Slf4j
+@Service
+public class JobLogStreamService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Lazy @Autowired private JobLogService jobLogService;
+
+  @Autowired
+  @Qualifier("applicationTaskExecutor")
+  private TaskExecutor streamExecutor;
+
+  @Value("${app.jobs.log.stream.timeout-ms:1800000}")
+  private long timeoutMs;
+
+  @Value("${app.jobs.log.stream.batch-size:1000}")
+  private int batchSize;
+
+  private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+  /**
+   * Opens a stream of the log of a job. Lines already logged, starting at fromLine, are sent right
+   * away.
+   *
+   * @param job the job
+   * @param fromLine number of the first line to send
+   * @return the stream
+   */
+  public SseEmitter subscribe(Job job, int fromLine) {
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    Subscription subscription = new Subscription(job.getId(), emitter, fromLine);
+    subscriptions
+        .computeIfAbsent(job.getId(), id -> ConcurrentHashMap.newKeySet())
+        .add(subscription);
+    emitter.onCompletion(() -> unsubscribe(subscription));
+    emitter.onTimeout(() -> unsubscribe(subscription));
+    emitter.onError(e -> unsubscribe(subscription));
+
+    refresh(subscription, job.getStatus());
+    return emitter;
+  }
+
+  /**
+   * Pushes lines that were just saved to the streams of their job.
+   *
+   * @param lines lines of a single job, in order
+   */
+  public void publish(List<JobLogLine> lines) {
+    Set<Subscription> jobSubscriptions = subscriptions.get(lines.get(0).getJobId());
+    if (jobSubscriptions != null) {
+      jobSubscriptions.forEach(
+          subscription -> subscription.enqueue(() -> subscription.deliver(lines)));
+    }
+  }
+
+  /**
+   * Sends any remaining lines to the streams of a job that has finished, then closes them.
+   *
+   * @param job the job
+   */
+  public void jobFinished(Job job) {
+    Set<Subscription> jobSubscriptions = subscriptions.get(job.getId());
+    if (jobSubscriptions != null) {
+      jobSubscriptions.forEach(
+          subscription -> subscription.enqueue(() -> refresh(subscription, job.getStatus())));
+    }
+  }
+
+  /**
+   * Catches up all streams from the database, for jobs running on other nodes. Only the statuses of
+   * the jobs are looked up here, in one query; the streams are caught up on the stream executor, so
+   * that a slow client does not hold up the other scheduled tasks. A stream that has not caught up
+   * since the last poll is skipped.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.stream.poll-interval-ms:1000}")
+  public void pollSubscriptions() {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    Map<Long, String> statuses = new HashMap<>();
+    jobsRepository
+        .findSummariesByIdIn(List.copyOf(subscriptions.keySet()))
+        .forEach(job -> statuses.put(job.getId(), job.getStatus()));
+    subscriptions.forEach(
+        (jobId, jobSubscriptions) -> {
+          String status = statuses.get(jobId);
+          jobSubscriptions.forEach(
+              subscription -> {
+                if (subscription.pollPending.compareAndSet(false, true)) {
+                  subscription.enqueue(
+                      () -> {
+                        subscription.pollPending.set(false);
+                        refresh(subscription, status);
+                      });
+                }
+              });
+        });
+  }
+
+  private void refresh(Subscription subscription, String status) {
+    subscription.catchUp();
+    if (status == null || JobService.isFinished(status)) {
+      subscription.finish(status);
+    }
+  }
+
+  private void unsubscribe(Subscription subscription) {
+    subscriptions.computeIfPresent(
+        subscription.jobId,
+        (jobId, jobSubscriptions) -> {
+          jobSubscriptions.remove(subscription);
+          return jobSubscriptions.isEmpty() ? null : jobSubscriptions;
+        });
+  }
+
+  private class Subscription {
+    private final long jobId;
+    private final SseEmitter emitter;
+    private int nextLineNumber;
+    private boolean closed;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean pollPending = new AtomicBoolean();
+
+    Subscription(long jobId, SseEmitter emitter, int nextLineNumber) {
+      this.jobId = jobId;
+      this.emitter = emitter;
+      this.nextLineNumber = nextLineNumber;
+    }
+
+    /** Runs a task on the stream executor, after the tasks enqueued before it */
+    void enqueue(Runnable task) {
+      pending.add(task);
+      drain();
+    }
+
+    private void drain() {
+      if (!draining.compareAndSet(false, true)) {
+        return;
+      }
+      streamExecutor.execute(
+          () -> {
+            Runnable task;
+            while ((task = pending.poll()) != null) {
+              try {
+                task.run();
+              } catch (RuntimeException e) {
+                log.warn("Job {} log stream could not be updated", jobId, e);
+              }
+            }
+            draining.set(false);
+            // a task enqueued just before the flag was cleared would otherwise wait for the next
+            // one
+            if (!pending.isEmpty()) {
+              drain();
+            }
+          });
+    }
+
+    /** Sends the lines that directly follow the last line sent; the rest is left for catchUp. */
+    synchronized void deliver(List<JobLogLine> lines) {
+      for (JobLogLine line : lines) {
+        if (line.getLineNumber() > nextLineNumber) {
+          return;
+        }
+        if (line.getLineNumber() == nextLineNumber) {
+          send(line);
+        }
+      }
+    }
+
+    synchronized void catchUp() {
+      List<JobLogLine> lines;
+      do {
+        lines = jobLogService.readLines(jobId, nextLineNumber, batchSize);
+        lines.forEach(this::send);
+      } while (!closed && lines.size() == batchSize);
+    }
+
+    synchronized void finish(String status) {
+      if (closed) {
+        return;
+      }
+      try {
+        emitter.send(SseEmitter.event().name("end").data(Objects.toString(status, "")));
+        emitter.complete();
+      } catch (IOException e) {
+        emitter.completeWithError(e);
+      }
+      closed = true;
+    }
+
+    private void send(JobLogLine line) {
+      if (closed) {
+        return;
+      }
+      try {
+        emitter.send(
+            SseEmitter.event()
+                .id(String.valueOf(line.getLineNumber()))
+                .data(Objects.toString(line.getContent(), "")));
+        nextLineNumber = line.getLineNumber() + 1;
+      } catch (IOException e) {
+        log.debug("Job {} log stream closed by client: {}", jobId, e.getMessage());
+        closed = true;
+        emitter.completeWithError(e);
+      }
+    }
+  }
+}
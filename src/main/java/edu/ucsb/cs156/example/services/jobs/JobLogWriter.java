@@ -0,0 +1,199 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only writer for the log of a single job.
+ *
+ * <p>Each line is inserted as its own row in the job_log_lines table, rather than rewriting the
+ * whole log on the job itself. Lines may be held in memory and written together in one call to the
+ * repository once a line or character threshold is reached, or when {@link #flush()} is called.
+ */
+public class JobLogWriter {
+  private final JobLogLinesRepository jobLogLinesRepository;
+  private final long jobId;
+  private final int maxBufferedLines;
+  private final int maxBufferedChars;
+  private final Consumer<List<JobLogLine>> onFlush;
+
+  private final List<JobLogLine> buffer = new ArrayList<>();
+  private int bufferedChars;
+  private long oldestBufferedAtMs;
+  private int nextLineNumber;
+  private long appendedLines;
+  private long appendedBytes;
+
+  /**
+   * Creates a writer that saves every line as soon as it is appended.
+   *
+   * @param jobLogLinesRepository repository the lines are saved to
+   * @param jobId id of the job whose log this is
+   */
+  public JobLogWriter(JobLogLinesRepository jobLogLinesRepository, long jobId) {
+    this(jobLogLinesRepository, jobId, 0, 1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a writer that buffers lines until one of the thresholds is reached.
+   *
+   * @param jobLogLinesRepository repository the lines are saved to
+   * @param jobId id of the job whose log this is
+   * @param firstLineNumber line number of the first line appended, i.e. the number of lines the job
+   *     has already logged
+   * @param maxBufferedLines flush once this many lines are buffered
+   * @param maxBufferedChars flush once the buffered lines hold this many characters
+   */
+  public JobLogWriter(
+      JobLogLinesRepository jobLogLinesRepository,
+      long jobId,
+      int firstLineNumber,
+      int maxBufferedLines,
+      int maxBufferedChars) {
+    this(
+        jobLogLinesRepository, jobId, firstLineNumber, maxBufferedLines, maxBufferedChars, l -> {});
+  }
+
+  /**
+   * Creates a writer that buffers lines until one of the thresholds is reached, and reports every
+   * batch of lines it saves.
+   *
+   * @param jobLogLinesRepository repository the lines are saved to
+   * @param jobId id of the job whose log this is
+   * @param firstLineNumber line number of the first line appended, i.e. the number of lines the job
+   *     has already logged
+   * @param maxBufferedLines flush once this many lines are buffered
+   * @param maxBufferedChars flush once the buffered lines hold this many characters
+   * @param onFlush called with the lines saved by each flush, once the writer is unlocked again;
+   *     batches saved by concurrent flushes may be reported out of order
+   */
+  public JobLogWriter(
+      JobLogLinesRepository jobLogLinesRepository,
+      long jobId,
+      int firstLineNumber,
+      int maxBufferedLines,
+      int maxBufferedChars,
+      Consumer<List<JobLogLine>> onFlush) {
+    this.jobLogLinesRepository = jobLogLinesRepository;
+    this.jobId = jobId;
+    this.nextLineNumber = firstLineNumber;
+    this.maxBufferedLines = maxBufferedLines;
+    this.maxBufferedChars = maxBufferedChars;
+    this.onFlush = onFlush;
+  }
+
+  /**
+   * Appends a line to the log of the job. Text containing newlines is appended as one line per
+   * newline, so that every line keeps its number once the log is archived as text.
+   *
+   * @param line the text of the line
+   */
+  public void append(String line) {
+    boolean full;
+    synchronized (this) {
+      if (buffer.isEmpty()) {
+        oldestBufferedAtMs = System.currentTimeMillis();
+      }
+      for (String part : line == null ? new String[] {null} : line.split("\n", -1)) {
+        buffer.add(
+            JobLogLine.builder().jobId(jobId).lineNumber(nextLineNumber++).content(part).build());
+        bufferedChars += part == null ? 0 : part.length();
+        appendedLines++;
+        appendedBytes += utf8Length(part);
+      }
+      full = buffer.size() >= maxBufferedLines || bufferedChars >= maxBufferedChars;
+    }
+
+    if (full) {
+      flush();
+    }
+  }
+
+  /**
+   * Number of lines appended through this writer, whether or not they have been saved yet.
+   *
+   * @return number of lines
+   */
+  public synchronized long getAppendedLines() {
+    return appendedLines;
+  }
+
+  /**
+   * Size in bytes (as UTF-8) of the lines appended through this writer.
+   *
+   * @return number of bytes
+   */
+  public synchronized long getAppendedBytes() {
+    return appendedBytes;
+  }
+
+  /** Counts the UTF-8 bytes of a string without encoding it. */
+  static int utf8Length(String s) {
+    if (s == null) {
+      return 0;
+    }
+    int bytes = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        bytes += 1;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < s.length()
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        bytes += 1; // an unpaired surrogate is encoded as '?'
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Saves all buffered lines in a single call to the repository. If saving fails, the lines stay
+   * buffered so that a later flush can retry them.
+   *
+   * <p>The saved lines are reported to onFlush only after the writer is unlocked, so that whatever
+   * it does never holds up lines being appended.
+   */
+  public void flush() {
+    List<JobLogLine> lines = save();
+    if (!lines.isEmpty()) {
+      onFlush.accept(lines);
+    }
+  }
+
+  private synchronized List<JobLogLine> save() {
+    if (buffer.isEmpty()) {
+      return List.of();
+    }
+    List<JobLogLine> lines = new ArrayList<>(buffer);
+    jobLogLinesRepository.saveAll(lines);
+    buffer.clear();
+    bufferedChars = 0;
+    return lines;
+  }
+
+  /**
+   * Flushes the buffer if its oldest line has been waiting for at least the given time.
+   *
+   * @param maxAgeMs how long a line may wait in the buffer
+   * @param nowMs the current time, in milliseconds since the epoch
+   */
+  public void flushIfOlderThan(long maxAgeMs, long nowMs) {
+    boolean stale;
+    synchronized (this) {
+      stale = !buffer.isEmpty() && nowMs - oldestBufferedAtMs >= maxAgeMs;
+    }
+    if (stale) {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Options for launching a job with `JobService.runAsJob`. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobOptions {
+  /** How long the job may run, in milliseconds, before it is stopped (no limit if null) */
+  private Long timeoutMs;
+
+  /** Jobs with a higher priority run sooner; the default is 0 */
+  private int priority;
+
+  /**
+   * Launches with the same key and job type return the same job while it is queued or running, or
+   * for a while after it finishes (no deduplication if null)
+   */
+  private String idempotencyKey;
+}
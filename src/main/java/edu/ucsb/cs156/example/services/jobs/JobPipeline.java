@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A job that is split into parts, each run as a child job in parallel with the others, and then
+ * joined. Launched with `JobPipelineService.runPipeline`.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobPipeline {
+  /** Work done by each child job */
+  private List<JobContextConsumer> parts;
+
+  /** Runs as the parent job once every child has finished (optional) */
+  private JobPipelineJoin join;
+
+  /**
+   * If true, the pipeline carries on (and runs its join) when some children fail; if false, the
+   * first failure cancels the other children and the pipeline ends with status "error"
+   */
+  private boolean tolerateFailures;
+}
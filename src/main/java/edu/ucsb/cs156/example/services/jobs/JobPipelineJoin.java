@@ -0,0 +1,10 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.List;
+
+/** Work done by a pipeline job once its child jobs have finished; see `JobPipeline`. */
+@FunctionalInterface
+public interface JobPipelineJoin {
+  void accept(JobContext c, List<Job> children) throws Exception;
+}
@@ -0,0 +1,312 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobTree;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs pipelines: a parent job whose parts run as child jobs in parallel on the job executor, and
+ * which finishes (or runs its join) once all of them have finished. The children run on the node
+ * that launched the pipeline, which keeps track of them in memory.
+ */
+@Slf4j
+@Service
+public class JobPipelineService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogService jobLogService;
+
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Autowired private JobAwaitService jobAwaitService;
+
+  @Autowired private JobQueueService jobQueueService;
+
+  @Autowired private JobDispatchService jobDispatchService;
+
+  @Autowired private CurrentUserService currentUserService;
+
+  @Lazy @Autowired private JobService jobService;
+
+  /** A pipeline launched on this node that is still waiting for some of its children */
+  private static class ActivePipeline {
+    private final Job parent;
+    private final JobPipeline pipeline;
+    private final List<Job> children = new ArrayList<>();
+
+    /** Children handed to the dispatcher so far; the rest have not started */
+    private int submitted;
+
+    /** Ids of the children that have finished */
+    private final Set<Long> finished = new HashSet<>();
+
+    private int failed;
+
+    /** Status the pipeline ends with ("error" or "cancelled") once it is stopped early */
+    private String stopStatus;
+
+    private ActivePipeline(Job parent, JobPipeline pipeline) {
+      this.parent = parent;
+      this.pipeline = pipeline;
+    }
+  }
+
+  private final Map<Long, ActivePipeline> pipelines = new ConcurrentHashMap<>();
+
+  /**
+   * Launches a pipeline: saves the parent job and one child job for each part, then starts the
+   * children.
+   *
+   * @param pipeline the parts of the pipeline, and how to join them
+   * @return the parent job
+   */
+  public Job runPipeline(JobPipeline pipeline) {
+    User user = currentUserService.getUser();
+    ZonedDateTime now = ZonedDateTime.now();
+    Job parent =
+        Job.builder().createdBy(user).status("running").queuedAt(now).startedAt(now).build();
+    jobQueueService.lease(parent);
+    jobsRepository.save(parent);
+
+    ActivePipeline active = new ActivePipeline(parent, pipeline);
+    for (int i = 0; i < pipeline.getParts().size(); i++) {
+      Job child =
+          Job.builder()
+              .createdBy(user)
+              .parentId(parent.getId())
+              .status("running")
+              .queuedAt(now)
+              .build();
+      jobQueueService.lease(child);
+      jobsRepository.save(child);
+      active.children.add(child);
+    }
+    pipelines.put(parent.getId(), active);
+    jobLogService.appendLine(
+        parent.getId(), "Pipeline started with %d parts".formatted(active.children.size()));
+
+    synchronized (active) {
+      if (active.children.isEmpty()) {
+        finishPipeline(active);
+      }
+    }
+    for (int i = 0; i < active.children.size(); i++) {
+      Job child = active.children.get(i);
+      synchronized (active) {
+        active.submitted++;
+        if (active.stopStatus != null) {
+          finishChild(child, "cancelled", "Job cancelled before it started");
+          continue;
+        }
+        try {
+          jobDispatchService.submit(child, pipeline.getParts().get(i));
+        } catch (TaskRejectedException e) {
+          log.warn("Job rejected: {}", e.getMessage());
+          finishChild(
+              child,
+              "rejected",
+              "Job rejected: too many jobs are already running or waiting to run");
+        }
+      }
+    }
+    return parent;
+  }
+
+  /**
+   * Marks a child that never ran as finished.
+   *
+   * @param child the child job
+   * @param status its final status
+   * @param message line to add to its log
+   */
+  private void finishChild(Job child, String status, String message) {
+    child.setStatus(status);
+    child.setFinishedAt(ZonedDateTime.now());
+    child.setLeaseOwner(null);
+    child.setLeaseExpiresAt(null);
+    jobsRepository.save(child);
+    jobLogService.appendLine(child.getId(), message);
+    jobLogStreamService.jobFinished(child);
+    jobAwaitService.jobFinished(child);
+    childFinished(child);
+  }
+
+  /**
+   * Records that a job has finished, if it is a child of a pipeline running on this node. Stops the
+   * pipeline if the child failed and failures are not tolerated, and finishes the pipeline once
+   * this was its last child.
+   *
+   * @param job the job that finished
+   */
+  public void childFinished(Job job) {
+    if (job.getParentId() == null) {
+      return;
+    }
+    ActivePipeline active = pipelines.get(job.getParentId());
+    if (active == null) {
+      return;
+    }
+
+    synchronized (active) {
+      int index = indexOf(active, job.getId());
+      if (index < 0 || !active.finished.add(job.getId())) {
+        return;
+      }
+      Job child = active.children.get(index);
+      child.setStatus(job.getStatus());
+      child.setFinishedAt(job.getFinishedAt());
+
+      if (!"complete".equals(job.getStatus())) {
+        active.failed++;
+      }
+      jobLogService.appendLine(
+          active.parent.getId(),
+          "Part %d of %d finished with status %s (%d of %d done)"
+              .formatted(
+                  index + 1,
+                  active.children.size(),
+                  job.getStatus(),
+                  active.finished.size(),
+                  active.children.size()));
+
+      if (!"complete".equals(job.getStatus()) && !active.pipeline.getTolerateFailures()) {
+        stop(active, "error");
+      }
+      if (active.finished.size() == active.children.size()) {
+        finishPipeline(active);
+      }
+    }
+  }
+
+  private static int indexOf(ActivePipeline active, long jobId) {
+    for (int i = 0; i < active.children.size(); i++) {
+      if (active.children.get(i).getId() == jobId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Cancels the children of a pipeline running on this node, if the job is one.
+   *
+   * @param jobId id of the job being cancelled
+   */
+  public void cancel(long jobId) {
+    ActivePipeline active = pipelines.get(jobId);
+    if (active == null) {
+      return;
+    }
+    synchronized (active) {
+      active.parent.setCancelRequested(true);
+      stop(active, "cancelled");
+    }
+  }
+
+  /**
+   * Stops a pipeline early, by cancelling its children that have started but not finished. Children
+   * that have not started yet are cancelled by `runPipeline` before they start.
+   */
+  private void stop(ActivePipeline active, String status) {
+    if (active.stopStatus != null) {
+      return;
+    }
+    active.stopStatus = status;
+    jobLogService.appendLine(
+        active.parent.getId(),
+        "error".equals(status)
+            ? "A part failed; cancelling the other parts"
+            : "Pipeline cancelled; cancelling its parts");
+    for (Job child : new ArrayList<>(active.children.subList(0, active.submitted))) {
+      if (!active.finished.contains(child.getId())) {
+        jobService.cancelJob(child.getId());
+      }
+    }
+  }
+
+  /** Ends a pipeline whose children have all finished, or runs its join. */
+  private void finishPipeline(ActivePipeline active) {
+    pipelines.remove(active.parent.getId());
+    Job parent = active.parent;
+    jobLogService.appendLine(
+        parent.getId(),
+        "All %d parts finished, %d failed".formatted(active.children.size(), active.failed));
+
+    JobPipelineJoin join = active.pipeline.getJoin();
+    if (active.stopStatus != null || join == null) {
+      parent.setStatus(active.stopStatus != null ? active.stopStatus : "complete");
+      parent.setFinishedAt(ZonedDateTime.now());
+      parent.setLeaseOwner(null);
+      parent.setLeaseExpiresAt(null);
+      jobsRepository.save(parent);
+      jobLogStreamService.jobFinished(parent);
+      jobAwaitService.jobFinished(parent);
+      return;
+    }
+
+    List<Job> children = List.copyOf(active.children);
+    try {
+      jobDispatchService.submit(parent, ctx -> join.accept(ctx, children));
+    } catch (TaskRejectedException e) {
+      log.warn("Job rejected: {}", e.getMessage());
+      parent.setStatus("rejected");
+      parent.setFinishedAt(ZonedDateTime.now());
+      parent.setLeaseOwner(null);
+      parent.setLeaseExpiresAt(null);
+      jobsRepository.save(parent);
+      jobLogService.appendLine(
+          parent.getId(), "Job rejected: too many jobs are already running or waiting to run");
+      jobLogStreamService.jobFinished(parent);
+      jobAwaitService.jobFinished(parent);
+    }
+  }
+
+  /**
+   * Returns a job together with its children, and how many of them have finished.
+   *
+   * @param jobId id of the job
+   * @return the job and its children
+   */
+  public JobTree getJobTree(long jobId) {
+    JobSummary job =
+        jobsRepository
+            .findSummaryById(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+    List<JobSummary> children = jobsRepository.findSummariesByParentId(jobId);
+
+    int finished = 0;
+    int failed = 0;
+    for (JobSummary child : children) {
+      if (JobService.isFinished(child.getStatus())) {
+        finished++;
+        if (!"complete".equals(child.getStatus())) {
+          failed++;
+        }
+      }
+    }
+    return JobTree.builder()
+        .job(job)
+        .children(children)
+        .total(children.size())
+        .finished(finished)
+        .failed(failed)
+        .percentComplete(children.isEmpty() ? 100 : finished * 100 / children.size())
+        .build();
+  }
+}
@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service that runs jobs from a queue kept in the jobs table, so that jobs survive a
+ * restart of the node that launched them and can be spread across several nodes.
+ *
+ * <p>It is only active when app.jobs.queue.mode is "database". A job is queued by storing the JSON
+ * form of its JobContextConsumer on the job. Every node polls for queued jobs, claims them with
+ * SELECT ... FOR UPDATE SKIP LOCKED, and holds a lease on each job it runs that it keeps renewing
+ * until the job finishes. When a node stops renewing its leases, e.g. because it was restarted, its
+ * jobs are put back on the queue for another node to run from the start.
+ *
+ * <p>Jobs whose JobContextConsumer cannot be stored as JSON, such as lambdas, still run in memory
+ * on the node that launched them; they are marked as failed if their lease expires.
+ */
+@Slf4j
+@Service
+public class JobQueueService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogService jobLogService;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private JobDispatchService jobDispatchService;
+
+  @Lazy @Autowired private JobQueueService self;
+
+  @Value("${app.jobs.queue.mode:memory}")
+  private String mode;
+
+  @Value("${app.jobs.queue.lease-duration-ms:60000}")
+  private long leaseDurationMs;
+
+  /** Identifies this node as the owner of the leases it takes */
+  @Getter
+  private final String nodeId =
+      "%s-%s"
+          .formatted(
+              System.getenv().getOrDefault("HOSTNAME", "node"),
+              UUID.randomUUID().toString().substring(0, 8));
+
+  public boolean isEnabled() {
+    return "database".equals(mode);
+  }
+
+  /**
+   * Puts a new job on the queue, if the queue is enabled and the JobContextConsumer can be stored
+   * and run by any node.
+   *
+   * @param job the job, not yet saved
+   * @param jobFunction the work the job does
+   * @return whether the job was queued; if not, the caller must run it itself
+   */
+  public boolean enqueue(Job job, JobContextConsumer jobFunction) {
+    Class<?> type = jobFunction.getClass();
+    if (!isEnabled()
+        || jobFunction instanceof LocalJobContextConsumer
+        || type.isHidden()
+        || type.isSynthetic()
+        || type.isAnonymousClass()
+        || type.isLocalClass()) {
+      return false;
+    }
+
+    try {
+      job.setPayload(mapper.writeValueAsString(jobFunction));
+    } catch (JsonProcessingException e) {
+      log.warn("Cannot queue job of type {}, running it in memory: {}", type, e.getMessage());
+      return false;
+    }
+    job.setType(type.getName());
+    job.setStatus("queued");
+    job.setQueuedAt(ZonedDateTime.now());
+    jobDispatchService.setDispatchAt(job);
+    jobsRepository.save(job);
+    return true;
+  }
+
+  /**
+   * Takes out a lease for this node on a job it is about to run, if the queue is enabled.
+   *
+   * @param job the job
+   */
+  public void lease(Job job) {
+    if (isEnabled()) {
+      job.setLeaseOwner(nodeId);
+      job.setLeaseExpiresAt(ZonedDateTime.now().plus(leaseDurationMs, ChronoUnit.MILLIS));
+    }
+  }
+
+  /**
+   * Reclaims jobs with expired leases, then claims as many queued jobs as the job executor has free
+   * threads for and starts running them. Threads count as taken by jobs from the queue and by jobs
+   * started in memory alike (see `JobDispatchService`).
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.poll-interval-ms:1000}")
+  public void pollQueue() {
+    if (!isEnabled()) {
+      return;
+    }
+
+    ZonedDateTime now = ZonedDateTime.now();
+    int requeued = jobsRepository.requeueExpiredLeases(now);
+    int failed = jobsRepository.failExpiredLeases(now);
+    if (requeued + failed > 0) {
+      log.warn("Leases expired: {} jobs requeued, {} jobs failed", requeued, failed);
+    }
+
+    int freeThreads = jobDispatchService.getFreeThreads();
+    if (freeThreads <= 0) {
+      return;
+    }
+    for (Job job : self.claimQueuedJobs(freeThreads)) {
+      runClaimedJob(job);
+    }
+  }
+
+  /**
+   * Claims the queued jobs that are next in line for this node. Jobs locked by another node at the
+   * same time are skipped, as are jobs whose user already has the maximum number of jobs running.
+   *
+   * @param limit maximum number of jobs to claim
+   * @return the claimed jobs, now running and leased to this node
+   */
+  @Transactional
+  public List<Job> claimQueuedJobs(int limit) {
+    int maxRunningPerUser = jobDispatchService.getMaxRunningPerUser();
+    List<Job> jobs = jobsRepository.findQueuedForUpdate(limit, maxRunningPerUser);
+
+    List<Job> claimed = new ArrayList<>();
+    Map<Long, Integer> runningPerUser = new HashMap<>();
+    for (Job job : jobs) {
+      if (maxRunningPerUser > 0 && job.getCreatedBy() != null) {
+        long userId = job.getCreatedBy().getId();
+        int running =
+            runningPerUser.computeIfAbsent(userId, jobsRepository::countRunningByCreatedById);
+        if (running >= maxRunningPerUser) {
+          continue;
+        }
+        runningPerUser.put(userId, running + 1);
+      }
+      job.setStatus("running");
+      lease(job);
+      claimed.add(job);
+    }
+    jobsRepository.saveAll(claimed);
+    return claimed;
+  }
+
+  private void runClaimedJob(Job job) {
+    JobContextConsumer jobFunction;
+    try {
+      Class<? extends JobContextConsumer> type =
+          Class.forName(job.getType()).asSubclass(JobContextConsumer.class);
+      jobFunction = mapper.readValue(job.getPayload(), type);
+    } catch (ClassNotFoundException | ClassCastException | JsonProcessingException e) {
+      jobLogService.appendLine(job.getId(), "Job could not be loaded: " + e.getMessage());
+      job.setFinishedAt(ZonedDateTime.now());
+      releaseLease(job, "error");
+      return;
+    }
+
+    try {
+      jobDispatchService.startClaimed(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      releaseLease(job, "queued");
+    }
+  }
+
+  private void releaseLease(Job job, String status) {
+    job.setStatus(status);
+    job.setLeaseOwner(null);
+    job.setLeaseExpiresAt(null);
+    jobsRepository.save(job);
+  }
+
+  /** Extends the leases on all jobs this node is running. */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.lease-renew-interval-ms:20000}")
+  public void renewLeases() {
+    if (isEnabled()) {
+      jobsRepository.renewLeases(
+          nodeId, ZonedDateTime.now().plus(leaseDurationMs, ChronoUnit.MILLIS));
+    }
+  }
+}
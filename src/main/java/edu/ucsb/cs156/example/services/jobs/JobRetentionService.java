@@ -0,0 +1,102 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that keeps the jobs table from growing without bound, by deleting finished jobs
+ * that are older than app.jobs.retention.max-age, and finished jobs beyond the newest
+ * app.jobs.retention.max-count-per-status of each status. Queued and running jobs are never purged.
+ *
+ * <p>Jobs are deleted in batches of app.jobs.retention.batch-size, each a single DELETE ... WHERE
+ * id IN (...) statement in its own transaction; their log lines are deleted with them by the
+ * database.
+ */
+@Slf4j
+@Service
+public class JobRetentionService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Value("${app.jobs.retention.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.jobs.retention.max-age:30d}")
+  private Duration maxAge;
+
+  @Value("${app.jobs.retention.max-count-per-status:1000}")
+  private int maxCountPerStatus;
+
+  @Value("${app.jobs.retention.batch-size:1000}")
+  private int batchSize;
+
+  /** Purges old jobs, if retention is enabled. */
+  @Scheduled(
+      initialDelayString = "${app.jobs.retention.initial-delay-ms:60000}",
+      fixedDelayString = "${app.jobs.retention.interval-ms:3600000}")
+  public void scheduledPurge() {
+    if (enabled) {
+      purge();
+    }
+  }
+
+  /**
+   * Deletes the finished jobs that are too old, or beyond the number kept for their status.
+   *
+   * @return number of jobs deleted
+   */
+  public int purge() {
+    ZonedDateTime cutoff = ZonedDateTime.now().minus(maxAge);
+    int deleted =
+        deleteInBatches(
+            () ->
+                jobsRepository.findIdsOlderThan(
+                    JobService.FINISHED_STATUSES, cutoff, Limit.of(batchSize)));
+
+    for (String status : JobService.FINISHED_STATUSES) {
+      List<Long> newestPurged =
+          jobsRepository.findIdsByStatusNewestFirst(status, PageRequest.of(maxCountPerStatus, 1));
+      if (!newestPurged.isEmpty()) {
+        long maxId = newestPurged.get(0);
+        deleted +=
+            deleteInBatches(
+                () -> jobsRepository.findIdsByStatusUpTo(status, maxId, Limit.of(batchSize)));
+      }
+    }
+
+    if (deleted > 0) {
+      log.info("Purged {} old jobs", deleted);
+    }
+    return deleted;
+  }
+
+  /**
+   * Deletes every job, in batches.
+   *
+   * @return number of jobs deleted
+   */
+  public int deleteAllJobs() {
+    return deleteInBatches(() -> jobsRepository.findIds(Limit.of(batchSize)));
+  }
+
+  private int deleteInBatches(Supplier<List<Long>> nextBatch) {
+    int deleted = 0;
+    for (List<Long> ids = nextBatch.get(); !ids.isEmpty(); ids = nextBatch.get()) {
+      int batchDeleted = jobsRepository.deleteByIdIn(ids);
+      if (batchDeleted == 0) {
+        break;
+      }
+      deleted += batchDeleted;
+    }
+    return deleted;
+  }
+}
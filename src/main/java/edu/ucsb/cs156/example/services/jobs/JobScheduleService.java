@@ -0,0 +1,182 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobScheduleSummary;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the `ScheduledJob` beans on their cron schedules. Every node schedules every job, and each
+ * run is claimed through the `job_schedules` table so that only one node fires it. A run is skipped
+ * if the schedule is paused, or if the job launched by the previous run has not finished yet.
+ */
+@Slf4j
+@Service
+public class JobScheduleService {
+  @Autowired private JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private JobQueueService jobQueueService;
+
+  @Autowired private TaskScheduler taskScheduler;
+
+  @Autowired(required = false)
+  private List<ScheduledJob> scheduledJobs = new ArrayList<>();
+
+  /**
+   * Cron trigger that remembers the time it last scheduled a run for, so that the run knows which
+   * scheduled time it is claiming.
+   */
+  private static class ScheduleTrigger implements Trigger {
+    private final CronTrigger cronTrigger;
+    private volatile Instant scheduledTime;
+
+    private ScheduleTrigger(String cron) {
+      cronTrigger = new CronTrigger(cron);
+    }
+
+    @Override
+    public Instant nextExecution(TriggerContext triggerContext) {
+      scheduledTime = cronTrigger.nextExecution(triggerContext);
+      return scheduledTime;
+    }
+  }
+
+  /** Adds a row for each schedule that does not have one yet, then starts the schedules. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void startSchedules() {
+    for (ScheduledJob scheduledJob : scheduledJobs) {
+      addSchedule(scheduledJob.getName());
+      if (!CronExpression.isValidExpression(scheduledJob.getCron())) {
+        log.info("Schedule {} is turned off", scheduledJob.getName());
+        continue;
+      }
+      ScheduleTrigger trigger = new ScheduleTrigger(scheduledJob.getCron());
+      taskScheduler.schedule(() -> fire(scheduledJob, trigger.scheduledTime), trigger);
+      log.info("Schedule {} runs on cron {}", scheduledJob.getName(), scheduledJob.getCron());
+    }
+  }
+
+  private void addSchedule(String name) {
+    if (jobSchedulesRepository.existsById(name)) {
+      return;
+    }
+    try {
+      jobSchedulesRepository.save(JobSchedule.builder().name(name).build());
+    } catch (DataIntegrityViolationException e) {
+      // another node added it first
+    }
+  }
+
+  /**
+   * Launches the job for one scheduled run, unless another node has already claimed the run, the
+   * schedule is paused, or the previous run is still going.
+   *
+   * @param scheduledJob the schedule
+   * @param scheduledTime time the run was scheduled for
+   */
+  void fire(ScheduledJob scheduledJob, Instant scheduledTime) {
+    String name = scheduledJob.getName();
+    ZonedDateTime firedAt = ZonedDateTime.ofInstant(scheduledTime, ZoneId.systemDefault());
+    if (jobSchedulesRepository.claimRun(name, firedAt, jobQueueService.getNodeId()) == 0) {
+      log.debug("Run of schedule {} at {} is paused or was fired by another node", name, firedAt);
+      return;
+    }
+
+    Long lastJobId =
+        jobSchedulesRepository.findById(name).map(JobSchedule::getLastJobId).orElse(null);
+    if (lastJobId != null) {
+      Optional<String> lastStatus = jobsRepository.findStatusById(lastJobId);
+      if (lastStatus.isPresent() && !JobService.isFinished(lastStatus.get())) {
+        log.info(
+            "Skipping run of schedule {}: job {} from the last run is still {}",
+            name,
+            lastJobId,
+            lastStatus.get());
+        return;
+      }
+    }
+
+    try {
+      Job job = jobService.runAsJob(scheduledJob.getJob().get());
+      jobSchedulesRepository.updateLastJobId(name, job.getId());
+      log.info("Schedule {} launched job {}", name, job.getId());
+    } catch (RuntimeException e) {
+      log.error("Schedule {} failed to launch its job", name, e);
+    }
+  }
+
+  /**
+   * Lists the recurring jobs.
+   *
+   * @return the schedules, in the order they were declared
+   */
+  public List<JobScheduleSummary> getSchedules() {
+    List<JobScheduleSummary> summaries = new ArrayList<>();
+    for (ScheduledJob scheduledJob : scheduledJobs) {
+      summaries.add(summarize(scheduledJob));
+    }
+    return summaries;
+  }
+
+  /**
+   * Pauses or resumes a recurring job, on every node.
+   *
+   * @param name name of the schedule
+   * @param paused whether it should be paused
+   * @return the schedule
+   */
+  public JobScheduleSummary setPaused(String name, boolean paused) {
+    ScheduledJob scheduledJob =
+        scheduledJobs.stream()
+            .filter(s -> s.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new EntityNotFoundException(JobSchedule.class, name));
+    if (jobSchedulesRepository.updatePaused(name, paused) == 0) {
+      jobSchedulesRepository.save(JobSchedule.builder().name(name).paused(paused).build());
+    }
+    log.info("Schedule {} {}", name, paused ? "paused" : "resumed");
+    return summarize(scheduledJob);
+  }
+
+  private JobScheduleSummary summarize(ScheduledJob scheduledJob) {
+    JobSchedule schedule =
+        jobSchedulesRepository
+            .findById(scheduledJob.getName())
+            .orElse(JobSchedule.builder().name(scheduledJob.getName()).build());
+    ZonedDateTime nextRunAt =
+        CronExpression.isValidExpression(scheduledJob.getCron())
+            ? CronExpression.parse(scheduledJob.getCron()).next(ZonedDateTime.now())
+            : null;
+    return JobScheduleSummary.builder()
+        .name(scheduledJob.getName())
+        .cron(scheduledJob.getCron())
+        .paused(schedule.getPaused())
+        .lastFiredAt(schedule.getLastFiredAt())
+        .lastJobId(schedule.getLastJobId())
+        .nextRunAt(nextRunAt)
+        .build();
+  }
+}
@@ -1,53 +1,457 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobLogSlice;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class JobService {
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogService jobLogService;
+
+  @Autowired private JobQueueService jobQueueService;
+
+  @Autowired private JobDispatchService jobDispatchService;
+
+  @Autowired private JobPipelineService jobPipelineService;
+
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Autowired private JobAwaitService jobAwaitService;
+
   @Autowired private CurrentUserService currentUserService;
 
-  @Lazy @Autowired private JobService self;
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private ObjectMapper mapper;
+
+  /** How long after a job finishes its idempotency key keeps returning it */
+  @Value("${app.jobs.idempotency.window:24h}")
+  private Duration idempotencyWindow;
+
+  /** Most lines returned by one call to `getJobLogLines` or `getJobLogTail` */
+  public static final int MAX_LOG_LINES_PER_READ = 10000;
+
+  /** Statuses of jobs that have finished running, and will not run again */
+  public static final Set<String> FINISHED_STATUSES =
+      Set.of("complete", "error", "rejected", "cancelled", "timed_out");
+
+  /** A job running on this node, and the time (in epoch ms) by which it must finish */
+  private record RunningJob(JobContext context, long deadlineMs) {}
+
+  private final Map<Long, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+  /**
+   * Whether a job with this status has finished running, and will not run again.
+   *
+   * @param status status of a job
+   * @return true if the job has finished
+   */
+  public static boolean isFinished(String status) {
+    return FINISHED_STATUSES.contains(status);
+  }
 
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, JobOptions.builder().build());
+  }
 
-    jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+  /**
+   * Launches a job with the given options, e.g. a priority, or a time limit after which the job is
+   * stopped with status "timed_out".
+   *
+   * @param jobFunction the work the job does
+   * @param options options for the job
+   * @return the job
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, JobOptions options) {
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .status("running")
+            .timeoutMs(options.getTimeoutMs())
+            .priority(options.getPriority())
+            .queuedAt(ZonedDateTime.now())
+            .build();
+
+    String idempotencyKey = options.getIdempotencyKey();
+    if (idempotencyKey != null) {
+      String type = jobFunction.getClass().getName();
+      Optional<Job> duplicate = findDuplicate(type, idempotencyKey);
+      if (duplicate.isPresent()) {
+        return duplicate.get();
+      }
+      job.setType(type);
+      job.setIdempotencyKey(idempotencyKey);
+      try {
+        jobsRepository.save(job);
+      } catch (DataIntegrityViolationException e) {
+        // another launch with the same key saved its job first
+        return jobsRepository
+            .findByTypeAndIdempotencyKey(type, idempotencyKey)
+            .orElseThrow(() -> e);
+      }
+    }
+
+    if (jobQueueService.enqueue(job, jobFunction)) {
+      return job;
+    }
+
+    jobQueueService.lease(job);
+    try {
+      jobDispatchService.submit(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      log.warn("Job rejected: {}", e.getMessage());
+      // a rejected job never ran, so retrying the launch should try again
+      job.setIdempotencyKey(null);
+      job.setStatus("rejected");
+      job.setFinishedAt(ZonedDateTime.now());
+      job.setLeaseOwner(null);
+      job.setLeaseExpiresAt(null);
+      jobsRepository.save(job);
+      jobLogService.appendLine(
+          job.getId(), "Job rejected: too many jobs are already running or waiting to run");
+      jobLogStreamService.jobFinished(job);
+      jobAwaitService.jobFinished(job);
+      archiveLog(job.getId());
+    }
 
     return job;
   }
 
-  @Async
+  /**
+   * Finds the job launched earlier with an idempotency key, if it is still queued or running or
+   * finished within `app.jobs.idempotency.window`. A job that finished before that gives up its
+   * key, so that a new job can be launched with it.
+   */
+  private Optional<Job> findDuplicate(String type, String idempotencyKey) {
+    Optional<Job> existing = jobsRepository.findByTypeAndIdempotencyKey(type, idempotencyKey);
+    if (existing.isEmpty()) {
+      return existing;
+    }
+    ZonedDateTime finishedAt = existing.get().getFinishedAt();
+    if (finishedAt == null || finishedAt.isAfter(ZonedDateTime.now().minus(idempotencyWindow))) {
+      return existing;
+    }
+    jobsRepository.releaseIdempotencyKey(existing.get().getId());
+    return Optional.empty();
+  }
+
+  @Async("jobExecutor")
   public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+    JobLogWriter logWriter = jobLogService.openWriter(job.getId());
+    JobContext context = new JobContext(logWriter, job);
+    job.setStartedAt(ZonedDateTime.now());
+    long deadlineMs =
+        job.getTimeoutMs() != null
+            ? System.currentTimeMillis() + job.getTimeoutMs()
+            : Long.MAX_VALUE;
+    runningJobs.put(job.getId(), new RunningJob(context, deadlineMs));
+    if (job.getCancelRequested()) {
+      context.cancel("cancelled");
+    }
 
     try {
+      context.start();
+      context.checkCancelled();
       jobFunction.accept(context);
-    } catch (Exception e) {
+      job.setStatus("complete");
+    } catch (Throwable e) {
+      // Errors too, so that the job is still marked finished and frees its place for other jobs
       job.setStatus("error");
-      context.log(e.getMessage());
-      return;
+      if (!context.isCancelled()) {
+        context.log(e.getMessage());
+      }
+    } finally {
+      context.finish();
+      runningJobs.remove(job.getId());
+      if (context.isCancelled()) {
+        job.setStatus(context.getCancelStatus());
+        context.log(
+            "timed_out".equals(context.getCancelStatus())
+                ? "Job timed out after %d ms".formatted(job.getTimeoutMs())
+                : "Job cancelled");
+      }
+      jobLogService.closeWriter(logWriter);
     }
 
-    job.setStatus("complete");
+    job.setResult(resultJson(job, context));
+    job.setFinishedAt(ZonedDateTime.now());
+    job.setLeaseOwner(null);
+    job.setLeaseExpiresAt(null);
     jobsRepository.save(job);
+    jobLogStreamService.jobFinished(job);
+    jobAwaitService.jobFinished(job);
+    jobDispatchService.jobFinished(job);
+    jobPipelineService.childFinished(job);
+    archiveLog(job.getId());
+    recordMetrics(job, jobFunction, logWriter);
+  }
+
+  /**
+   * JSON form of the result a job set through its context. A result that cannot be serialized is
+   * dropped, so that the job still finishes with the status it earned.
+   */
+  private String resultJson(Job job, JobContext context) {
+    Object result = context.getResult();
+    if (result == null) {
+      return null;
+    }
+    try {
+      return mapper.writeValueAsString(result);
+    } catch (JsonProcessingException e) {
+      log.warn("Could not save result of job {}: {}", job.getId(), e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Compresses the log of a finished job. A failure only leaves the log uncompressed, so it is
+   * logged rather than thrown.
+   */
+  private void archiveLog(long jobId) {
+    try {
+      jobLogService.archive(jobId);
+    } catch (RuntimeException e) {
+      log.warn("Could not compress log of job {}: {}", jobId, e.getMessage());
+    }
   }
 
+  /**
+   * Records how long a finished job waited and ran, and how much it logged, tagged with the type of
+   * job and its final status:
+   *
+   * <ul>
+   *   <li>jobs.queue.wait: from launch (or from being queued) until the job started
+   *   <li>jobs.run: from start to finish
+   *   <li>jobs.log.lines and jobs.log.bytes: size of the log the job wrote
+   * </ul>
+   */
+  private void recordMetrics(Job job, JobContextConsumer jobFunction, JobLogWriter logWriter) {
+    Tags tags = Tags.of("type", jobType(jobFunction), "outcome", job.getStatus());
+
+    ZonedDateTime launchedAt = job.getQueuedAt() != null ? job.getQueuedAt() : job.getCreatedAt();
+    if (launchedAt != null) {
+      Timer.builder("jobs.queue.wait")
+          .description("Time jobs spent waiting to start")
+          .tags(tags)
+          .register(meterRegistry)
+          .record(Duration.between(launchedAt, job.getStartedAt()));
+    }
+    Timer.builder("jobs.run")
+        .description("Time jobs spent running")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(Duration.between(job.getStartedAt(), job.getFinishedAt()));
+    DistributionSummary.builder("jobs.log.lines")
+        .description("Log lines written per job")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(logWriter.getAppendedLines());
+    DistributionSummary.builder("jobs.log.bytes")
+        .description("Log bytes written per job")
+        .baseUnit("bytes")
+        .tags(tags)
+        .register(meterRegistry)
+        .record(logWriter.getAppendedBytes());
+  }
+
+  /**
+   * Name of the kind of job, for use in metrics. Lambdas and anonymous classes are grouped
+   * together, to keep the number of distinct tags small.
+   */
+  static String jobType(JobContextConsumer jobFunction) {
+    Class<?> type = jobFunction.getClass();
+    return type.isHidden() || type.isAnonymousClass() ? "anonymous" : type.getSimpleName();
+  }
+
+  /**
+   * Cancels a job. A queued job is cancelled right away. A running job is interrupted, and stops at
+   * its next blocking call or its next call to `JobContext.checkCancelled`; if it runs on another
+   * node, that node stops it the next time it checks its running jobs. Cancelling a pipeline
+   * cancels its children. Jobs that have already finished are left as they are.
+   *
+   * @param jobId id of the job
+   * @return the job
+   */
+  public Job cancelJob(long jobId) {
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+
+    ZonedDateTime now = ZonedDateTime.now();
+    jobDispatchService.remove(jobId);
+    if (jobsRepository.cancelQueued(jobId, now) > 0) {
+      jobLogService.appendLine(jobId, "Job cancelled before it started");
+      job.setStatus("cancelled");
+      job.setFinishedAt(now);
+      job.setCancelRequested(true);
+      jobLogStreamService.jobFinished(job);
+      jobAwaitService.jobFinished(job);
+      jobPipelineService.childFinished(job);
+      archiveLog(jobId);
+    } else if (jobsRepository.requestCancel(jobId) > 0) {
+      job.setCancelRequested(true);
+      RunningJob runningJob = runningJobs.get(jobId);
+      if (runningJob != null) {
+        runningJob.context().cancel("cancelled");
+      }
+      jobPipelineService.cancel(jobId);
+    }
+    return job;
+  }
+
+  /**
+   * Stops the jobs running on this node that have run out of time, or that were cancelled through
+   * another node.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.cancel.poll-interval-ms:1000}")
+  public void checkRunningJobs() {
+    if (runningJobs.isEmpty()) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    for (RunningJob runningJob : runningJobs.values()) {
+      if (runningJob.deadlineMs() <= now) {
+        runningJob.context().cancel("timed_out");
+      }
+    }
+
+    for (Long jobId : jobsRepository.findCancelRequestedIds(List.copyOf(runningJobs.keySet()))) {
+      RunningJob runningJob = runningJobs.get(jobId);
+      if (runningJob != null) {
+        runningJob.context().cancel("cancelled");
+      }
+    }
+  }
+
+  /**
+   * Returns the result of a job, as JSON, without loading its log.
+   *
+   * @param jobId id of the job
+   * @return the result (empty if the job has not set one, or has not finished yet)
+   * @throws EntityNotFoundException if the job does not exist
+   */
+  public Optional<String> getJobResult(long jobId) {
+    Optional<String> result = jobsRepository.findResultById(jobId);
+    if (result.isEmpty() && !jobsRepository.existsById(jobId)) {
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the full log of a job, assembled from its log lines.
+   *
+   * <p>Jobs that ran before log lines were stored separately keep their log on the job itself; for
+   * those, that log is returned instead. Compressed logs are decompressed.
+   *
+   * @param jobId id of the job
+   * @return the log of the job (empty if nothing has been logged)
+   */
   public String getJobLogs(Long jobId) {
     Job job =
         jobsRepository
             .findById(jobId)
             .orElseThrow(() -> new IllegalArgumentException("Job not found"));
 
+    List<String> lines = jobLogService.readAllLines(jobId);
+    if (!lines.isEmpty()) {
+      return String.join("\n", lines);
+    }
+
     String log = job.getLog();
     return log != null ? log : "";
   }
+
+  /**
+   * Returns the log of a job as gzip-compressed UTF-8 text, as it is stored, so that it can be sent
+   * to a client that accepts gzip without decompressing it.
+   *
+   * @param jobId id of the job
+   * @return the compressed log (empty if the log is not stored compressed; use `getJobLogs`)
+   */
+  public Optional<byte[]> getCompressedJobLogs(Long jobId) {
+    jobsRepository.findById(jobId).orElseThrow(() -> new IllegalArgumentException("Job not found"));
+    return jobLogService.findCompressedLog(jobId);
+  }
+
+  /**
+   * Returns part of the log of a job, reading only the requested lines from the database.
+   *
+   * @param jobId id of the job
+   * @param fromLine number of the first line to return, counting from 0
+   * @param limit maximum number of lines to return (at most `MAX_LOG_LINES_PER_READ`)
+   * @return the lines, along with the number of lines in the whole log
+   */
+  public JobLogSlice getJobLogLines(Long jobId, int fromLine, int limit) {
+    return readJobLogLines(jobId, totalLines -> fromLine, limit);
+  }
+
+  /**
+   * Returns the last lines of the log of a job, reading only those lines from the database.
+   *
+   * @param jobId id of the job
+   * @param lines maximum number of lines to return (at most `MAX_LOG_LINES_PER_READ`)
+   * @return the lines, along with the number of lines in the whole log
+   */
+  public JobLogSlice getJobLogTail(Long jobId, int lines) {
+    int tail = Math.min(Math.max(lines, 0), MAX_LOG_LINES_PER_READ);
+    return readJobLogLines(jobId, totalLines -> totalLines - tail, tail);
+  }
+
+  private JobLogSlice readJobLogLines(Long jobId, IntUnaryOperator firstLine, int limit) {
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+    int maxLines = Math.min(Math.max(limit, 0), MAX_LOG_LINES_PER_READ);
+
+    int totalLines = jobLogService.countLines(jobId);
+    if (totalLines == 0 && job.getLog() != null && !job.getLog().isEmpty()) {
+      List<String> legacyLines = Arrays.asList(job.getLog().split("\n", -1));
+      int fromLine = Math.max(firstLine.applyAsInt(legacyLines.size()), 0);
+      int toLine = Math.min(fromLine + maxLines, legacyLines.size());
+      List<String> lines = fromLine < toLine ? legacyLines.subList(fromLine, toLine) : List.of();
+      return new JobLogSlice(fromLine, legacyLines.size(), lines);
+    }
+
+    int fromLine = Math.max(firstLine.applyAsInt(totalLines), 0);
+    List<String> lines =
+        maxLines == 0 || fromLine >= totalLines
+            ? List.of()
+            : jobLogService.readLines(jobId, fromLine, maxLines).stream()
+                .map(line -> Objects.toString(line.getContent(), ""))
+                .toList();
+    return new JobLogSlice(fromLine, totalLines, lines);
+  }
 }
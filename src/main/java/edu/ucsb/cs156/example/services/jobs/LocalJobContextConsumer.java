@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * A JobContextConsumer that must run on the node that launched it, e.g. because it reads a file
+ * that only that node has. Such jobs are never put on the database-backed queue.
+ */
+public interface LocalJobContextConsumer extends JobContextConsumer {}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.function.Supplier;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A job that is launched on a schedule. Declare one as a bean and `JobScheduleService` runs it; see
+ * `JobSchedulesConfig`.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ScheduledJob {
+  /** Unique name of the schedule, e.g. "purge-old-users" */
+  private String name;
+
+  /** Spring cron expression (six fields, starting with seconds); "-" turns the schedule off */
+  private String cron;
+
+  /** Creates the work for each run */
+  private Supplier<JobContextConsumer> job;
+}
@@ -0,0 +1,161 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.config.ChangeTrackingSessionRepository.TrackedSession;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+
+public class ChangeTrackingSessionRepositoryTests {
+
+  @Mock private SessionRepository<MapSession> delegate;
+
+  private ChangeTrackingSessionRepository<MapSession> repository;
+
+  private final MapSession stored = new MapSession("abc");
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    repository = new ChangeTrackingSessionRepository<>(delegate, Duration.ofMinutes(1));
+    stored.setAttribute("user", "cgaucho");
+    stored.setLastAccessedTime(Instant.now().minusSeconds(600));
+    when(delegate.findById("abc")).thenReturn(stored);
+  }
+
+  @Test
+  public void new_session_is_always_saved() {
+    // arrange
+    when(delegate.createSession()).thenReturn(new MapSession("new"));
+    TrackedSession<MapSession> session = repository.createSession();
+
+    // act
+    repository.save(session);
+    repository.save(session);
+
+    // assert
+    verify(delegate, times(1)).save(new MapSession("new"));
+  }
+
+  @Test
+  public void unchanged_session_is_not_saved() {
+    // arrange
+    TrackedSession<MapSession> session = repository.findById("abc");
+    session.setLastAccessedTime(stored.getLastAccessedTime().plusSeconds(59));
+    session.setMaxInactiveInterval(stored.getMaxInactiveInterval());
+    session.removeAttribute("missing");
+
+    // act
+    repository.save(session);
+
+    // assert
+    verify(delegate, never()).save(stored);
+    assertEquals("cgaucho", session.getAttribute("user"));
+    assertEquals(Set.of("user"), session.getAttributeNames());
+    assertEquals("abc", session.getId());
+    assertEquals(stored.getCreationTime(), session.getCreationTime());
+    assertFalse(session.isExpired());
+  }
+
+  @Test
+  public void session_is_saved_once_after_setAttribute() {
+    // arrange
+    TrackedSession<MapSession> session = repository.findById("abc");
+    session.setAttribute("user", "ldelplaya");
+
+    // act
+    repository.save(session);
+    repository.save(session);
+
+    // assert
+    verify(delegate, times(1)).save(stored);
+    assertEquals("ldelplaya", stored.getAttribute("user"));
+  }
+
+  @Test
+  public void session_is_saved_after_removeAttribute() {
+    // arrange
+    TrackedSession<MapSession> session = repository.findById("abc");
+    session.removeAttribute("user");
+
+    // act
+    repository.save(session);
+
+    // assert
+    verify(delegate).save(stored);
+    assertNull(stored.getAttribute("user"));
+  }
+
+  @Test
+  public void session_is_saved_after_changeSessionId() {
+    // arrange
+    TrackedSession<MapSession> session = repository.findById("abc");
+
+    // act
+    String newId = session.changeSessionId();
+    repository.save(session);
+
+    // assert
+    verify(delegate).save(stored);
+    assertNotEquals("abc", newId);
+    assertEquals(newId, stored.getId());
+  }
+
+  @Test
+  public void session_is_saved_after_its_timeout_changes() {
+    // arrange
+    TrackedSession<MapSession> session = repository.findById("abc");
+
+    // act
+    session.setMaxInactiveInterval(Duration.ofHours(2));
+    repository.save(session);
+
+    // assert
+    verify(delegate).save(stored);
+    assertEquals(Duration.ofHours(2), session.getMaxInactiveInterval());
+  }
+
+  @Test
+  public void last_access_is_saved_once_the_touch_interval_has_passed() {
+    // arrange
+    TrackedSession<MapSession> session = repository.findById("abc");
+    Instant touched = stored.getLastAccessedTime().plusSeconds(60);
+
+    // act
+    session.setLastAccessedTime(touched);
+    repository.save(session);
+    session.setLastAccessedTime(touched.plusSeconds(30));
+    repository.save(session);
+
+    // assert
+    verify(delegate, times(1)).save(stored);
+    assertEquals(touched.plusSeconds(30), session.getLastAccessedTime());
+  }
+
+  @Test
+  public void missing_session_is_not_found_and_sessions_are_deleted_by_id() {
+    // act
+    TrackedSession<MapSession> session = repository.findById("gone");
+    repository.deleteById("abc");
+
+    // assert
+    assertNull(session);
+    verify(delegate).deleteById("abc");
+    assertTrue(repository.findById("abc").getAttributeNames().contains("user"));
+  }
+}
@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.services.SessionTokenService;
+import jakarta.servlet.http.Cookie;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+
+public class CookieOAuth2AuthorizationRequestRepositoryTests {
+
+  private final SessionTokenService sessionTokenService =
+      new SessionTokenService("a secret shared by every instance", true);
+
+  private final CookieOAuth2AuthorizationRequestRepository repository =
+      new CookieOAuth2AuthorizationRequestRepository(sessionTokenService);
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  private final OAuth2AuthorizationRequest authorizationRequest =
+      OAuth2AuthorizationRequest.authorizationCode()
+          .authorizationUri("https://accounts.google.com/o/oauth2/v2/auth")
+          .clientId("client")
+          .redirectUri("http://localhost:8080/login/oauth2/code/google")
+          .state("state-123")
+          .build();
+
+  private Cookie cookie(String value) {
+    return new Cookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME, value);
+  }
+
+  private static byte[] serialize(Object value) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void saved_request_loads_back_from_its_cookie() {
+    // act
+    repository.saveAuthorizationRequest(authorizationRequest, request, response);
+    request.setCookies(
+        new Cookie("other", "x"),
+        response.getCookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME));
+    OAuth2AuthorizationRequest loaded = repository.loadAuthorizationRequest(request);
+
+    // assert
+    assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=300"));
+    assertEquals("state-123", loaded.getState());
+    assertEquals("client", loaded.getClientId());
+    assertEquals(authorizationRequest.getRedirectUri(), loaded.getRedirectUri());
+  }
+
+  @Test
+  public void removing_the_request_returns_it_and_deletes_the_cookie() throws Exception {
+    // arrange
+    request.setCookies(cookie(sessionTokenService.sign(serialize(authorizationRequest))));
+
+    // act
+    OAuth2AuthorizationRequest removed = repository.removeAuthorizationRequest(request, response);
+
+    // assert
+    assertEquals("state-123", removed.getState());
+    assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=0"));
+  }
+
+  @Test
+  public void removing_a_missing_request_sets_nothing() {
+    // act
+    OAuth2AuthorizationRequest removed = repository.removeAuthorizationRequest(request, response);
+
+    // assert
+    assertNull(removed);
+    assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+  }
+
+  @Test
+  public void saving_no_request_deletes_the_cookie() {
+    // act
+    repository.saveAuthorizationRequest(null, request, response);
+
+    // assert
+    assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=0"));
+  }
+
+  @Test
+  public void request_is_not_loaded_without_its_cookie() {
+    // act & assert
+    assertNull(repository.loadAuthorizationRequest(request));
+    request.setCookies(new Cookie("other", "x"));
+    assertNull(repository.loadAuthorizationRequest(request));
+  }
+
+  @Test
+  public void tampered_cookie_is_not_deserialized() throws Exception {
+    // arrange
+    String value = sessionTokenService.sign(serialize(authorizationRequest));
+    request.setCookies(cookie(value.substring(0, value.length() - 2) + "AA"));
+
+    // act & assert
+    assertNull(repository.loadAuthorizationRequest(request));
+  }
+
+  @Test
+  public void cookie_signed_by_another_secret_is_not_deserialized() throws Exception {
+    // arrange
+    SessionTokenService other = new SessionTokenService("another secret", true);
+    request.setCookies(cookie(other.sign(serialize(authorizationRequest))));
+
+    // act & assert
+    assertNull(repository.loadAuthorizationRequest(request));
+  }
+
+  @Test
+  public void signed_cookie_holding_something_else_is_not_loaded() throws Exception {
+    // act & assert
+    request.setCookies(cookie(sessionTokenService.sign(serialize("not a request"))));
+    assertNull(repository.loadAuthorizationRequest(request));
+    request.setCookies(
+        cookie(sessionTokenService.sign("not serialized".getBytes(StandardCharsets.UTF_8))));
+    assertNull(repository.loadAuthorizationRequest(request));
+  }
+}
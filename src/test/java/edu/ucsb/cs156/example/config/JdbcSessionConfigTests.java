@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+
+public class JdbcSessionConfigTests {
+
+  @Mock private JdbcIndexedSessionRepository jdbcIndexedSessionRepository;
+
+  @InjectMocks private JdbcSessionConfig jdbcSessionConfig;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  public void sessions_last_for_the_configured_timeout() {
+    // act
+    JdbcSessionConfig.sessionTimeoutCustomizer(Duration.ofMinutes(45))
+        .customize(jdbcIndexedSessionRepository);
+
+    // assert
+    verify(jdbcIndexedSessionRepository).setDefaultMaxInactiveInterval(Duration.ofMinutes(45));
+  }
+
+  @Test
+  public void session_repository_tracks_changes() {
+    assertInstanceOf(
+        ChangeTrackingSessionRepository.class,
+        jdbcSessionConfig.changeTrackingSessionRepository(Duration.ofMinutes(1)));
+  }
+
+  @Test
+  public void cleanup_deletes_expired_sessions() {
+    // act
+    jdbcSessionConfig.cleanUpExpiredSessions();
+
+    // assert
+    verify(jdbcIndexedSessionRepository).cleanUpExpiredSessions();
+  }
+}
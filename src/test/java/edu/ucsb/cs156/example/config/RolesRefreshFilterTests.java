@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.services.RolesService;
+import jakarta.servlet.FilterChain;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+public class RolesRefreshFilterTests {
+
+  @Mock private RolesService rolesService;
+
+  @Mock private FilterChain filterChain;
+
+  private RolesRefreshFilter filter;
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  private final MockHttpSession session = new MockHttpSession();
+
+  private OAuth2AuthenticationToken token;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    filter = new RolesRefreshFilter(rolesService);
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(
+            AuthorityUtils.createAuthorityList("ROLE_USER"),
+            Map.of("sub", "123", "email", "user@ucsb.edu"),
+            "sub");
+    token =
+        new OAuth2AuthenticationToken(
+            principal, AuthorityUtils.createAuthorityList("ROLE_USER", "SCOPE_email"), "google");
+    token.setDetails("details");
+  }
+
+  @AfterEach
+  public void teardown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private void logIn(Authentication authentication) {
+    SecurityContextHolder.setContext(new SecurityContextImpl(authentication));
+  }
+
+  @Test
+  public void stale_roles_are_resolved_again_and_saved_in_the_session() throws Exception {
+    // arrange
+    logIn(token);
+    request.setSession(session);
+    when(rolesService.isStale("user@ucsb.edu", session.getCreationTime())).thenReturn(true);
+    when(rolesService.resolveRoles("user@ucsb.edu"))
+        .thenReturn(Set.<GrantedAuthority>of(RolesService.ROLE_USER, RolesService.ROLE_ADMIN));
+    long before = System.currentTimeMillis();
+
+    // act
+    filter.doFilter(request, response, filterChain);
+
+    // assert
+    Authentication refreshed = SecurityContextHolder.getContext().getAuthentication();
+    assertEquals(
+        Set.of("ROLE_USER", "ROLE_ADMIN", "SCOPE_email"),
+        AuthorityUtils.authorityListToSet(refreshed.getAuthorities()));
+    assertEquals("details", refreshed.getDetails());
+    assertSame(token.getPrincipal(), refreshed.getPrincipal());
+    SecurityContext saved =
+        (SecurityContext)
+            session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+    assertSame(refreshed, saved.getAuthentication());
+    assertTrue((Long) session.getAttribute(RolesRefreshFilter.RESOLVED_AT_ATTRIBUTE) >= before);
+    verify(filterChain).doFilter(request, response);
+  }
+
+  @Test
+  public void roles_are_checked_against_when_they_were_last_resolved() throws Exception {
+    // arrange
+    logIn(token);
+    request.setSession(session);
+    session.setAttribute(RolesRefreshFilter.RESOLVED_AT_ATTRIBUTE, 42L);
+
+    // act
+    filter.doFilter(request, response, filterChain);
+
+    // assert
+    verify(rolesService).isStale("user@ucsb.edu", 42L);
+    verify(rolesService, never()).resolveRoles(anyString());
+    assertSame(token, SecurityContextHolder.getContext().getAuthentication());
+    assertEquals(42L, session.getAttribute(RolesRefreshFilter.RESOLVED_AT_ATTRIBUTE));
+    verify(filterChain).doFilter(request, response);
+  }
+
+  @Test
+  public void requests_without_a_session_are_left_alone() throws Exception {
+    // arrange
+    logIn(token);
+
+    // act
+    filter.doFilter(request, response, filterChain);
+
+    // assert
+    verify(rolesService, never()).isStale(anyString(), anyLong());
+    assertNull(request.getSession(false));
+    verify(filterChain).doFilter(request, response);
+  }
+
+  @Test
+  public void requests_not_logged_in_with_oauth2_are_left_alone() throws Exception {
+    // arrange
+    logIn(new TestingAuthenticationToken("user", "password"));
+    request.setSession(session);
+
+    // act
+    filter.doFilter(request, response, filterChain);
+
+    // assert
+    verify(rolesService, never()).isStale(anyString(), anyLong());
+    verify(filterChain).doFilter(request, response);
+  }
+}
@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+public class SessionTokenRenewalFilterTests {
+
+  @Mock private SecurityContextRepository securityContextRepository;
+
+  @Mock private FilterChain filterChain;
+
+  private SessionTokenRenewalFilter filter;
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    filter = new SessionTokenRenewalFilter(securityContextRepository);
+  }
+
+  @AfterEach
+  public void teardown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private SecurityContext logIn() {
+    SecurityContext context =
+        new SecurityContextImpl(new TestingAuthenticationToken("user", "password"));
+    SecurityContextHolder.setContext(context);
+    return context;
+  }
+
+  @Test
+  public void token_marked_for_renewal_is_saved_again() throws Exception {
+    // arrange
+    SecurityContext context = logIn();
+    request.setAttribute(SessionTokenSecurityContextRepository.RENEW_ATTRIBUTE, Boolean.TRUE);
+
+    // act
+    filter.doFilter(request, response, filterChain);
+
+    // assert
+    verify(securityContextRepository).saveContext(context, request, response);
+    verify(filterChain).doFilter(request, response);
+  }
+
+  @Test
+  public void token_not_marked_for_renewal_is_left_alone() throws Exception {
+    // arrange
+    logIn();
+
+    // act
+    filter.doFilter(request, response, filterChain);
+
+    // assert
+    verify(securityContextRepository, never()).saveContext(any(), any(), any());
+    verify(filterChain).doFilter(request, response);
+  }
+
+  @Test
+  public void request_without_a_login_is_left_alone() throws Exception {
+    // arrange
+    request.setAttribute(SessionTokenSecurityContextRepository.RENEW_ATTRIBUTE, Boolean.TRUE);
+
+    // act
+    filter.doFilter(request, response, filterChain);
+
+    // assert
+    verify(securityContextRepository, never()).saveContext(any(), any(), any());
+    verify(filterChain).doFilter(request, response);
+  }
+}
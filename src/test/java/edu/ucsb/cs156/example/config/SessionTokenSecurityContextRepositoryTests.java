@@ -0,0 +1,252 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.RolesService;
+import edu.ucsb.cs156.example.services.SessionTokenService;
+import edu.ucsb.cs156.example.services.SessionTokenService.SessionToken;
+import jakarta.servlet.http.Cookie;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class SessionTokenSecurityContextRepositoryTests {
+
+  @Mock private RolesService rolesService;
+
+  @Mock private CurrentUserService currentUserService;
+
+  private final ObjectMapper mapper =
+      new ObjectMapper()
+          .findAndRegisterModules()
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  private final SessionTokenService sessionTokenService =
+      new SessionTokenService("a secret shared by every instance", true);
+
+  private SessionTokenSecurityContextRepository repository;
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  private final Map<String, Object> attributes = Map.of("sub", "123", "email", "user@ucsb.edu");
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(sessionTokenService, "mapper", mapper);
+    ReflectionTestUtils.setField(sessionTokenService, "ttl", Duration.ofMinutes(15));
+    repository =
+        new SessionTokenSecurityContextRepository(
+            sessionTokenService, rolesService, currentUserService);
+  }
+
+  /** Signs a token issued at the given time that lasts 15 minutes */
+  private String token(Map<String, Object> attributes, Instant issuedAt) throws Exception {
+    SessionToken token =
+        new SessionToken(
+            7L,
+            "google",
+            attributes,
+            List.of("ROLE_USER"),
+            issuedAt,
+            issuedAt.plus(Duration.ofMinutes(15)));
+    return sessionTokenService.sign(mapper.writeValueAsBytes(token));
+  }
+
+  @SuppressWarnings("deprecation")
+  private SecurityContext load() {
+    return repository.loadContext(new HttpRequestResponseHolder(request, response));
+  }
+
+  private Set<String> roles(SecurityContext context) {
+    return AuthorityUtils.authorityListToSet(context.getAuthentication().getAuthorities());
+  }
+
+  @Test
+  public void fresh_token_logs_the_user_in_with_its_roles() throws Exception {
+    // arrange
+    request.setCookies(
+        new Cookie("other", "x"),
+        new Cookie(
+            SessionTokenSecurityContextRepository.COOKIE_NAME, token(attributes, Instant.now())));
+
+    // act
+    SecurityContext context = load();
+
+    // assert
+    OAuth2AuthenticationToken authentication =
+        (OAuth2AuthenticationToken) context.getAuthentication();
+    assertEquals("123", authentication.getName());
+    assertEquals("google", authentication.getAuthorizedClientRegistrationId());
+    assertEquals("user@ucsb.edu", authentication.getPrincipal().getAttribute("email"));
+    assertEquals(Set.of("ROLE_USER"), roles(context));
+    assertNull(request.getAttribute(SessionTokenSecurityContextRepository.RENEW_ATTRIBUTE));
+    assertTrue(repository.containsContext(request));
+    verify(rolesService, never()).resolveRoles(anyString());
+  }
+
+  @Test
+  public void token_without_sub_is_named_by_email() throws Exception {
+    // arrange
+    request.setCookies(
+        new Cookie(
+            SessionTokenSecurityContextRepository.COOKIE_NAME,
+            token(Map.of("email", "user@ucsb.edu"), Instant.now())));
+
+    // act & assert
+    assertEquals("user@ucsb.edu", load().getAuthentication().getName());
+  }
+
+  @Test
+  public void tampered_token_is_ignored() throws Exception {
+    // arrange
+    String value = token(attributes, Instant.now());
+    String tampered = value.substring(0, value.length() - 2) + "AA";
+    request.setCookies(new Cookie(SessionTokenSecurityContextRepository.COOKIE_NAME, tampered));
+
+    // act & assert
+    assertNull(load().getAuthentication());
+  }
+
+  @Test
+  public void expired_token_is_ignored() throws Exception {
+    // arrange
+    request.setCookies(
+        new Cookie(
+            SessionTokenSecurityContextRepository.COOKIE_NAME,
+            token(attributes, Instant.now().minus(Duration.ofMinutes(16)))));
+
+    // act & assert
+    assertNull(load().getAuthentication());
+  }
+
+  @Test
+  public void request_without_cookies_is_not_logged_in() {
+    // act & assert
+    assertNull(load().getAuthentication());
+    assertFalse(repository.containsContext(request));
+  }
+
+  @Test
+  public void token_past_half_its_lifetime_is_renewed() throws Exception {
+    // arrange
+    request.setCookies(
+        new Cookie(
+            SessionTokenSecurityContextRepository.COOKIE_NAME,
+            token(attributes, Instant.now().minus(Duration.ofMinutes(8)))));
+
+    // act
+    SecurityContext context = load();
+
+    // assert
+    assertEquals(Set.of("ROLE_USER"), roles(context));
+    assertEquals(
+        Boolean.TRUE, request.getAttribute(SessionTokenSecurityContextRepository.RENEW_ATTRIBUTE));
+  }
+
+  @Test
+  public void token_with_invalidated_roles_gets_them_resolved_again_and_is_renewed()
+      throws Exception {
+    // arrange
+    request.setCookies(
+        new Cookie(
+            SessionTokenSecurityContextRepository.COOKIE_NAME, token(attributes, Instant.now())));
+    when(rolesService.isStale(anyString(), anyLong())).thenReturn(true);
+    when(rolesService.resolveRoles("user@ucsb.edu"))
+        .thenReturn(Set.<GrantedAuthority>of(RolesService.ROLE_USER, RolesService.ROLE_ADMIN));
+
+    // act
+    SecurityContext context = load();
+
+    // assert
+    assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), roles(context));
+    assertEquals(
+        Boolean.TRUE, request.getAttribute(SessionTokenSecurityContextRepository.RENEW_ATTRIBUTE));
+  }
+
+  @Test
+  public void saving_a_login_sets_a_token_that_loads_back() {
+    // arrange
+    when(currentUserService.getUser()).thenReturn(User.builder().id(7L).build());
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(AuthorityUtils.createAuthorityList("ROLE_USER"), attributes, "sub");
+    OAuth2AuthenticationToken authentication =
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google");
+    request.setSecure(true);
+
+    // act
+    repository.saveContext(new SecurityContextImpl(authentication), request, response);
+
+    // assert
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    assertTrue(header.contains("Max-Age=900"));
+    assertTrue(header.contains("Secure"));
+    assertTrue(header.contains("HttpOnly"));
+    request.setCookies(response.getCookie(SessionTokenSecurityContextRepository.COOKIE_NAME));
+    SessionToken token =
+        sessionTokenService
+            .verify(
+                response.getCookie(SessionTokenSecurityContextRepository.COOKIE_NAME).getValue())
+            .get();
+    assertEquals(7L, token.userId());
+    assertEquals("123", load().getAuthentication().getName());
+  }
+
+  @Test
+  public void saving_a_logout_deletes_the_token() throws Exception {
+    // arrange
+    request.setCookies(
+        new Cookie(
+            SessionTokenSecurityContextRepository.COOKIE_NAME, token(attributes, Instant.now())));
+
+    // act
+    repository.saveContext(new SecurityContextImpl(), request, response);
+
+    // assert
+    assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).contains("Max-Age=0"));
+  }
+
+  @Test
+  public void saving_without_a_login_or_token_sets_nothing() {
+    // act
+    repository.saveContext(
+        new SecurityContextImpl(new TestingAuthenticationToken("user", "password")),
+        request,
+        response);
+
+    // assert
+    assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Checks who SecurityConfig lets through to the actuator endpoints. The endpoints themselves are
+ * not part of this test slice, so a request that gets past security finds nothing (404).
+ */
+@WebMvcTest(controllers = CSRFController.class)
+@Import(TestConfig.class)
+public class ActuatorSecurityTests extends ControllerTestCase {
+
+  @MockitoBean UserRepository userRepository;
+
+  @Test
+  public void metrics__logged_out() throws Exception {
+    mockMvc.perform(get("/actuator/metrics")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void metrics__user_logged_in() throws Exception {
+    mockMvc.perform(get("/actuator/metrics")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void metrics__admin_logged_in() throws Exception {
+    mockMvc.perform(get("/actuator/metrics")).andExpect(status().is(404));
+  }
+}
@@ -17,6 +17,8 @@ import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.imports.BulkImportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -39,6 +41,10 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean BulkImportService bulkImportService;
+
+  @MockBean BulkExportService bulkExportService;
+
   // Authorization tests for /api/articles/admin/all
 
   @Test
@@ -0,0 +1,237 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.imports.BulkImportService;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Tests for the /import and /export endpoints that every {@link BulkTransferController} shares,
+ * including that each controller's endpoints work on its own table.
+ */
+@WebMvcTest(
+    controllers = {
+      ArticlesController.class,
+      HelpRequestsController.class,
+      MenuItemReviewController.class,
+      RecommendationRequestController.class,
+      RestaurantsController.class,
+      UCSBDatesController.class,
+      UCSBDiningCommonsController.class,
+      UCSBDiningCommonsMenuItemsController.class,
+      UCSBOrganizationController.class
+    })
+@Import(TestConfig.class)
+public class BulkTransferControllerTests extends ControllerTestCase {
+
+  @MockitoBean ArticlesRepository articlesRepository;
+
+  @MockitoBean HelpRequestRepository helpRequestRepository;
+
+  @MockitoBean MenuItemReviewRepository menuItemReviewRepository;
+
+  @MockitoBean RecommendationRequestRepository recommendationRequestRepository;
+
+  @MockitoBean RestaurantRepository restaurantRepository;
+
+  @MockitoBean UCSBDateRepository ucsbDateRepository;
+
+  @MockitoBean UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockitoBean UCSBDiningCommonsMenuItemsRepository ucsbDiningCommonsMenuItemsRepository;
+
+  @MockitoBean UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockitoBean UserRepository userRepository;
+
+  @MockitoBean BulkImportService bulkImportService;
+
+  @MockitoBean BulkExportService bulkExportService;
+
+  // Tests for POST /api/.../import
+
+  @Test
+  public void logged_out_users_cannot_import() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/restaurants/import")
+                .with(csrf())
+                .contentType("text/csv")
+                .content("name,description\nA,\n"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_import() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/restaurants/import")
+                .with(csrf())
+                .contentType("text/csv")
+                .content("name,description\nA,\n"))
+        .andExpect(status().is(403));
+    verify(bulkImportService, times(0)).launch(any(), any(), any());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @ParameterizedTest
+  @CsvSource({
+    "/api/articles, ARTICLES",
+    "/api/helprequests, HELP_REQUESTS",
+    "/api/menuitemreview, MENU_ITEM_REVIEWS",
+    "/api/recommendationrequest, RECOMMENDATION_REQUESTS",
+    "/api/restaurants, RESTAURANTS",
+    "/api/ucsbdates, DATES",
+    "/api/ucsbdiningcommons, DINING_COMMONS",
+    "/api/ucsbdiningcommonsmenuitems, DINING_COMMONS_MENU_ITEMS",
+    "/api/ucsborganization, ORGANIZATIONS"
+  })
+  public void an_admin_user_can_import_into_each_table(String path, ImportTable table)
+      throws Exception {
+    // arrange
+
+    Job job = Job.builder().id(17L).status("running").build();
+    when(bulkImportService.launch(eq(table), startsWith("text/csv"), any())).thenReturn(job);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post(path + "/import")
+                    .with(csrf())
+                    .contentType("text/csv")
+                    .content("name,description\nA,\n"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkImportService, times(1)).launch(eq(table), startsWith("text/csv"), any());
+    assertEquals(17, responseToJson(response).get("id"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_import_ndjson() throws Exception {
+    // act
+    mockMvc
+        .perform(
+            post("/api/restaurants/import")
+                .with(csrf())
+                .contentType("application/x-ndjson")
+                .content("{\"name\":\"A\"}\n"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(bulkImportService, times(1))
+        .launch(eq(ImportTable.RESTAURANTS), startsWith("application/x-ndjson"), any());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void import_of_other_formats_is_refused() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/restaurants/import")
+                .with(csrf())
+                .contentType("application/json")
+                .content("[]"))
+        .andExpect(status().is(415));
+    verify(bulkImportService, times(0)).launch(any(), any(), any());
+  }
+
+  // Tests for POST /api/.../export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(post("/api/restaurants/export").with(csrf())).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_export() throws Exception {
+    mockMvc.perform(post("/api/restaurants/export").with(csrf())).andExpect(status().is(403));
+    verify(bulkExportService, times(0)).launch(any(), any());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @ParameterizedTest
+  @CsvSource({
+    "/api/articles, ARTICLES",
+    "/api/helprequests, HELP_REQUESTS",
+    "/api/menuitemreview, MENU_ITEM_REVIEWS",
+    "/api/recommendationrequest, RECOMMENDATION_REQUESTS",
+    "/api/restaurants, RESTAURANTS",
+    "/api/ucsbdates, DATES",
+    "/api/ucsbdiningcommons, DINING_COMMONS",
+    "/api/ucsbdiningcommonsmenuitems, DINING_COMMONS_MENU_ITEMS",
+    "/api/ucsborganization, ORGANIZATIONS"
+  })
+  public void an_admin_user_can_export_each_table(String path, ImportTable table) throws Exception {
+    // arrange
+
+    Job job = Job.builder().id(18L).status("running").build();
+    when(bulkExportService.launch(table, ImportFormat.CSV)).thenReturn(job);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(post(path + "/export").with(csrf())).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(bulkExportService, times(1)).launch(table, ImportFormat.CSV);
+    assertEquals(18, responseToJson(response).get("id"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_export_as_ndjson() throws Exception {
+    // act
+    mockMvc
+        .perform(post("/api/restaurants/export?format=NDJSON").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(bulkExportService, times(1)).launch(ImportTable.RESTAURANTS, ImportFormat.NDJSON);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void export_to_other_formats_is_refused() throws Exception {
+    mockMvc
+        .perform(post("/api/restaurants/export?format=XML").with(csrf()))
+        .andExpect(status().isBadRequest());
+    verify(bulkExportService, times(0)).launch(any(), any());
+  }
+}
@@ -16,6 +16,8 @@ import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.imports.BulkImportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -38,6 +40,10 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean BulkImportService bulkImportService;
+
+  @MockBean BulkExportService bulkExportService;
+
   @Test
   public void logged_out_users_cannot_get_all() throws Exception {
     mockMvc
@@ -0,0 +1,106 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobScheduleSummary;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobScheduleService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = JobSchedulesController.class)
+@Import(TestConfig.class)
+public class JobSchedulesControllerTests extends ControllerTestCase {
+
+  @MockitoBean JobScheduleService jobScheduleService;
+
+  @MockitoBean UserRepository userRepository;
+
+  private final JobScheduleSummary schedule =
+      JobScheduleSummary.builder().name("test-job").cron("0 0 * * * *").lastJobId(3L).build();
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void user_cannot_list_schedules() throws Exception {
+    mockMvc.perform(get("/api/jobs/schedules")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_list_schedules() throws Exception {
+    // arrange
+    when(jobScheduleService.getSchedules()).thenReturn(List.of(schedule));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/schedules")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(List.of(schedule)), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_pause_and_resume_schedule() throws Exception {
+    // arrange
+    when(jobScheduleService.setPaused("test-job", true)).thenReturn(schedule);
+    when(jobScheduleService.setPaused("test-job", false)).thenReturn(schedule);
+
+    // act
+    mockMvc
+        .perform(post("/api/jobs/schedules/test-job/pause").with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc
+        .perform(post("/api/jobs/schedules/test-job/resume").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(jobScheduleService, times(1)).setPaused("test-job", true);
+    verify(jobScheduleService, times(1)).setPaused("test-job", false);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void pausing_unknown_schedule_is_not_found() throws Exception {
+    // arrange
+    when(jobScheduleService.setPaused("nope", true))
+        .thenThrow(new EntityNotFoundException(JobSchedule.class, "nope"));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/schedules/nope/pause").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobSchedule with id nope not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void user_cannot_pause_schedule() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/schedules/test-job/pause").with(csrf()))
+        .andExpect(status().isForbidden());
+  }
+}
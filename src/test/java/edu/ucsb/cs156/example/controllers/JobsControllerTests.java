@@ -4,48 +4,111 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import edu.ucsb.cs156.example.entities.JobLogLine;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.jobs.JobAwaitService;
+import edu.ucsb.cs156.example.services.jobs.JobDispatchService;
+import edu.ucsb.cs156.example.services.jobs.JobLogService;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamService;
+import edu.ucsb.cs156.example.services.jobs.JobPipelineService;
+import edu.ucsb.cs156.example.services.jobs.JobQueueService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({
+  JobService.class,
+  JobLogService.class,
+  JobLogStreamService.class,
+  JobAwaitService.class,
+  JobQueueService.class,
+  JobRetentionService.class,
+  JobDispatchService.class,
+  JobPipelineService.class,
+  JobExecutorConfig.class,
+  SimpleMeterRegistry.class
+})
 @AutoConfigureDataJpa
+// the tests poll log streams themselves, rather than racing the scheduled poll over the mocks
+@TestPropertySource(
+    properties = {
+      "app.jobs.log.stream.batch-size=2",
+      "app.jobs.log.stream.poll-interval-ms=3600000"
+    })
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean JobLogArchivesRepository jobLogArchivesRepository;
+
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean BulkExportService bulkExportService;
+
   @Autowired JobService jobService;
 
+  @Autowired JobLogStreamService jobLogStreamService;
+
+  @Autowired JobAwaitService jobAwaitService;
+
   @Autowired ObjectMapper objectMapper;
 
   @WithMockUser(roles = {"ADMIN"})
@@ -74,6 +137,78 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_a_page_of_jobs() throws Exception {
+
+    // arrange
+
+    JobSummary job1 = JobSummary.builder().id(2L).status("complete").createdById(1L).build();
+    JobSummary job2 = JobSummary.builder().id(1L).status("complete").createdById(1L).build();
+    PageRequest pageRequest = PageRequest.of(1, 2);
+    Page<JobSummary> page = new PageImpl<>(List.of(job1, job2), pageRequest, 5);
+
+    when(jobsRepository.findSummaries("complete", 1L, pageRequest)).thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/paged?page=1&size=2&status=complete&createdById=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    String expectedJson = mapper.writeValueAsString(new PagedModel<>(page));
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        Map.of("size", 2, "number", 1, "totalElements", 5, "totalPages", 3), json.get("page"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void paged_jobs_defaults_to_first_page_of_all_jobs() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.findSummaries(null, null, PageRequest.of(0, 20)))
+        .thenReturn(Page.empty(PageRequest.of(0, 20)));
+
+    // act
+    mockMvc.perform(get("/api/jobs/paged")).andExpect(status().isOk());
+
+    // assert
+
+    verify(jobsRepository, times(1)).findSummaries(null, null, PageRequest.of(0, 20));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void paged_jobs_keeps_page_and_size_in_range() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.findSummaries(any(), any(), any())).thenReturn(Page.empty());
+
+    // act
+    mockMvc.perform(get("/api/jobs/paged?page=-1&size=0")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/jobs/paged?size=1000")).andExpect(status().isOk());
+
+    // assert
+
+    verify(jobsRepository, times(1)).findSummaries(null, null, PageRequest.of(0, 1));
+    verify(jobsRepository, times(1))
+        .findSummaries(null, null, PageRequest.of(0, JobsController.MAX_PAGE_SIZE));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void user_cannot_get_a_page_of_jobs() throws Exception {
+    mockMvc.perform(get("/api/jobs/paged")).andExpect(status().isForbidden());
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void api_getJobLogById__admin_logged_in__returns_job_by_id() throws Exception {
@@ -123,7 +258,8 @@ public class JobsControllerTests extends ControllerTestCase {
   @Test
   public void admin_can_delete_all_jobs() throws Exception {
 
-    doNothing().when(jobsRepository).deleteAll();
+    when(jobsRepository.findIds(any(Limit.class))).thenReturn(List.of(1L, 2L), List.of());
+    when(jobsRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
 
     // act
     MvcResult response =
@@ -134,7 +270,8 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteAll();
+    verify(jobsRepository, times(1)).deleteByIdIn(List.of(1L, 2L));
+    verify(jobsRepository, never()).deleteAll();
     String expectedJson = mapper.writeValueAsString(Map.of("message", "All jobs deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -173,14 +310,200 @@ public class JobsControllerTests extends ControllerTestCase {
         .andExpect(content().string(""));
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void whole_log_says_line_ranges_are_accepted() throws Exception {
+    when(jobsRepository.findById(3L)).thenReturn(Optional.of(Job.builder().build()));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/3"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Accept-Ranges", "lines"));
+  }
+
+  private byte[] gzip(String text) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private byte[] stubArchivedLog(long jobId, String log) throws IOException {
+    byte[] content = gzip(log);
+    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogArchivesRepository.findById(jobId))
+        .thenReturn(
+            Optional.of(
+                JobLogArchive.builder()
+                    .jobId(jobId)
+                    .lineCount(log.split("\n", -1).length)
+                    .content(content)
+                    .build()));
+    when(jobLogArchivesRepository.findLineCountByJobId(jobId))
+        .thenReturn(Optional.of(log.split("\n", -1).length));
+    return content;
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void compressed_log_is_sent_as_is_to_clients_that_accept_gzip() throws Exception {
+    byte[] content = stubArchivedLog(30L, "first line\nsecond line");
+
+    mockMvc
+        .perform(get("/api/jobs/logs/30").header("Accept-Encoding", "deflate, gzip;q=0.8"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andExpect(header().string("Vary", "Accept-Encoding"))
+        .andExpect(header().string("Content-Type", "text/plain;charset=UTF-8"))
+        .andExpect(content().bytes(content));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void compressed_log_is_decompressed_for_other_clients() throws Exception {
+    stubArchivedLog(31L, "first line\nsecond line");
+
+    for (String acceptEncoding : List.of("identity", "gzip;q=0")) {
+      mockMvc
+          .perform(get("/api/jobs/logs/31").header("Accept-Encoding", acceptEncoding))
+          .andExpect(status().isOk())
+          .andExpect(header().doesNotExist("Content-Encoding"))
+          .andExpect(content().string("first line\nsecond line"));
+    }
+    mockMvc
+        .perform(get("/api/jobs/logs/31"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("first line\nsecond line"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void lines_logged_after_the_archive_are_appended_to_it() throws Exception {
+    stubArchivedLog(32L, "a\nb");
+    when(jobLogLinesRepository.countByJobId(32L)).thenReturn(1);
+    when(jobLogLinesRepository.findContentByJobId(32L)).thenReturn(List.of("c"));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            32L, 2, Limit.of(1)))
+        .thenReturn(List.of(JobLogLine.builder().jobId(32L).lineNumber(2).content("c").build()));
+
+    mockMvc
+        .perform(get("/api/jobs/logs/32").header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(content().string("a\nb\nc"));
+    mockMvc
+        .perform(get("/api/jobs/logs/32").header("Range", "lines=1-2"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 1-2/3"))
+        .andExpect(content().string("b\nc"));
+  }
+
+  private void stubLogLines(long jobId, int totalLines) {
+    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(totalLines);
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            eq(jobId), anyInt(), any(Limit.class)))
+        .thenAnswer(
+            invocation -> {
+              int fromLine = invocation.getArgument(1);
+              int limit = invocation.<Limit>getArgument(2).max();
+              return IntStream.range(fromLine, Math.min(fromLine + limit, totalLines))
+                  .mapToObj(n -> logLine(jobId, n, "line " + n))
+                  .toList();
+            });
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_tail_of_log() throws Exception {
+    stubLogLines(20L, 5000);
+
+    mockMvc
+        .perform(get("/api/jobs/logs/20?tail=2"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-First-Line", "4998"))
+        .andExpect(header().string("X-Total-Lines", "5000"))
+        .andExpect(content().string("line 4998\nline 4999"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_lines_of_log() throws Exception {
+    stubLogLines(21L, 5000);
+
+    mockMvc
+        .perform(get("/api/jobs/logs/21?fromLine=10&limit=3"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-First-Line", "10"))
+        .andExpect(header().string("X-Total-Lines", "5000"))
+        .andExpect(content().string("line 10\nline 11\nline 12"));
+    mockMvc
+        .perform(get("/api/jobs/logs/21?fromLine=4998"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("line 4998\nline 4999"));
+    mockMvc
+        .perform(get("/api/jobs/logs/21?limit=2"))
+        .andExpect(status().isOk())
+        .andExpect(content().string("line 0\nline 1"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_range_of_log_lines() throws Exception {
+    stubLogLines(22L, 50);
+
+    mockMvc
+        .perform(get("/api/jobs/logs/22").header("Range", "lines=5-7"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 5-7/50"))
+        .andExpect(content().string("line 5\nline 6\nline 7"));
+    mockMvc
+        .perform(get("/api/jobs/logs/22").header("Range", "lines=48-"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 48-49/50"))
+        .andExpect(content().string("line 48\nline 49"));
+    mockMvc
+        .perform(get("/api/jobs/logs/22").header("Range", "lines=-1"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "lines 49-49/50"))
+        .andExpect(header().string("X-Total-Lines", "50"))
+        .andExpect(content().string("line 49"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void range_past_end_of_log_is_not_satisfiable() throws Exception {
+    stubLogLines(23L, 50);
+
+    mockMvc
+        .perform(get("/api/jobs/logs/23").header("Range", "lines=50-60"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string("Content-Range", "lines */50"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void unsupported_ranges_are_ignored() throws Exception {
+    stubLogLines(24L, 2);
+    when(jobLogLinesRepository.findContentByJobId(24L)).thenReturn(List.of("line 0", "line 1"));
+
+    for (String range : List.of("bytes=0-10", "lines=-", "lines=7-5", "lines=x-")) {
+      mockMvc
+          .perform(get("/api/jobs/logs/24").header("Range", range))
+          .andExpect(status().isOk())
+          .andExpect(header().doesNotExist("Content-Range"))
+          .andExpect(content().string("line 0\nline 1"));
+    }
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_delete_specific_job() throws Exception {
 
     // arrange
 
-    when(jobsRepository.existsById(eq(1L))).thenReturn(true);
-    doNothing().when(jobsRepository).deleteById(eq(1L));
+    when(jobsRepository.deleteByIdIn(List.of(1L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -191,7 +514,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteById(eq(1L));
+    verify(jobsRepository, times(1)).deleteByIdIn(List.of(1L));
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 1 deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -203,7 +526,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    when(jobsRepository.existsById(eq(2L))).thenReturn(false);
+    when(jobsRepository.deleteByIdIn(List.of(2L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -214,7 +537,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).existsById(eq(2L));
+    verify(jobsRepository, times(1)).deleteByIdIn(List.of(2L));
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 2 not found"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -228,16 +551,6 @@ public class JobsControllerTests extends ControllerTestCase {
 
     User user = currentUserService.getUser();
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
     Job jobCompleted =
         Job.builder()
             .id(0L)
@@ -245,10 +558,9 @@ public class JobsControllerTests extends ControllerTestCase {
             .createdAt(null)
             .updatedAt(null)
             .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
             .build();
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
     // act
     MvcResult response =
@@ -265,10 +577,35 @@ public class JobsControllerTests extends ControllerTestCase {
 
     await()
         .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .untilAsserted(
+            () ->
+                verify(jobLogLinesRepository, times(1))
+                    .saveAll(
+                        List.of(
+                            JobLogLine.builder()
+                                .jobId(0L)
+                                .lineNumber(0)
+                                .content("Hello World! from test job!")
+                                .build())));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobLogLinesRepository, times(1))
+                    .saveAll(
+                        List.of(
+                            JobLogLine.builder()
+                                .jobId(0L)
+                                .lineNumber(1)
+                                .content("Goodbye from test job!")
+                                .build())));
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(2))
+                    .save(
+                        refEq(jobCompleted, "startedAt", "finishedAt", "queuedAt", "dispatchAt")));
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -279,16 +616,6 @@ public class JobsControllerTests extends ControllerTestCase {
 
     User user = currentUserService.getUser();
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
     Job jobFailed =
         Job.builder()
             .id(0L)
@@ -296,10 +623,9 @@ public class JobsControllerTests extends ControllerTestCase {
             .createdAt(null)
             .updatedAt(null)
             .status("error")
-            .log("Hello World! from test job!\nFail!")
             .build();
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
     // act
     MvcResult response =
@@ -315,10 +641,582 @@ public class JobsControllerTests extends ControllerTestCase {
 
     await()
         .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .untilAsserted(
+            () ->
+                verify(jobLogLinesRepository, times(1))
+                    .saveAll(
+                        List.of(
+                            JobLogLine.builder()
+                                .jobId(0L)
+                                .lineNumber(0)
+                                .content("Hello World! from test job!")
+                                .build())));
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobLogLinesRepository, times(1))
+                    .saveAll(
+                        List.of(
+                            JobLogLine.builder()
+                                .jobId(0L)
+                                .lineNumber(1)
+                                .content("Fail!")
+                                .build())));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(2))
+                    .save(refEq(jobFailed, "startedAt", "finishedAt", "queuedAt", "dispatchAt")));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_with_priority() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0&priority=3").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals(3, jobReturned.getPriority());
+    assertEquals(
+        jobReturned.getQueuedAt().minusMinutes(3).toInstant(),
+        jobReturned.getDispatchAt().toInstant());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launch_with_idempotency_key_of_running_job_returns_that_job() throws Exception {
+
+    // arrange
+
+    Job running = Job.builder().id(5L).status("running").build();
+    when(jobsRepository.findByTypeAndIdempotencyKey(TestJob.class.getName(), "retry-1"))
+        .thenReturn(Optional.of(running));
+
+    // act
+    MvcResult headerResponse =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=0")
+                    .header("Idempotency-Key", "retry-1")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult paramResponse =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=0&idempotencyKey=retry-1")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(running);
+    assertEquals(expectedJson, headerResponse.getResponse().getContentAsString());
+    assertEquals(expectedJson, paramResponse.getResponse().getContentAsString());
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_that_times_out() throws Exception {
+
+    // arrange
+
+    User user = currentUserService.getUser();
+
+    Job jobTimedOut =
+        Job.builder().id(0L).createdBy(user).status("timed_out").timeoutMs(100L).build();
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/jobs/launch/testjob?fail=false&sleepMs=30000&timeoutMs=100").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> {
+              jobService.checkRunningJobs();
+              verify(jobsRepository, times(2))
+                  .save(refEq(jobTimedOut, "startedAt", "finishedAt", "queuedAt", "dispatchAt"));
+            });
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(0L)
+                    .lineNumber(1)
+                    .content("Job timed out after 100 ms")
+                    .build()));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_queued_job() throws Exception {
+
+    // arrange
+
+    Job job = Job.builder().id(30L).status("queued").build();
+    when(jobsRepository.findById(30L)).thenReturn(Optional.of(job));
+    when(jobsRepository.cancelQueued(eq(30L), any())).thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/30/cancel").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("cancelled", jobReturned.getStatus());
+    assertEquals(true, jobReturned.getCancelRequested());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancel_of_missing_job_is_not_found() throws Exception {
+    when(jobsRepository.findById(31L)).thenReturn(Optional.empty());
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/31/cancel").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 31 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void user_cannot_cancel_job() throws Exception {
+    mockMvc.perform(post("/api/jobs/30/cancel").with(csrf())).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_pipeline() throws Exception {
 
+    // arrange
+
+    List<Job> saved = new ArrayList<>();
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getId() == 0) {
+                job.setId(saved.size() + 1);
+                saved.add(job);
+              }
+              return job;
+            });
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testpipeline?parts=2&sleepMs=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals(1L, jobReturned.getId());
+    assertEquals(3, saved.size());
+    assertEquals(1L, saved.get(1).getParentId());
+    assertEquals(1L, saved.get(2).getParentId());
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+        .untilAsserted(() -> assertEquals("complete", saved.get(0).getStatus()));
+    assertEquals("complete", saved.get(1).getStatus());
+    assertEquals("complete", saved.get(2).getStatus());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_pipeline_with_a_failing_part() throws Exception {
+
+    // arrange
+
+    List<Job> saved = new ArrayList<>();
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getId() == 0) {
+                job.setId(saved.size() + 1);
+                saved.add(job);
+              }
+              return job;
+            });
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/jobs/launch/testpipeline?parts=2&sleepMs=0&failPart=1&tolerateFailures=true")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertEquals(3, saved.size());
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> assertEquals("complete", saved.get(0).getStatus()));
+    assertEquals("error", saved.get(1).getStatus());
+    assertEquals("complete", saved.get(2).getStatus());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_tree() throws Exception {
+    // arrange
+    JobSummary parent = JobSummary.builder().id(1L).status("running").build();
+    List<JobSummary> children =
+        List.of(
+            JobSummary.builder().id(2L).parentId(1L).status("complete").build(),
+            JobSummary.builder().id(3L).parentId(1L).status("running").build());
+    when(jobsRepository.findSummaryById(1L)).thenReturn(Optional.of(parent));
+    when(jobsRepository.findSummariesByParentId(1L)).thenReturn(children);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/1/tree")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(2, json.get("total"));
+    assertEquals(1, json.get("finished"));
+    assertEquals(50, json.get("percentComplete"));
+    assertEquals(2, ((List<?>) json.get("children")).size());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void tree_of_missing_job_is_not_found() throws Exception {
+    when(jobsRepository.findSummaryById(31L)).thenReturn(Optional.empty());
+
+    mockMvc.perform(get("/api/jobs/31/tree")).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void await_of_finished_job_returns_it() throws Exception {
+    // arrange
+    Job job = Job.builder().id(60L).status("complete").build();
+    when(jobsRepository.findById(60L)).thenReturn(Optional.of(job));
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/jobs/60/await?timeoutMs=5000"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response =
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("complete", json.get("status"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void await_of_running_job_returns_when_it_finishes() throws Exception {
+    // arrange
+    Job job = Job.builder().id(61L).status("running").build();
+    when(jobsRepository.findById(61L)).thenReturn(Optional.of(job));
+
+    MvcResult started =
+        mockMvc.perform(get("/api/jobs/61/await")).andExpect(request().asyncStarted()).andReturn();
+
+    // act
+    jobAwaitService.jobFinished(Job.builder().id(61L).status("error").build());
+
+    // assert
+    MvcResult response =
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("error", json.get("status"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void await_of_missing_job_is_not_found() throws Exception {
+    when(jobsRepository.findById(62L)).thenReturn(Optional.empty());
+
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/62/await")).andExpect(status().isNotFound()).andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 62 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_await_jobs() throws Exception {
+    mockMvc.perform(get("/api/jobs/60/await")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_result() throws Exception {
+    when(jobsRepository.findResultById(40L)).thenReturn(Optional.of("{\"rows\":3}"));
+
+    mockMvc
+        .perform(get("/api/jobs/40/result"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "application/json"))
+        .andExpect(content().string("{\"rows\":3}"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_without_result_has_no_content() throws Exception {
+    when(jobsRepository.findResultById(41L)).thenReturn(Optional.empty());
+    when(jobsRepository.existsById(41L)).thenReturn(true);
+
+    mockMvc.perform(get("/api/jobs/41/result")).andExpect(status().isNoContent());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void result_of_missing_job_is_not_found() throws Exception {
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/42/result")).andExpect(status().isNotFound()).andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 42 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_get_job_results() throws Exception {
+    mockMvc.perform(get("/api/jobs/40/result")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_download_exported_file(@TempDir Path dir) throws Exception {
+    Path file = Files.write(dir.resolve("export-50.csv.gz"), "0123456789".getBytes());
+    when(bulkExportService.findExport(50L)).thenReturn(Optional.of(file));
+
+    mockMvc
+        .perform(get("/api/jobs/50/download"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "application/gzip"))
+        .andExpect(
+            header().string("Content-Disposition", "attachment; filename=\"export-50.csv.gz\""))
+        .andExpect(header().string("Accept-Ranges", "bytes"))
+        .andExpect(content().string("0123456789"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void download_can_resume_with_a_range(@TempDir Path dir) throws Exception {
+    Path file = Files.write(dir.resolve("export-50.csv.gz"), "0123456789".getBytes());
+    when(bulkExportService.findExport(50L)).thenReturn(Optional.of(file));
+
+    mockMvc
+        .perform(get("/api/jobs/50/download").header("Range", "bytes=4-"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "bytes 4-9/10"))
+        .andExpect(content().string("456789"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void download_of_job_without_export_is_not_found() throws Exception {
+    when(bulkExportService.findExport(51L)).thenReturn(Optional.empty());
+
+    mockMvc.perform(get("/api/jobs/51/download")).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_download_exports() throws Exception {
+    mockMvc.perform(get("/api/jobs/50/download")).andExpect(status().isForbidden());
+    verify(bulkExportService, never()).findExport(anyLong());
+  }
+
+  private JobLogLine logLine(long jobId, int lineNumber, String content) {
+    return JobLogLine.builder().jobId(jobId).lineNumber(lineNumber).content(content).build();
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_of_finished_job_sends_whole_log_then_ends() throws Exception {
+    // arrange
+    Job job = Job.builder().id(11L).status("complete").build();
+    when(jobsRepository.findById(11L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            eq(11L), eq(0), any()))
+        .thenReturn(List.of(logLine(11L, 0, "first"), logLine(11L, 1, "second")));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            eq(11L), eq(2), any()))
+        .thenReturn(List.of(logLine(11L, 2, "third\nline")));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/11/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "id:0\ndata:first\n\nid:1\ndata:second\n\nid:2\ndata:third\ndata:line\n\n"
+            + "event:end\ndata:complete\n\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_resumes_after_last_event_id() throws Exception {
+    // arrange
+    Job job = Job.builder().id(12L).status("error").build();
+    when(jobsRepository.findById(12L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            eq(12L), eq(5), any()))
+        .thenReturn(List.of(logLine(12L, 5, null)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/12/stream?offset=1").header("Last-Event-ID", "4"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "id:5\ndata:\n\nevent:end\ndata:error\n\n", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_starts_at_offset() throws Exception {
+    // arrange
+    Job job = Job.builder().id(13L).status("complete").build();
+    when(jobsRepository.findById(13L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            eq(13L), eq(3), any()))
+        .thenReturn(List.of(logLine(13L, 3, "fourth")));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/13/stream?offset=3"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "id:3\ndata:fourth\n\nevent:end\ndata:complete\n\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_pushes_lines_of_running_job_until_it_finishes() throws Exception {
+    // arrange
+    Job job = Job.builder().id(14L).status("running").build();
+    when(jobsRepository.findById(14L)).thenReturn(Optional.of(job));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/14/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    jobLogStreamService.publish(List.of(logLine(14L, 0, "pushed"), logLine(14L, 1, "again")));
+    jobLogStreamService.publish(List.of(logLine(14L, 1, "duplicate")));
+    jobLogStreamService.publish(List.of(logLine(14L, 3, "gap"), logLine(14L, 4, "after gap")));
+    jobLogStreamService.publish(List.of(logLine(15L, 0, "other job")));
+    job.setStatus("complete");
+    jobLogStreamService.jobFinished(job);
+    jobLogStreamService.jobFinished(Job.builder().id(15L).status("complete").build());
+
+    // assert
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "id:0\ndata:pushed\n\nid:1\ndata:again\n\nevent:end\ndata:complete\n\n",
+                    response.getResponse().getContentAsString()));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_polls_for_jobs_running_elsewhere() throws Exception {
+    // arrange
+    Job job = Job.builder().id(16L).status("running").build();
+    when(jobsRepository.findById(16L)).thenReturn(Optional.of(job));
+    when(jobsRepository.findSummariesByIdIn(any()))
+        .thenReturn(List.of(JobSummary.builder().id(16L).status("running").build()))
+        .thenReturn(List.of());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/16/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            eq(16L), eq(0), any()))
+        .thenReturn(List.of(logLine(16L, 0, "from another node")));
+    jobLogStreamService.pollSubscriptions();
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "id:0\ndata:from another node\n\n",
+                    response.getResponse().getContentAsString()));
+    jobLogStreamService.pollSubscriptions();
+
+    // assert
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "id:0\ndata:from another node\n\nevent:end\ndata:\n\n",
+                    response.getResponse().getContentAsString()));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_of_missing_job_is_not_found() throws Exception {
+    when(jobsRepository.findById(17L)).thenReturn(Optional.empty());
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/17/stream"))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 17 not found", json.get("message"));
   }
 }
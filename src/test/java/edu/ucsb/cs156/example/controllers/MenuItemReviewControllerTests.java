@@ -17,6 +17,8 @@ import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.imports.BulkImportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -37,6 +39,10 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
   @MockBean MenuItemReviewRepository menuItemReviewRepository;
   @MockBean UserRepository userRepository;
 
+  @MockBean BulkImportService bulkImportService;
+
+  @MockBean BulkExportService bulkExportService;
+
   // Authorization tests for /api/menuitemreview/admin/all
 
   /////////// get all ///////////
@@ -17,6 +17,8 @@ import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItems;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.exports.BulkExportService;
+import edu.ucsb.cs156.example.services.imports.BulkImportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,6 +40,10 @@ public class UCSBDiningCommonsMenuItemsControllerTests extends ControllerTestCas
 
   @MockBean UserRepository userRepository;
 
+  @MockBean BulkImportService bulkImportService;
+
+  @MockBean BulkExportService bulkExportService;
+
   // Authorization tests for /api/ucsbdiningcommonsmenuitems/admin/all
 
   @Test
@@ -1,19 +1,28 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.RolesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -26,6 +35,8 @@ public class UsersControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @Autowired RolesService rolesService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users")).andExpect(status().is(403));
@@ -64,4 +75,54 @@ public class UsersControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void setAdmin__user_logged_in() throws Exception {
+    mockMvc
+        .perform(put("/api/admin/users/admin?id=2&admin=true").with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_make_a_user_an_admin() throws Exception {
+    // arrange
+    User user = User.builder().id(2L).email("user@ucsb.edu").admin(false).build();
+    when(userRepository.findById(2L)).thenReturn(Optional.of(user));
+    long before = System.currentTimeMillis();
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(put("/api/admin/users/admin?id=2&admin=true").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    User saved = User.builder().id(2L).email("user@ucsb.edu").admin(true).build();
+    verify(userRepository, times(1)).save(saved);
+    verify(userRepository, times(1)).updateRolesInvalidatedAt(eq("user@ucsb.edu"), any());
+    assertTrue(rolesService.isStale("user@ucsb.edu", before));
+    assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_change_a_user_that_does_not_exist() throws Exception {
+    // arrange
+    when(userRepository.findById(3L)).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(put("/api/admin/users/admin?id=3&admin=false").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    verify(userRepository, never()).save(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("User with id 3 not found", json.get("message"));
+  }
 }
@@ -0,0 +1,288 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the hand-written queries of the database-backed job queue and of recurring jobs against a
+ * real (H2) database, set up by the Liquibase changelog. Tests are not run in a transaction of
+ * their own, so that each query commits like it does in the app, and two claims can be made in
+ * concurrent transactions.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JobsRepositoryTests {
+
+  @MockBean WiremockService wiremockService;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired UserRepository userRepository;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  private final ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+  private User user;
+
+  @BeforeEach
+  public void setup() {
+    jobsRepository.deleteAll();
+    jobSchedulesRepository.deleteAll();
+    userRepository.deleteAll();
+    user = userRepository.save(User.builder().email("queue@ucsb.edu").build());
+  }
+
+  private Job queued(User createdBy, int minutesAgo) {
+    return jobsRepository.save(
+        Job.builder()
+            .status("queued")
+            .createdBy(createdBy)
+            .payload("{}")
+            .queuedAt(now)
+            .dispatchAt(now.minusMinutes(minutesAgo))
+            .build());
+  }
+
+  private List<Long> ids(List<Job> jobs) {
+    return jobs.stream().map(Job::getId).toList();
+  }
+
+  @Test
+  public void claims_queued_jobs_with_a_payload_in_dispatch_order() {
+    // arrange
+    Job later = queued(null, 1);
+    Job first = queued(null, 5);
+    jobsRepository.save(Job.builder().status("queued").dispatchAt(now.minusMinutes(9)).build());
+    jobsRepository.save(Job.builder().status("running").payload("{}").build());
+
+    // act
+    List<Job> claimed =
+        new TransactionTemplate(transactionManager)
+            .execute(status -> jobsRepository.findQueuedForUpdate(5, 0));
+
+    // assert
+    assertEquals(List.of(first.getId(), later.getId()), ids(claimed));
+  }
+
+  @Test
+  public void concurrent_claims_do_not_return_the_same_job() throws Exception {
+    // arrange
+    Job first = queued(null, 2);
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    CountDownLatch firstClaimed = new CountDownLatch(1);
+    CountDownLatch secondClaimed = new CountDownLatch(1);
+
+    // act
+    CompletableFuture<List<Job>> firstClaim =
+        CompletableFuture.supplyAsync(
+            () ->
+                transaction.execute(
+                    status -> {
+                      List<Job> jobs = jobsRepository.findQueuedForUpdate(1, 0);
+                      firstClaimed.countDown();
+                      await(secondClaimed);
+                      return jobs;
+                    }));
+    await(firstClaimed);
+    // queued while the first claim still holds its lock
+    Job second = queued(null, 1);
+    List<Job> secondClaim = transaction.execute(status -> jobsRepository.findQueuedForUpdate(2, 0));
+    secondClaimed.countDown();
+
+    // assert
+    assertEquals(List.of(first.getId()), ids(firstClaim.get(10, TimeUnit.SECONDS)));
+    assertEquals(List.of(second.getId()), ids(secondClaim));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Test
+  public void claim_skips_users_at_their_running_limit() {
+    // arrange
+    User other = userRepository.save(User.builder().email("other@ucsb.edu").build());
+    jobsRepository.save(Job.builder().status("running").createdBy(user).build());
+    Job busyUser = queued(user, 3);
+    Job otherUser = queued(other, 2);
+    Job noUser = queued(null, 1);
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    // act
+    List<Job> atLimit = transaction.execute(status -> jobsRepository.findQueuedForUpdate(5, 1));
+    List<Job> underLimit = transaction.execute(status -> jobsRepository.findQueuedForUpdate(5, 2));
+    List<Job> noLimit = transaction.execute(status -> jobsRepository.findQueuedForUpdate(5, 0));
+
+    // assert
+    assertEquals(List.of(otherUser.getId(), noUser.getId()), ids(atLimit));
+    assertEquals(List.of(busyUser.getId(), otherUser.getId(), noUser.getId()), ids(underLimit));
+    assertEquals(ids(underLimit), ids(noLimit));
+    assertEquals(1, jobsRepository.countRunningByCreatedById(user.getId()));
+    assertEquals(0, jobsRepository.countRunningByCreatedById(other.getId()));
+  }
+
+  @Test
+  public void summaries_of_several_jobs_are_found_at_once() {
+    // arrange
+    Job waiting = queued(user, 0);
+    Job done = jobsRepository.save(Job.builder().status("complete").build());
+
+    // act
+    List<JobSummary> summaries =
+        jobsRepository.findSummariesByIdIn(List.of(waiting.getId(), done.getId(), 0L));
+
+    // assert
+    assertEquals(
+        Map.of(waiting.getId(), "queued", done.getId(), "complete"),
+        summaries.stream().collect(Collectors.toMap(JobSummary::getId, JobSummary::getStatus)));
+  }
+
+  @Test
+  public void expired_leases_requeue_jobs_with_a_payload_and_fail_the_rest() {
+    // arrange
+    ZonedDateTime expired = now.minusMinutes(1);
+    Job rerun =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .payload("{}")
+                .leaseOwner("gone")
+                .leaseExpiresAt(expired)
+                .build());
+    Job lostRunning =
+        jobsRepository.save(
+            Job.builder().status("running").leaseOwner("gone").leaseExpiresAt(expired).build());
+    Job lostWaiting =
+        jobsRepository.save(
+            Job.builder().status("queued").leaseOwner("gone").leaseExpiresAt(expired).build());
+    Job leased =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .payload("{}")
+                .leaseOwner("alive")
+                .leaseExpiresAt(now.plusMinutes(1))
+                .build());
+
+    // act
+    int requeued = jobsRepository.requeueExpiredLeases(now);
+    int failed = jobsRepository.failExpiredLeases(now);
+
+    // assert
+    assertEquals(1, requeued);
+    assertEquals(2, failed);
+    Job requeuedJob = jobsRepository.findById(rerun.getId()).orElseThrow();
+    assertEquals("queued", requeuedJob.getStatus());
+    assertNull(requeuedJob.getLeaseOwner());
+    assertNull(requeuedJob.getLeaseExpiresAt());
+    assertEquals("error", jobsRepository.findStatusById(lostRunning.getId()).orElseThrow());
+    assertEquals("error", jobsRepository.findStatusById(lostWaiting.getId()).orElseThrow());
+    assertEquals("running", jobsRepository.findStatusById(leased.getId()).orElseThrow());
+  }
+
+  @Test
+  public void leases_are_renewed_only_for_the_owners_unfinished_jobs() {
+    // arrange
+    Job running =
+        jobsRepository.save(
+            Job.builder().status("running").leaseOwner("me").leaseExpiresAt(now).build());
+    Job finished =
+        jobsRepository.save(
+            Job.builder().status("complete").leaseOwner("me").leaseExpiresAt(now).build());
+    Job otherNode =
+        jobsRepository.save(
+            Job.builder().status("running").leaseOwner("other").leaseExpiresAt(now).build());
+    ZonedDateTime renewed = now.plusMinutes(1);
+
+    // act
+    int count = jobsRepository.renewLeases("me", renewed);
+
+    // assert
+    assertEquals(1, count);
+    assertTrue(
+        renewed.isEqual(
+            jobsRepository.findById(running.getId()).orElseThrow().getLeaseExpiresAt()));
+    assertTrue(
+        now.isEqual(jobsRepository.findById(finished.getId()).orElseThrow().getLeaseExpiresAt()));
+    assertTrue(
+        now.isEqual(jobsRepository.findById(otherNode.getId()).orElseThrow().getLeaseExpiresAt()));
+  }
+
+  @Test
+  public void queued_jobs_are_cancelled_and_running_jobs_flagged() {
+    // arrange
+    Job waiting = queued(null, 0);
+    Job running = jobsRepository.save(Job.builder().status("running").build());
+
+    // act & assert
+    assertEquals(0, jobsRepository.cancelQueued(running.getId(), now));
+    assertEquals(1, jobsRepository.cancelQueued(waiting.getId(), now));
+    assertEquals(0, jobsRepository.requestCancel(waiting.getId()));
+    assertEquals(1, jobsRepository.requestCancel(running.getId()));
+
+    Job cancelled = jobsRepository.findById(waiting.getId()).orElseThrow();
+    assertEquals("cancelled", cancelled.getStatus());
+    assertTrue(now.isEqual(cancelled.getFinishedAt()));
+    assertEquals("running", jobsRepository.findStatusById(running.getId()).orElseThrow());
+    assertEquals(
+        List.of(waiting.getId(), running.getId()),
+        jobsRepository
+            .findCancelRequestedIds(List.of(waiting.getId(), running.getId(), 0L))
+            .stream()
+            .sorted()
+            .toList());
+  }
+
+  @Test
+  public void each_run_of_a_schedule_is_claimed_once() {
+    // arrange
+    jobSchedulesRepository.save(JobSchedule.builder().name("hourly").build());
+
+    // act & assert
+    assertEquals(1, jobSchedulesRepository.claimRun("hourly", now, "node-1"));
+    assertEquals(0, jobSchedulesRepository.claimRun("hourly", now, "node-2"));
+    assertEquals(0, jobSchedulesRepository.claimRun("hourly", now.minusHours(1), "node-2"));
+    JobSchedule schedule = jobSchedulesRepository.findById("hourly").orElseThrow();
+    assertEquals("node-1", schedule.getLastFiredBy());
+    assertTrue(now.isEqual(schedule.getLastFiredAt()));
+
+    assertEquals(1, jobSchedulesRepository.updatePaused("hourly", true));
+    assertEquals(0, jobSchedulesRepository.claimRun("hourly", now.plusHours(1), "node-2"));
+    assertEquals(1, jobSchedulesRepository.updatePaused("hourly", false));
+    assertEquals(1, jobSchedulesRepository.claimRun("hourly", now.plusHours(1), "node-2"));
+    assertEquals(0, jobSchedulesRepository.claimRun("missing", now, "node-1"));
+    assertFalse(jobSchedulesRepository.findById("missing").isPresent());
+  }
+}
@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Runs the hand-written queries on users against a real (H2) database. */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserRepositoryTests {
+
+  @MockBean WiremockService wiremockService;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired UserRepository userRepository;
+
+  private final ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+  @BeforeEach
+  public void setup() {
+    jobsRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  public void role_changes_are_found_by_time() {
+    // arrange
+    userRepository.save(User.builder().email("unchanged@ucsb.edu").build());
+    userRepository.save(
+        User.builder().email("old@ucsb.edu").rolesInvalidatedAt(now.minusHours(2)).build());
+    userRepository.save(User.builder().email("new@ucsb.edu").build());
+
+    // act
+    int updated = userRepository.updateRolesInvalidatedAt("new@ucsb.edu", now);
+    int missing = userRepository.updateRolesInvalidatedAt("missing@ucsb.edu", now);
+    List<User> changed = userRepository.findByRolesInvalidatedAtAfter(now.minusHours(1));
+
+    // assert
+    assertEquals(1, updated);
+    assertEquals(0, missing);
+    assertEquals(1, changed.size());
+    assertEquals("new@ucsb.edu", changed.get(0).getEmail());
+    assertTrue(now.isEqual(changed.get(0).getRolesInvalidatedAt()));
+  }
+}
@@ -5,22 +5,37 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobLogSlice;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @InjectMocks private JobLogService jobLogService;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
   public void setup() {
     MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobService, "jobLogService", jobLogService);
   }
 
   @Test
@@ -38,6 +53,22 @@ public class JobLogsServiceTests {
     assertEquals("This is a job log", result);
   }
 
+  @Test
+  void test_getJobLogs_assembles_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findContentByJobId(jobId))
+        .thenReturn(List.of("first line", "second line"));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("first line\nsecond line", result);
+  }
+
   @Test
   void test_getJobLogs_with_null_log() {
     // Arrange
@@ -62,4 +93,124 @@ public class JobLogsServiceTests {
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  private JobLogLine line(int lineNumber, String content) {
+    return JobLogLine.builder().jobId(5L).lineNumber(lineNumber).content(content).build();
+  }
+
+  @Test
+  void test_getJobLogLines_reads_only_requested_lines() {
+    // Arrange
+    when(jobRepository.findById(5L)).thenReturn(Optional.of(Job.builder().build()));
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(5000);
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L, 100, Limit.of(2)))
+        .thenReturn(List.of(line(100, "a"), line(101, null)));
+
+    // Act
+    JobLogSlice result = jobService.getJobLogLines(5L, 100, 2);
+
+    // Assert
+    assertEquals(new JobLogSlice(100, 5000, List.of("a", "")), result);
+  }
+
+  @Test
+  void test_getJobLogLines_caps_the_number_of_lines() {
+    // Arrange
+    when(jobRepository.findById(5L)).thenReturn(Optional.of(Job.builder().build()));
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(50000);
+
+    // Act
+    jobService.getJobLogLines(5L, -3, 50000);
+
+    // Assert
+    verify(jobLogLinesRepository)
+        .findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L, 0, Limit.of(JobService.MAX_LOG_LINES_PER_READ));
+  }
+
+  @Test
+  void test_getJobLogLines_past_the_end_reads_nothing() {
+    // Arrange
+    when(jobRepository.findById(5L)).thenReturn(Optional.of(Job.builder().build()));
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(3);
+
+    // Act
+    JobLogSlice pastEnd = jobService.getJobLogLines(5L, 3, 10);
+    JobLogSlice noLines = jobService.getJobLogLines(5L, 0, 0);
+
+    // Assert
+    assertEquals(new JobLogSlice(3, 3, List.of()), pastEnd);
+    assertEquals(new JobLogSlice(0, 3, List.of()), noLines);
+    verify(jobLogLinesRepository, never())
+        .findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            anyLong(), anyInt(), any(Limit.class));
+  }
+
+  @Test
+  void test_getJobLogTail_reads_last_lines() {
+    // Arrange
+    when(jobRepository.findById(5L)).thenReturn(Optional.of(Job.builder().build()));
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(3);
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L, 1, Limit.of(2)))
+        .thenReturn(List.of(line(1, "b"), line(2, "c")));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L, 0, Limit.of(10)))
+        .thenReturn(List.of(line(0, "a"), line(1, "b"), line(2, "c")));
+
+    // Act & Assert
+    assertEquals(new JobLogSlice(1, 3, List.of("b", "c")), jobService.getJobLogTail(5L, 2));
+    assertEquals(new JobLogSlice(0, 3, List.of("a", "b", "c")), jobService.getJobLogTail(5L, 10));
+  }
+
+  @Test
+  void test_getJobLogTail_caps_the_number_of_lines() {
+    // Arrange
+    when(jobRepository.findById(5L)).thenReturn(Optional.of(Job.builder().build()));
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(50000);
+
+    // Act
+    JobLogSlice result = jobService.getJobLogTail(5L, 20000);
+
+    // Assert
+    assertEquals(50000 - JobService.MAX_LOG_LINES_PER_READ, result.getFromLine());
+    verify(jobLogLinesRepository)
+        .findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L,
+            50000 - JobService.MAX_LOG_LINES_PER_READ,
+            Limit.of(JobService.MAX_LOG_LINES_PER_READ));
+  }
+
+  @Test
+  void test_getJobLogLines_of_job_with_log_on_the_job() {
+    // Arrange
+    Job job = Job.builder().log("a\nb\nc").build();
+    when(jobRepository.findById(6L)).thenReturn(Optional.of(job));
+
+    // Act & Assert
+    assertEquals(new JobLogSlice(1, 3, List.of("b")), jobService.getJobLogLines(6L, 1, 1));
+    assertEquals(new JobLogSlice(1, 3, List.of("b", "c")), jobService.getJobLogTail(6L, 2));
+    assertEquals(new JobLogSlice(0, 3, List.of("a", "b", "c")), jobService.getJobLogTail(6L, 5));
+    assertEquals(new JobLogSlice(4, 3, List.of()), jobService.getJobLogLines(6L, 4, 1));
+  }
+
+  @Test
+  void test_getJobLogLines_of_job_without_log() {
+    // Arrange
+    Job job = Job.builder().log("").build();
+    when(jobRepository.findById(7L)).thenReturn(Optional.of(job));
+    when(jobRepository.findById(8L)).thenReturn(Optional.of(Job.builder().build()));
+
+    // Act & Assert
+    assertEquals(new JobLogSlice(0, 0, List.of()), jobService.getJobLogLines(7L, 0, 10));
+    assertEquals(new JobLogSlice(0, 0, List.of()), jobService.getJobLogTail(8L, 10));
+  }
+
+  @Test
+  void test_getJobLogLines_job_not_found() {
+    when(jobRepository.findById(9L)).thenReturn(Optional.empty());
+
+    assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogLines(9L, 0, 1));
+  }
 }
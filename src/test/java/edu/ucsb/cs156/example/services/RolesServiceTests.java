@@ -0,0 +1,184 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RolesServiceTests {
+
+  @Mock private UserRepository userRepository;
+
+  @Mock private UserCache userCache;
+
+  @InjectMocks private RolesService rolesService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(rolesService, "adminEmails", Set.of("admin@ucsb.edu"));
+    ReflectionTestUtils.setField(rolesService, "maxAge", Duration.ofHours(1));
+  }
+
+  @Test
+  public void configured_admin_emails_are_admins_without_a_query() {
+    // act & assert
+    assertTrue(rolesService.isAdminEmail("admin@ucsb.edu"));
+    assertTrue(rolesService.isAdmin("admin@ucsb.edu"));
+    verify(userRepository, never()).findByEmail(anyString());
+  }
+
+  @Test
+  public void saved_admins_are_admins() {
+    // arrange
+    when(userRepository.findByEmail("saved@example.org"))
+        .thenReturn(Optional.of(User.builder().email("saved@example.org").admin(true).build()));
+    when(userRepository.findByEmail("user@example.org"))
+        .thenReturn(Optional.of(User.builder().email("user@example.org").admin(false).build()));
+    when(userRepository.findByEmail("new@example.org")).thenReturn(Optional.empty());
+
+    // act & assert
+    assertFalse(rolesService.isAdminEmail("saved@example.org"));
+    assertTrue(rolesService.isAdmin("saved@example.org"));
+    assertFalse(rolesService.isAdmin("user@example.org"));
+    assertFalse(rolesService.isAdmin("new@example.org"));
+  }
+
+  @Test
+  public void resolveRoles_returns_user_admin_and_member_roles() {
+    // arrange
+    when(userRepository.findByEmail("user@example.org")).thenReturn(Optional.empty());
+
+    // act & assert
+    assertEquals(
+        Set.of(RolesService.ROLE_USER, RolesService.ROLE_ADMIN, RolesService.ROLE_MEMBER),
+        rolesService.resolveRoles("admin@ucsb.edu"));
+    assertEquals(Set.of(RolesService.ROLE_USER), rolesService.resolveRoles("user@example.org"));
+  }
+
+  @Test
+  public void invalidate_makes_earlier_roles_stale() {
+    // arrange
+    long before = System.currentTimeMillis();
+    assertFalse(rolesService.isStale("user@example.org", before));
+
+    // act
+    rolesService.invalidate("user@example.org");
+
+    // assert
+    assertTrue(rolesService.isStale("user@example.org", before));
+    assertFalse(rolesService.isStale("user@example.org", System.currentTimeMillis() + 1));
+    assertFalse(rolesService.isStale("other@example.org", before));
+    verify(userCache).evict("user@example.org");
+    ArgumentCaptor<ZonedDateTime> invalidatedAt = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(userRepository)
+        .updateRolesInvalidatedAt(eq("user@example.org"), invalidatedAt.capture());
+    assertTrue(invalidatedAt.getValue().toInstant().toEpochMilli() >= before);
+  }
+
+  @Test
+  public void roles_resolved_before_max_age_are_stale() {
+    // arrange
+    long now = System.currentTimeMillis();
+
+    // act & assert
+    assertTrue(rolesService.isStale("user@example.org", now - Duration.ofMinutes(61).toMillis()));
+    assertFalse(rolesService.isStale("user@example.org", now - Duration.ofMinutes(59).toMillis()));
+  }
+
+  private User invalidated(String email, Instant at) {
+    return User.builder()
+        .email(email)
+        .rolesInvalidatedAt(at.atZone(ZoneId.systemDefault()))
+        .build();
+  }
+
+  @Test
+  public void invalidations_by_other_instances_are_picked_up() {
+    // arrange
+    Instant now = Instant.now();
+    long before = now.minusSeconds(1).toEpochMilli();
+    when(userRepository.findByRolesInvalidatedAtAfter(any()))
+        .thenReturn(List.of(invalidated("user@example.org", now)));
+
+    // act
+    rolesService.refreshInvalidations();
+    rolesService.refreshInvalidations();
+
+    // assert
+    assertTrue(rolesService.isStale("user@example.org", before));
+    assertFalse(rolesService.isStale("user@example.org", now.toEpochMilli() + 1));
+    verify(userCache, times(1)).evict("user@example.org");
+    ArgumentCaptor<ZonedDateTime> since = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(userRepository, times(2)).findByRolesInvalidatedAtAfter(since.capture());
+    assertTrue(
+        since
+            .getValue()
+            .isBefore(now.minus(Duration.ofMinutes(59)).atZone(ZoneId.systemDefault())));
+  }
+
+  @Test
+  public void newer_local_invalidations_are_kept_and_old_ones_forgotten() {
+    // arrange
+    Instant now = Instant.now();
+    rolesService.invalidate("user@example.org");
+    Map<String, Long> invalidatedAtMs = invalidatedAtMs();
+    invalidatedAtMs.put("old@example.org", now.minus(Duration.ofMinutes(61)).toEpochMilli());
+    when(userRepository.findByRolesInvalidatedAtAfter(any()))
+        .thenReturn(List.of(invalidated("user@example.org", now.minusSeconds(10))));
+
+    // act
+    rolesService.refreshInvalidations();
+
+    // assert
+    assertTrue(invalidatedAtMs.get("user@example.org") >= now.toEpochMilli());
+    assertFalse(invalidatedAtMs.containsKey("old@example.org"));
+    verify(userCache, times(1)).evict("user@example.org");
+  }
+
+  @Test
+  public void later_invalidations_by_other_instances_replace_earlier_ones() {
+    // arrange
+    Instant now = Instant.now();
+    Map<String, Long> invalidatedAtMs = invalidatedAtMs();
+    invalidatedAtMs.put("user@example.org", now.minusSeconds(10).toEpochMilli());
+    when(userRepository.findByRolesInvalidatedAtAfter(any()))
+        .thenReturn(List.of(invalidated("user@example.org", now)));
+
+    // act
+    rolesService.refreshInvalidations();
+
+    // assert
+    assertEquals(now.toEpochMilli(), invalidatedAtMs.get("user@example.org"));
+    verify(userCache, times(1)).evict("user@example.org");
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Long> invalidatedAtMs() {
+    return (Map<String, Long>) ReflectionTestUtils.getField(rolesService, "invalidatedAtMs");
+  }
+}
@@ -0,0 +1,192 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.ucsb.cs156.example.services.SessionTokenService.SessionToken;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class SessionTokenServiceTests {
+
+  private final ObjectMapper mapper =
+      new ObjectMapper()
+          .findAndRegisterModules()
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  private SessionTokenService sessionTokenService;
+
+  private SessionTokenService newService(String secret) {
+    SessionTokenService service = new SessionTokenService(secret, false);
+    ReflectionTestUtils.setField(service, "mapper", mapper);
+    ReflectionTestUtils.setField(service, "ttl", Duration.ofMinutes(15));
+    return service;
+  }
+
+  private String issue(SessionTokenService service) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("sub", "123");
+    attributes.put("email", "user@ucsb.edu");
+    attributes.put("email_verified", true);
+    attributes.put("name", "A User");
+    attributes.put("picture", null);
+    attributes.put("at_hash", "not kept");
+    return service.issue(
+        7L,
+        "google",
+        attributes,
+        List.of(
+            new SimpleGrantedAuthority("ROLE_USER"),
+            new SimpleGrantedAuthority("SCOPE_email"),
+            new SimpleGrantedAuthority("ROLE_MEMBER")));
+  }
+
+  @BeforeEach
+  public void setup() {
+    sessionTokenService = newService("a secret shared by every instance");
+  }
+
+  @Test
+  public void an_issued_token_verifies_with_the_user_id_attributes_and_roles() {
+    // act
+    Optional<SessionToken> verified = sessionTokenService.verify(issue(sessionTokenService));
+
+    // assert
+    SessionToken token = verified.get();
+    assertEquals(7L, token.userId());
+    assertEquals("google", token.registrationId());
+    assertEquals(
+        Map.of("sub", "123", "email", "user@ucsb.edu", "email_verified", true, "name", "A User"),
+        token.attributes());
+    assertEquals(List.of("ROLE_MEMBER", "ROLE_USER"), token.roles());
+    assertEquals(Duration.ofMinutes(15), Duration.between(token.issuedAt(), token.expiresAt()));
+    assertEquals(Duration.ofMinutes(15), sessionTokenService.getTtl());
+  }
+
+  @Test
+  public void tokens_are_accepted_by_instances_with_the_same_secret_only() {
+    // arrange
+    String token = issue(sessionTokenService);
+
+    // act & assert
+    assertTrue(newService("a secret shared by every instance").verify(token).isPresent());
+    assertTrue(newService("another secret").verify(token).isEmpty());
+    assertTrue(newService("").verify(token).isEmpty());
+  }
+
+  @Test
+  public void a_changed_token_is_rejected() {
+    // arrange
+    String token = issue(sessionTokenService);
+    String payload = token.substring(0, token.indexOf('.'));
+    String json =
+        new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8)
+            .replace("ROLE_MEMBER", "ROLE_ADMIN");
+    String forged =
+        Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(json.getBytes(StandardCharsets.UTF_8))
+            + token.substring(token.indexOf('.'));
+
+    // act & assert
+    assertTrue(sessionTokenService.verify(forged).isEmpty());
+  }
+
+  @Test
+  public void malformed_tokens_are_rejected() {
+    // act & assert
+    assertTrue(sessionTokenService.verify("no-dot").isEmpty());
+    assertTrue(sessionTokenService.verify("not base64!.x").isEmpty());
+    assertTrue(
+        sessionTokenService
+            .verify(sessionTokenService.sign("not json".getBytes(StandardCharsets.UTF_8)))
+            .isEmpty());
+  }
+
+  @Test
+  public void an_expired_token_is_rejected() {
+    // arrange
+    ReflectionTestUtils.setField(sessionTokenService, "ttl", Duration.ZERO);
+
+    // act & assert
+    assertTrue(sessionTokenService.verify(issue(sessionTokenService)).isEmpty());
+  }
+
+  @Test
+  public void sign_and_unsign_round_trip_bytes() {
+    // arrange
+    byte[] payload = {0, 1, 2, (byte) 255};
+
+    // act
+    String signed = sessionTokenService.sign(payload);
+
+    // assert
+    assertArrayEquals(payload, sessionTokenService.unsign(signed).get());
+    assertNotEquals(signed, newService("another secret").sign(payload));
+  }
+
+  @Test
+  public void a_token_is_due_for_renewal_after_half_its_lifetime() {
+    // arrange
+    Instant issuedAt = Instant.parse("2025-01-01T00:00:00Z");
+    SessionToken token =
+        new SessionToken(
+            1L, "google", Map.of(), List.of(), issuedAt, issuedAt.plus(Duration.ofMinutes(10)));
+
+    // act & assert
+    assertFalse(token.isDueForRenewal(issuedAt.plus(Duration.ofMinutes(5))));
+    assertTrue(token.isDueForRenewal(issuedAt.plus(Duration.ofMinutes(6))));
+  }
+
+  @Test
+  public void issue_throws_if_the_token_cannot_be_written() throws Exception {
+    // arrange
+    ObjectMapper failing = mock(ObjectMapper.class);
+    when(failing.writeValueAsBytes(any())).thenThrow(new JsonProcessingException("boom") {});
+    ReflectionTestUtils.setField(sessionTokenService, "mapper", failing);
+
+    // act & assert
+    assertThrows(IllegalStateException.class, () -> issue(sessionTokenService));
+  }
+
+  @Test
+  public void sign_throws_if_the_key_is_unusable() {
+    // arrange
+    ReflectionTestUtils.setField(sessionTokenService, "key", null);
+
+    // act & assert
+    assertThrows(IllegalStateException.class, () -> sessionTokenService.sign(new byte[] {1}));
+  }
+
+  @Test
+  public void a_secret_is_required_in_stateless_mode() {
+    // act & assert
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> new SessionTokenService(" ", true));
+    assertEquals(
+        "app.session.token.secret (SESSION_TOKEN_SECRET) must be set when"
+            + " app.session.stateless is true",
+        e.getMessage());
+    assertTrue(new SessionTokenService("a secret", true).unsign("x.y").isEmpty());
+  }
+}
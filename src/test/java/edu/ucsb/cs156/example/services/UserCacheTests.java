@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class UserCacheTests {
+
+  private UserCache userCache;
+
+  private User user(String email) {
+    return User.builder().email(email).build();
+  }
+
+  @BeforeEach
+  public void setup() {
+    userCache = new UserCache();
+    ReflectionTestUtils.setField(userCache, "maxSize", 2);
+    ReflectionTestUtils.setField(userCache, "ttl", Duration.ofMinutes(5));
+  }
+
+  @Test
+  public void get_returns_a_cached_user() {
+    // arrange
+    User u = user("a@example.org");
+    userCache.put(u);
+
+    // act & assert
+    assertSame(u, userCache.get("a@example.org").get());
+    assertTrue(userCache.get("b@example.org").isEmpty());
+  }
+
+  @Test
+  public void put_replaces_the_user_with_the_same_email() {
+    // arrange
+    userCache.put(user("a@example.org"));
+    User changed = user("a@example.org");
+
+    // act
+    userCache.put(changed);
+
+    // assert
+    assertSame(changed, userCache.get("a@example.org").get());
+    assertEquals(1, userCache.size());
+  }
+
+  @Test
+  public void get_drops_an_expired_user() {
+    // arrange
+    ReflectionTestUtils.setField(userCache, "ttl", Duration.ZERO);
+    userCache.put(user("a@example.org"));
+
+    // act & assert
+    assertTrue(userCache.get("a@example.org").isEmpty());
+    assertEquals(0, userCache.size());
+  }
+
+  @Test
+  public void put_drops_the_least_recently_used_user_when_full() {
+    // arrange
+    userCache.put(user("a@example.org"));
+    userCache.put(user("b@example.org"));
+    userCache.get("a@example.org");
+
+    // act
+    userCache.put(user("c@example.org"));
+
+    // assert
+    assertEquals(2, userCache.size());
+    assertTrue(userCache.get("a@example.org").isPresent());
+    assertTrue(userCache.get("b@example.org").isEmpty());
+    assertTrue(userCache.get("c@example.org").isPresent());
+  }
+
+  @Test
+  public void evict_and_clear_drop_users() {
+    // arrange
+    userCache.put(user("a@example.org"));
+    userCache.put(user("b@example.org"));
+
+    // act
+    userCache.evict("a@example.org");
+
+    // assert
+    assertTrue(userCache.get("a@example.org").isEmpty());
+    assertEquals(1, userCache.size());
+
+    // act
+    userCache.clear();
+
+    // assert
+    assertEquals(0, userCache.size());
+  }
+}
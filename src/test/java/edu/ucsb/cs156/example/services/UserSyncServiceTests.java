@@ -0,0 +1,170 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.sql.Timestamp;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class UserSyncServiceTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private UserCache userCache;
+
+  @InjectMocks private UserSyncService userSyncService;
+
+  private User user(long id) {
+    return User.builder()
+        .id(id)
+        .email("user" + id + "@example.org")
+        .pictureUrl("https://example.org/" + id + ".jpg")
+        .fullName("User " + id)
+        .build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<List<Object[]>> capturedBatches(int times) {
+    ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(times))
+        .batchUpdate(eq(UserSyncService.UPDATE_SQL), batches.capture());
+    return batches.getAllValues();
+  }
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(userSyncService, "batchSize", 2);
+  }
+
+  @Test
+  public void flush_writes_each_user_once_with_the_latest_values() {
+    // arrange
+    User u = user(1);
+    userSyncService.seen(u, u.getPictureUrl(), u.getFullName());
+    userSyncService.seen(u, "https://example.org/new.jpg", "New Name");
+    userSyncService.seen(u, "https://example.org/new.jpg", "New Name");
+    assertEquals(1, userSyncService.pendingCount());
+
+    // act
+    int written = userSyncService.flush();
+
+    // assert
+    assertEquals(1, written);
+    assertEquals(0, userSyncService.pendingCount());
+    Object[] args = capturedBatches(1).get(0).get(0);
+    assertEquals("https://example.org/new.jpg", args[0]);
+    assertEquals("New Name", args[1]);
+    assertInstanceOf(Timestamp.class, args[2]);
+    assertEquals(1L, args[3]);
+    verify(userCache).evict("user1@example.org");
+  }
+
+  @Test
+  public void flush_writes_users_in_batches_and_evicts_only_changed_profiles() {
+    // arrange
+    for (long id = 1; id <= 3; id++) {
+      User u = user(id);
+      userSyncService.seen(u, u.getPictureUrl(), id == 3 ? "Renamed" : u.getFullName());
+    }
+
+    // act
+    int written = userSyncService.flush();
+
+    // assert
+    assertEquals(3, written);
+    List<List<Object[]>> batches = capturedBatches(2);
+    assertEquals(2, batches.get(0).size());
+    assertEquals(1, batches.get(1).size());
+    verify(userCache).evict("user3@example.org");
+    verify(userCache, times(1)).evict(anyString());
+  }
+
+  @Test
+  public void a_changed_profile_is_remembered_until_written() {
+    // arrange
+    User u = user(1);
+    userSyncService.seen(u, "https://example.org/new.jpg", u.getFullName());
+    userSyncService.seen(u, u.getPictureUrl(), u.getFullName());
+
+    // act
+    userSyncService.flush();
+
+    // assert
+    Object[] args = capturedBatches(1).get(0).get(0);
+    assertEquals(u.getPictureUrl(), args[0]);
+    verify(userCache).evict("user1@example.org");
+  }
+
+  @Test
+  public void flush_does_nothing_when_no_one_was_seen() {
+    // act
+    userSyncService.scheduledFlush();
+
+    // assert
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  public void a_failed_batch_is_written_at_the_next_flush() {
+    // arrange
+    User u1 = user(1);
+    User u2 = user(2);
+    userSyncService.seen(u1, u1.getPictureUrl(), "Renamed");
+    userSyncService.seen(u2, u2.getPictureUrl(), u2.getFullName());
+    doAnswer(
+            invocation -> {
+              userSyncService.seen(u1, u1.getPictureUrl(), u1.getFullName());
+              throw new DataAccessResourceFailureException("down");
+            })
+        .doReturn(new int[] {1, 1})
+        .when(jdbcTemplate)
+        .batchUpdate(eq(UserSyncService.UPDATE_SQL), anyList());
+
+    // act
+    int firstWritten = userSyncService.flush();
+
+    // assert
+    assertEquals(0, firstWritten);
+    assertEquals(2, userSyncService.pendingCount());
+    verify(userCache, never()).evict(anyString());
+
+    // act
+    int secondWritten = userSyncService.flush();
+
+    // assert
+    assertEquals(2, secondWritten);
+    assertEquals(0, userSyncService.pendingCount());
+    verify(userCache).evict("user1@example.org");
+  }
+
+  @Test
+  public void seen_does_not_write() {
+    // arrange
+    User u = user(1);
+
+    // act
+    userSyncService.seen(u, u.getPictureUrl(), u.getFullName());
+
+    // assert
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    assertEquals(1, userSyncService.pendingCount());
+  }
+}
@@ -0,0 +1,331 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.BulkExportJob;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobLogWriter;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class BulkExportServiceTests {
+
+  @Mock private JobService jobService;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  private PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+  @Spy
+  private TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @InjectMocks private BulkExportService bulkExportService;
+
+  @TempDir Path tempDir;
+
+  private final List<String> logged = new ArrayList<>();
+
+  private JobContext ctx;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(bulkExportService, "directory", tempDir);
+    ReflectionTestUtils.setField(bulkExportService, "fetchSize", 2);
+    ReflectionTestUtils.setField(bulkExportService, "progressInterval", 2);
+    ReflectionTestUtils.setField(bulkExportService, "maxAge", Duration.ofDays(7));
+    JobLogWriter logWriter = mock(JobLogWriter.class);
+    doAnswer(invocation -> logged.add(invocation.getArgument(0))).when(logWriter).append(any());
+    ctx = new JobContext(logWriter, Job.builder().id(1L).build());
+  }
+
+  /** Makes the query of an export return these rows, then throw `error` if it is not null */
+  private void queryReturns(RuntimeException error, Object[]... rows) throws Exception {
+    doAnswer(
+            invocation -> {
+              RowCallbackHandler handler = invocation.getArgument(1);
+              for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                for (int i = 0; i < row.length; i++) {
+                  when(rs.getObject(i + 1)).thenReturn(row[i]);
+                }
+                handler.processRow(rs);
+              }
+              if (error != null) {
+                throw error;
+              }
+              return null;
+            })
+        .when(jdbcTemplate)
+        .query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+  }
+
+  private String gunzip(Path file) throws IOException {
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void launch_runs_a_local_job() {
+    // arrange
+    Job job = Job.builder().id(5L).status("running").build();
+    when(jobService.runAsJob(any())).thenReturn(job);
+
+    // act
+    Job result = bulkExportService.launch(ImportTable.RESTAURANTS, ImportFormat.CSV);
+
+    // assert
+    assertEquals(job, result);
+    verify(jobService, times(1)).runAsJob(any(BulkExportJob.class));
+  }
+
+  @Test
+  public void csv_export_is_written_to_a_gzip_file_named_after_the_job() throws Exception {
+    // arrange
+    queryReturns(null, new Object[] {1L, "A, Inc.", null}, new Object[] {2L, "B", "x"});
+
+    // act
+    bulkExportService.exportTable(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV);
+
+    // assert
+    Path file = tempDir.resolve("export-1.csv.gz");
+    assertEquals("id,name,description\r\n1,\"A, Inc.\",\r\n2,B,x\r\n", gunzip(file));
+    assertEquals(List.of(file), Files.list(tempDir).toList());
+    assertEquals(Optional.of(file), bulkExportService.findExport(1L));
+    assertEquals(
+        Map.of("rowsExported", 2L, "download", "/api/jobs/1/download"),
+        ReflectionTestUtils.invokeMethod(ctx, "getResult"));
+    assertEquals(
+        List.of("Exporting restaurants as CSV", "2 rows exported", "Export finished: 2 rows"),
+        logged);
+  }
+
+  @Test
+  public void ndjson_export_writes_timestamps_as_imports_read_them() throws Exception {
+    // arrange
+    queryReturns(
+        null, new Object[] {3L, 7L, "a@b.c", 5, Timestamp.valueOf("2022-01-03 00:00:00"), null});
+
+    // act
+    bulkExportService.exportTable(ctx, ImportTable.MENU_ITEM_REVIEWS, ImportFormat.NDJSON);
+
+    // assert
+    assertEquals(
+        "{\"id\":3,\"itemId\":7,\"reviewerEmail\":\"a@b.c\",\"stars\":5,"
+            + "\"dateReviewed\":\"2022-01-03T00:00:00\"}\n",
+        gunzip(tempDir.resolve("export-1.ndjson.gz")));
+  }
+
+  @Test
+  public void rows_are_streamed_in_a_read_only_transaction() throws Exception {
+    // arrange
+    queryReturns(null);
+    Connection con = mock(Connection.class);
+    PreparedStatement statement = mock(PreparedStatement.class);
+    when(con.prepareStatement(
+            ImportTable.RESTAURANTS.getSelectSql(),
+            ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY))
+        .thenReturn(statement);
+
+    // act
+    bulkExportService.exportTable(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV);
+
+    // assert
+    ArgumentCaptor<PreparedStatementCreator> creator =
+        ArgumentCaptor.forClass(PreparedStatementCreator.class);
+    verify(jdbcTemplate).query(creator.capture(), any(RowCallbackHandler.class));
+    assertEquals(statement, creator.getValue().createPreparedStatement(con));
+    verify(statement, times(1)).setFetchSize(2);
+    verify(transactionManager, times(1))
+        .getTransaction(argThat(definition -> definition.isReadOnly()));
+  }
+
+  @Test
+  public void failed_export_leaves_no_file() throws Exception {
+    // arrange
+    queryReturns(new QueryTimeoutException("too slow"), new Object[] {1L, "A", "b"});
+
+    // act
+    assertThrows(
+        QueryTimeoutException.class,
+        () -> bulkExportService.exportTable(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV));
+
+    // assert
+    assertEquals(List.of(), Files.list(tempDir).toList());
+    assertEquals(Optional.empty(), bulkExportService.findExport(1L));
+    assertEquals(Map.of("rowsExported", 1L), ReflectionTestUtils.invokeMethod(ctx, "getResult"));
+  }
+
+  @Test
+  public void export_that_cannot_be_written_leaves_no_file() throws Exception {
+    // arrange
+    queryReturns(null, new Object[] {1L, new Object(), null});
+
+    // act
+    assertThrows(
+        IOException.class,
+        () -> bulkExportService.exportTable(ctx, ImportTable.RESTAURANTS, ImportFormat.NDJSON));
+
+    // assert
+    assertEquals(List.of(), Files.list(tempDir).toList());
+  }
+
+  @Test
+  public void export_that_cannot_be_started_leaves_no_file() throws Exception {
+    // arrange
+    JsonFactory factory = mock(JsonFactory.class);
+    when(factory.createGenerator(any(Writer.class))).thenThrow(new IOException("no generator"));
+    when(mapper.getFactory()).thenReturn(factory);
+
+    // act
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () -> bulkExportService.exportTable(ctx, ImportTable.RESTAURANTS, ImportFormat.NDJSON));
+
+    // assert
+    assertEquals("no generator", e.getMessage());
+    assertEquals(List.of(), Files.list(tempDir).toList());
+    verify(jdbcTemplate, never())
+        .query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+  }
+
+  @Test
+  public void the_job_exports_its_table() throws Exception {
+    // arrange
+    BulkExportService service = mock(BulkExportService.class);
+    BulkExportJob job =
+        BulkExportJob.builder()
+            .bulkExportService(service)
+            .table(ImportTable.RESTAURANTS)
+            .format(ImportFormat.CSV)
+            .build();
+
+    // act
+    job.accept(ctx);
+
+    // assert
+    verify(service).exportTable(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV);
+  }
+
+  @Test
+  public void purge_deletes_only_old_exports() throws Exception {
+    // arrange
+    FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(8)));
+    Path oldExport = Files.createFile(tempDir.resolve("export-1.csv.gz"));
+    Files.setLastModifiedTime(oldExport, old);
+    Path oldPart = Files.createFile(tempDir.resolve("export-2.csv.gz.part"));
+    Files.setLastModifiedTime(oldPart, old);
+    Path newExport = Files.createFile(tempDir.resolve("export-3.ndjson.gz"));
+    Path otherFile = Files.createFile(tempDir.resolve("notes.txt"));
+    Files.setLastModifiedTime(otherFile, old);
+
+    // act
+    int deleted = bulkExportService.purge();
+
+    // assert
+    assertEquals(2, deleted);
+    assertFalse(Files.exists(oldExport));
+    assertFalse(Files.exists(oldPart));
+    assertTrue(Files.exists(newExport));
+    assertTrue(Files.exists(otherFile));
+    assertEquals(0, bulkExportService.purge());
+  }
+
+  @Test
+  public void purge_does_not_count_exports_deleted_by_another_node() throws Exception {
+    // arrange
+    Path oldExport = Files.createFile(tempDir.resolve("export-1.csv.gz"));
+    Files.setLastModifiedTime(oldExport, FileTime.from(Instant.now().minus(Duration.ofDays(8))));
+    BulkExportService service = spy(bulkExportService);
+    doAnswer(
+            invocation -> {
+              Files.delete(oldExport);
+              return invocation.callRealMethod();
+            })
+        .when(service)
+        .delete(oldExport);
+
+    // act
+    int deleted = service.purge();
+
+    // assert
+    assertEquals(0, deleted);
+    assertFalse(Files.exists(oldExport));
+  }
+
+  @Test
+  public void scheduled_purge_logs_rather_than_throws() throws Exception {
+    // arrange
+    BulkExportService service = spy(bulkExportService);
+    doThrow(new IOException("unreadable")).when(service).purge();
+
+    // act
+    service.scheduledPurge();
+
+    // assert
+    verify(service, times(1)).purge();
+  }
+
+  @Test
+  public void purge_without_a_directory_deletes_nothing() throws Exception {
+    ReflectionTestUtils.setField(bulkExportService, "directory", tempDir.resolve("missing"));
+
+    assertEquals(0, bulkExportService.purge());
+    bulkExportService.scheduledPurge();
+  }
+}
@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.services.exports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.services.imports.ImportFormat;
+import edu.ucsb.cs156.example.services.imports.ImportRowReader;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ExportRowWriterTests {
+
+  private static final List<String> FIELDS = List.of("id", "name", "description");
+
+  @Test
+  public void csv_starts_with_a_header_and_quotes_only_when_needed() throws Exception {
+    StringWriter out = new StringWriter();
+    try (ExportRowWriter writer = new CsvRowWriter(out, FIELDS)) {
+      writer.write(new Object[] {1L, "A, Inc.", "say \"hi\"\nthere"});
+      writer.write(new Object[] {2L, "B", null});
+      writer.write(new Object[] {3L, "C\rD", "E\nF"});
+    }
+
+    assertEquals(
+        "id,name,description\r\n1,\"A, Inc.\",\"say \"\"hi\"\"\nthere\"\r\n2,B,\r\n"
+            + "3,\"C\rD\",\"E\nF\"\r\n",
+        out.toString());
+  }
+
+  @Test
+  public void ndjson_has_one_object_per_line_without_nulls() throws Exception {
+    StringWriter out = new StringWriter();
+    try (ExportRowWriter writer = new NdjsonRowWriter(out, FIELDS, new ObjectMapper())) {
+      writer.write(new Object[] {1L, "A", "b"});
+      writer.write(new Object[] {2L, "B", null});
+    }
+
+    assertEquals(
+        "{\"id\":1,\"name\":\"A\",\"description\":\"b\"}\n{\"id\":2,\"name\":\"B\"}\n",
+        out.toString());
+  }
+
+  @Test
+  public void csv_export_can_be_imported_again() throws Exception {
+    StringWriter out = new StringWriter();
+    try (ExportRowWriter writer = new CsvRowWriter(out, FIELDS)) {
+      writer.write(new Object[] {1L, "A, Inc.", "say \"hi\"\r\nthere"});
+    }
+
+    ImportRowReader rows =
+        ImportFormat.CSV.open(
+            new BufferedReader(new StringReader(out.toString())), new ObjectMapper());
+    assertEquals(
+        Map.of("id", "1", "name", "A, Inc.", "description", "say \"hi\"\r\nthere"), rows.next());
+    assertNull(rows.next());
+  }
+}
@@ -0,0 +1,276 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.BulkImportJob;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobLogWriter;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class BulkImportServiceTests {
+
+  @Mock private JobService jobService;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Spy
+  private TransactionTemplate transactionTemplate =
+      new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @InjectMocks private BulkImportService bulkImportService;
+
+  @TempDir Path tempDir;
+
+  private final List<String> logged = new ArrayList<>();
+
+  private final List<List<Object[]>> batches = new ArrayList<>();
+
+  private JobContext ctx;
+
+  private static final String HEADER = "name,description\n";
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(bulkImportService, "batchSize", 2);
+    ReflectionTestUtils.setField(bulkImportService, "progressInterval", 3);
+    ReflectionTestUtils.setField(bulkImportService, "maxErrors", 2);
+    JobLogWriter logWriter = mock(JobLogWriter.class);
+    doAnswer(invocation -> logged.add(invocation.getArgument(0))).when(logWriter).append(any());
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenAnswer(
+            invocation -> {
+              List<Object[]> batch = invocation.getArgument(1);
+              batches.add(List.copyOf(batch));
+              return new int[batch.size()];
+            });
+    ctx = new JobContext(logWriter, Job.builder().id(1L).build());
+  }
+
+  private Path upload(String text) throws Exception {
+    Path file = tempDir.resolve("upload.csv");
+    Files.writeString(file, text);
+    return file;
+  }
+
+  @Test
+  public void launch_saves_the_upload_and_runs_a_local_job() throws Exception {
+    // arrange
+    Job job = Job.builder().id(5L).status("running").build();
+    when(jobService.runAsJob(any())).thenReturn(job);
+
+    // act
+    Job result =
+        bulkImportService.launch(
+            ImportTable.RESTAURANTS,
+            "text/csv",
+            new ByteArrayInputStream((HEADER + "A,b\n").getBytes(StandardCharsets.UTF_8)));
+
+    // assert
+    assertEquals(job, result);
+    ArgumentCaptor<BulkImportJob> jobFunction = ArgumentCaptor.forClass(BulkImportJob.class);
+    verify(jobService, times(1)).runAsJob(jobFunction.capture());
+    Path file = (Path) ReflectionTestUtils.getField(jobFunction.getValue(), "file");
+    assertEquals(HEADER + "A,b\n", Files.readString(file));
+    assertEquals(
+        ImportTable.RESTAURANTS, ReflectionTestUtils.getField(jobFunction.getValue(), "table"));
+    assertEquals(ImportFormat.CSV, ReflectionTestUtils.getField(jobFunction.getValue(), "format"));
+    Files.delete(file);
+  }
+
+  @Test
+  public void launch_deletes_the_upload_if_the_job_is_rejected() throws Exception {
+    when(jobService.runAsJob(any())).thenReturn(Job.builder().status("rejected").build());
+
+    bulkImportService.launch(
+        ImportTable.RESTAURANTS, "text/csv", new ByteArrayInputStream(new byte[0]));
+
+    ArgumentCaptor<BulkImportJob> jobFunction = ArgumentCaptor.forClass(BulkImportJob.class);
+    verify(jobService, times(1)).runAsJob(jobFunction.capture());
+    assertFalse(Files.exists((Path) ReflectionTestUtils.getField(jobFunction.getValue(), "file")));
+  }
+
+  @Test
+  public void launch_deletes_the_upload_if_it_cannot_be_saved() throws Exception {
+    // arrange
+    InputStream failing =
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("connection reset");
+          }
+        };
+    List<Path> before;
+    try (Stream<Path> files = Files.list(tempDirectory())) {
+      before = files.filter(f -> f.getFileName().toString().startsWith("import-")).toList();
+    }
+
+    // act
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () -> bulkImportService.launch(ImportTable.RESTAURANTS, "text/csv", failing));
+
+    // assert
+    assertEquals("connection reset", e.getMessage());
+    verify(jobService, never()).runAsJob(any());
+    try (Stream<Path> files = Files.list(tempDirectory())) {
+      assertEquals(
+          before, files.filter(f -> f.getFileName().toString().startsWith("import-")).toList());
+    }
+  }
+
+  private static Path tempDirectory() {
+    return Path.of(System.getProperty("java.io.tmpdir"));
+  }
+
+  @Test
+  public void the_job_imports_its_file() throws Exception {
+    // arrange
+    BulkImportService service = mock(BulkImportService.class);
+    Path file = tempDir.resolve("upload.csv");
+    BulkImportJob job =
+        BulkImportJob.builder()
+            .bulkImportService(service)
+            .table(ImportTable.RESTAURANTS)
+            .format(ImportFormat.CSV)
+            .file(file)
+            .build();
+
+    // act
+    job.accept(ctx);
+
+    // assert
+    verify(service).importFile(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV, file);
+  }
+
+  @Test
+  public void rows_are_inserted_in_batches_and_the_upload_deleted() throws Exception {
+    // arrange
+    Path file = upload(HEADER + "A,a\nB,\nC,c\n");
+
+    // act
+    bulkImportService.importFile(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV, file);
+
+    // assert
+    assertEquals(2, batches.size());
+    assertEquals(List.of("A", "a"), List.of(batches.get(0).get(0)));
+    assertEquals("B", batches.get(0).get(1)[0]);
+    assertNull(batches.get(0).get(1)[1]);
+    assertEquals(List.of("C", "c"), List.of(batches.get(1).get(0)));
+    assertFalse(Files.exists(file));
+    assertEquals(
+        List.of(
+            "Importing CSV into restaurants",
+            "3 rows read, 2 imported, 0 rejected",
+            "Import finished: 3 rows read, 3 imported, 0 rejected"),
+        logged);
+    assertEquals(
+        Map.of("rowsRead", 3L, "rowsImported", 3L, "rowsRejected", 0L),
+        ReflectionTestUtils.invokeMethod(ctx, "getResult"));
+  }
+
+  @Test
+  public void invalid_rows_are_logged_and_skipped() throws Exception {
+    Path file = upload(HEADER + "A,a\n,b\nC\n");
+
+    bulkImportService.importFile(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV, file);
+
+    assertEquals(1, batches.size());
+    assertEquals(1, batches.get(0).size());
+    assertTrue(logged.contains("Row 2 rejected: name is missing"));
+    assertTrue(logged.contains("Row 3 rejected: expected 2 fields but found 1"));
+    assertTrue(logged.contains("Import finished: 3 rows read, 1 imported, 2 rejected"));
+  }
+
+  @Test
+  public void too_many_invalid_rows_stop_the_import() throws Exception {
+    Path file = upload(HEADER + ",a\n,b\n,c\nD,d\n");
+
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                bulkImportService.importFile(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV, file));
+
+    assertEquals("Import stopped: more than 2 rows were rejected", e.getMessage());
+    assertEquals(0, batches.size());
+    assertFalse(Files.exists(file));
+    assertEquals(
+        Map.of("rowsRead", 3L, "rowsImported", 0L, "rowsRejected", 3L),
+        ReflectionTestUtils.invokeMethod(ctx, "getResult"));
+  }
+
+  @Test
+  public void refused_batch_is_retried_one_row_at_a_time() throws Exception {
+    // arrange
+    Path file = upload(HEADER + "A,a\nB,b\n");
+    doThrow(new DataIntegrityViolationException("batch failed"))
+        .when(jdbcTemplate)
+        .batchUpdate(eq(ImportTable.RESTAURANTS.getInsertSql()), anyList());
+    when(jdbcTemplate.update(eq(ImportTable.RESTAURANTS.getInsertSql()), any(Object[].class)))
+        .thenReturn(1)
+        .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+    // act
+    bulkImportService.importFile(ctx, ImportTable.RESTAURANTS, ImportFormat.CSV, file);
+
+    // assert
+    verify(jdbcTemplate, times(2))
+        .update(eq(ImportTable.RESTAURANTS.getInsertSql()), any(Object[].class));
+    assertTrue(logged.contains("Row 2 rejected: duplicate key"));
+    assertTrue(logged.contains("Import finished: 2 rows read, 1 imported, 1 rejected"));
+  }
+
+  @Test
+  public void ndjson_uploads_are_imported() throws Exception {
+    Path file = upload("{\"name\":\"A\",\"description\":\"a\"}\nnot json\n");
+
+    bulkImportService.importFile(ctx, ImportTable.RESTAURANTS, ImportFormat.NDJSON, file);
+
+    assertEquals(List.of("A", "a"), List.of(batches.get(0).get(0)));
+    assertTrue(logged.get(1).startsWith("Row 2 rejected: not valid JSON"));
+  }
+}
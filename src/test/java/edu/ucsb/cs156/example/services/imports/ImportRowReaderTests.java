@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ImportRowReaderTests {
+
+  private ImportRowReader open(ImportFormat format, String text) throws Exception {
+    return format.open(new BufferedReader(new StringReader(text)), new ObjectMapper());
+  }
+
+  @Test
+  public void csv_rows_are_named_by_the_header() throws Exception {
+    ImportRowReader rows = open(ImportFormat.CSV, "\uFEFFname,description\r\nA,b\r\n\r\nC,\n");
+
+    assertEquals(Map.of("name", "A", "description", "b"), rows.next());
+    assertEquals(Map.of("name", "C", "description", ""), rows.next());
+    assertNull(rows.next());
+  }
+
+  @Test
+  public void csv_fields_may_be_quoted() throws Exception {
+    ImportRowReader rows =
+        open(ImportFormat.CSV, "name,description\n\"A, Inc.\",\"say \"\"hi\"\"\nthere\"\n");
+
+    assertEquals(Map.of("name", "A, Inc.", "description", "say \"hi\"\nthere"), rows.next());
+    assertNull(rows.next());
+  }
+
+  @Test
+  public void quotes_inside_unquoted_csv_fields_are_kept() throws Exception {
+    ImportRowReader rows = open(ImportFormat.CSV, "name,description\nA,say \"hi\"\nB,c");
+
+    assertEquals(Map.of("name", "A", "description", "say \"hi\""), rows.next());
+    assertEquals(Map.of("name", "B", "description", "c"), rows.next());
+    assertNull(rows.next());
+  }
+
+  @Test
+  public void malformed_csv_rows_are_skipped() throws Exception {
+    ImportRowReader rows = open(ImportFormat.CSV, "name,description\nA\nB,c\nD,\"open");
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, rows::next);
+    assertEquals("expected 2 fields but found 1", e.getMessage());
+    assertEquals(Map.of("name", "B", "description", "c"), rows.next());
+    e = assertThrows(IllegalArgumentException.class, rows::next);
+    assertEquals("quoted field is not closed", e.getMessage());
+    assertNull(rows.next());
+  }
+
+  @Test
+  public void empty_csv_has_no_rows() throws Exception {
+    assertNull(open(ImportFormat.CSV, "").next());
+  }
+
+  @Test
+  public void ndjson_values_are_read_as_text() throws Exception {
+    ImportRowReader rows =
+        open(
+            ImportFormat.NDJSON,
+            "{\"itemId\":7,\"solved\":true,\"comments\":null,\"name\":\"x\"}\n\n{\"a\":[1]}\n");
+
+    assertEquals(Map.of("itemId", "7", "solved", "true", "name", "x"), rows.next());
+    assertEquals(Map.of("a", "[1]"), rows.next());
+    assertNull(rows.next());
+  }
+
+  @Test
+  public void malformed_ndjson_lines_are_skipped() throws Exception {
+    ImportRowReader rows = open(ImportFormat.NDJSON, "{\"a\":\n[1,2]\n{\"b\":\"c\"}\n");
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, rows::next);
+    assertEquals(true, e.getMessage().startsWith("not valid JSON"));
+    e = assertThrows(IllegalArgumentException.class, rows::next);
+    assertEquals("not a JSON object", e.getMessage());
+    assertEquals(Map.of("b", "c"), rows.next());
+  }
+
+  @Test
+  public void format_comes_from_the_content_type() {
+    assertEquals(ImportFormat.CSV, ImportFormat.fromContentType("text/csv;charset=UTF-8"));
+    assertEquals(ImportFormat.NDJSON, ImportFormat.fromContentType("application/x-ndjson"));
+    assertEquals("text/csv", ImportFormat.CSV.getMediaType().toString());
+    assertThrows(
+        IllegalArgumentException.class, () -> ImportFormat.fromContentType("application/json"));
+  }
+}
@@ -0,0 +1,131 @@
+package edu.ucsb.cs156.example.services.imports;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ImportTableTests {
+
+  private Map<String, String> review() {
+    Map<String, String> row = new HashMap<>();
+    row.put("itemId", "7");
+    row.put("reviewerEmail", "cgaucho@ucsb.edu");
+    row.put("stars", " 5 ");
+    row.put("dateReviewed", "2022-01-03T00:00:00");
+    row.put("comments", "tasty");
+    row.put("ignored", "x");
+    return row;
+  }
+
+  private String error(Map<String, String> row) {
+    return assertThrows(
+            IllegalArgumentException.class, () -> ImportTable.MENU_ITEM_REVIEWS.toValues(row))
+        .getMessage();
+  }
+
+  @Test
+  public void insert_names_each_column() {
+    assertEquals(
+        "INSERT INTO menuitemreviews (item_id, reviewer_email, stars, date_reviewed, comments)"
+            + " VALUES (?, ?, ?, ?, ?)",
+        ImportTable.MENU_ITEM_REVIEWS.getInsertSql());
+    assertEquals(
+        "INSERT INTO restaurants (name, description) VALUES (?, ?)",
+        ImportTable.RESTAURANTS.getInsertSql());
+  }
+
+  @Test
+  public void export_selects_the_id_then_each_column() {
+    assertEquals(
+        "SELECT id, item_id, reviewer_email, stars, date_reviewed, comments FROM menuitemreviews"
+            + " ORDER BY id",
+        ImportTable.MENU_ITEM_REVIEWS.getSelectSql());
+    assertEquals(
+        List.of("id", "itemId", "reviewerEmail", "stars", "dateReviewed", "comments"),
+        ImportTable.MENU_ITEM_REVIEWS.getExportFields());
+    assertEquals(
+        "SELECT code, name, has_sack_meal, has_take_out_meal, has_dining_cam, latitude, longitude"
+            + " FROM ucsbdiningcommons ORDER BY code",
+        ImportTable.DINING_COMMONS.getSelectSql());
+  }
+
+  @Test
+  public void columns_are_in_insert_order() {
+    assertEquals(
+        List.of("name", "description"),
+        ImportTable.RESTAURANTS.getColumns().stream().map(ImportColumn::field).toList());
+  }
+
+  @Test
+  public void valid_row_is_converted_in_column_order() {
+    assertArrayEquals(
+        new Object[] {7L, "cgaucho@ucsb.edu", 5, LocalDateTime.of(2022, 1, 3, 0, 0), "tasty"},
+        ImportTable.MENU_ITEM_REVIEWS.toValues(review()));
+  }
+
+  @Test
+  public void optional_fields_may_be_left_out() {
+    Map<String, String> row = review();
+    row.remove("comments");
+
+    assertEquals(null, ImportTable.MENU_ITEM_REVIEWS.toValues(row)[4]);
+  }
+
+  @Test
+  public void invalid_fields_are_named() {
+    Map<String, String> row = review();
+    row.remove("reviewerEmail");
+    assertEquals("reviewerEmail is missing", error(row));
+
+    row = review();
+    row.put("stars", "6");
+    assertEquals("stars is not valid: must be from 0 to 5", error(row));
+
+    row = review();
+    row.put("stars", "-1");
+    assertEquals("stars is not valid: must be from 0 to 5", error(row));
+
+    row = review();
+    row.put("itemId", "seven");
+    assertEquals("itemId is not valid: For input string: \"seven\"", error(row));
+
+    row = review();
+    row.put("reviewerEmail", "cgaucho");
+    assertEquals("reviewerEmail is not valid: not an email address", error(row));
+
+    row = review();
+    row.put("dateReviewed", "yesterday");
+    assertEquals(true, error(row).startsWith("dateReviewed is not valid: Text 'yesterday'"));
+
+    row = review();
+    row.put("comments", "x".repeat(256));
+    assertEquals("comments is not valid: longer than 255 characters", error(row));
+  }
+
+  @Test
+  public void booleans_and_doubles_are_converted() {
+    Map<String, String> row = new HashMap<>();
+    row.put("code", "ortega");
+    row.put("name", "Ortega");
+    row.put("hasSackMeal", "TRUE");
+    row.put("hasTakeOutMeal", "false");
+    row.put("hasDiningCam", "true");
+    row.put("latitude", "34.41");
+
+    assertArrayEquals(
+        new Object[] {"ortega", "Ortega", true, false, true, 34.41, null},
+        ImportTable.DINING_COMMONS.toValues(row));
+
+    row.put("hasDiningCam", "yes");
+    assertEquals(
+        "hasDiningCam is not valid: must be true or false",
+        assertThrows(IllegalArgumentException.class, () -> ImportTable.DINING_COMMONS.toValues(row))
+            .getMessage());
+  }
+}
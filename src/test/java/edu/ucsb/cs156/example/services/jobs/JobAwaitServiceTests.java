@@ -0,0 +1,159 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+
+public class JobAwaitServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @InjectMocks private JobAwaitService jobAwaitService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobAwaitService, "maxTimeoutMs", 60000L);
+  }
+
+  private Job job(long id, String status) {
+    return Job.builder().id(id).status(status).build();
+  }
+
+  @Test
+  public void await_of_finished_job_returns_it_right_away() {
+    // arrange
+    Job job = job(1L, "complete");
+    when(jobsRepository.findById(1L)).thenReturn(Optional.of(job));
+
+    // act
+    DeferredResult<Job> result = jobAwaitService.await(1L, 5000);
+
+    // assert
+    assertEquals(job, result.getResult());
+    jobAwaitService.pollWaiting();
+    verify(jobsRepository, never()).findByIdInAndStatusIn(any(), any());
+  }
+
+  @Test
+  public void await_of_running_job_returns_it_when_it_finishes() {
+    // arrange
+    when(jobsRepository.findById(2L)).thenReturn(Optional.of(job(2L, "running")));
+    DeferredResult<Job> first = jobAwaitService.await(2L, 5000);
+    DeferredResult<Job> second = jobAwaitService.await(2L, 5000);
+    assertFalse(first.hasResult());
+
+    // act
+    Job finished = job(2L, "complete");
+    jobAwaitService.jobFinished(finished);
+    jobAwaitService.jobFinished(job(3L, "complete"));
+
+    // assert
+    assertEquals(finished, first.getResult());
+    assertEquals(finished, second.getResult());
+  }
+
+  @Test
+  public void await_of_missing_job_is_not_found() {
+    when(jobsRepository.findById(4L)).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> jobAwaitService.await(4L, 5000));
+
+    jobAwaitService.pollWaiting();
+    verify(jobsRepository, never()).findByIdInAndStatusIn(any(), any());
+  }
+
+  @Test
+  public void polling_finds_jobs_finished_on_other_nodes() {
+    // arrange
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job(5L, "running")));
+    DeferredResult<Job> result = jobAwaitService.await(5L, 5000);
+    Job finished = job(5L, "error");
+    when(jobsRepository.findByIdInAndStatusIn(List.of(5L), JobService.FINISHED_STATUSES))
+        .thenReturn(List.of(finished));
+
+    // act
+    jobAwaitService.pollWaiting();
+    jobAwaitService.pollWaiting();
+
+    // assert
+    assertEquals(finished, result.getResult());
+    verify(jobsRepository, times(1)).findByIdInAndStatusIn(any(), any());
+  }
+
+  @Test
+  public void timeout_is_capped_and_returns_the_job_as_it_is() throws Exception {
+    // arrange
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job(6L, "running")));
+    DeferredResult<Job> result = jobAwaitService.await(6L, 3600000);
+    Job stillRunning = job(6L, "running");
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(stillRunning));
+
+    // act
+    DeferredResultProcessingInterceptor interceptor =
+        ReflectionTestUtils.invokeMethod(result, "getLifecycleInterceptor");
+    interceptor.handleTimeout(null, result);
+
+    // assert
+    assertEquals(60000L, (Long) ReflectionTestUtils.invokeMethod(result, "getTimeoutValue"));
+    assertEquals(stillRunning, result.getResult());
+    jobAwaitService.pollWaiting();
+    verify(jobsRepository, never()).findByIdInAndStatusIn(any(), any());
+  }
+
+  @Test
+  public void other_requests_keep_waiting_after_one_times_out() throws Exception {
+    // arrange
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job(6L, "running")));
+    DeferredResult<Job> timedOut = jobAwaitService.await(6L, 1000);
+    DeferredResult<Job> waiting = jobAwaitService.await(6L, 1000);
+
+    // act
+    DeferredResultProcessingInterceptor interceptor =
+        ReflectionTestUtils.invokeMethod(timedOut, "getLifecycleInterceptor");
+    interceptor.handleTimeout(null, timedOut);
+
+    // assert
+    assertFalse(waiting.hasResult());
+    Job finished = job(6L, "complete");
+    jobAwaitService.jobFinished(finished);
+    assertEquals(finished, waiting.getResult());
+  }
+
+  @Test
+  public void job_deleted_while_waiting_is_not_found_at_timeout() throws Exception {
+    // arrange
+    when(jobsRepository.findById(7L)).thenReturn(Optional.of(job(7L, "queued")));
+    DeferredResult<Job> result = jobAwaitService.await(7L, 0);
+    when(jobsRepository.findById(7L)).thenReturn(Optional.empty());
+
+    // act
+    DeferredResultProcessingInterceptor interceptor =
+        ReflectionTestUtils.invokeMethod(result, "getLifecycleInterceptor");
+    interceptor.handleTimeout(null, result);
+
+    // assert
+    assertEquals(1L, (Long) ReflectionTestUtils.invokeMethod(result, "getTimeoutValue"));
+    assertTrue(result.getResult() instanceof EntityNotFoundException);
+  }
+}
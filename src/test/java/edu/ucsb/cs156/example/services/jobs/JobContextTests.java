@@ -1,23 +1,140 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void log_appends_numbered_lines_without_touching_the_job() throws Exception {
 
     // arrange
 
-    Job job1 = Job.builder().build();
-    JobContext ctx = new JobContext(null, job1);
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(new JobLogWriter(jobLogLinesRepository, 7L), job1);
 
     // act
     ctx.log("This is a log message");
+    ctx.log("This is another log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(7L)
+                    .lineNumber(0)
+                    .content("This is a log message")
+                    .build()));
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(7L)
+                    .lineNumber(1)
+                    .content("This is another log message")
+                    .build()));
+  }
+
+  @Test
+  public void flush_writes_buffered_lines() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx =
+        new JobContext(new JobLogWriter(jobLogLinesRepository, 7L, 0, 100, 1000), job1);
+
+    // act
+    ctx.log("This is a log message");
+    verify(jobLogLinesRepository, times(0)).saveAll(any());
+    ctx.flush();
+
+    // assert
+
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(7L)
+                    .lineNumber(0)
+                    .content("This is a log message")
+                    .build()));
+  }
+
+  @Test
+  public void checkCancelled_throws_only_once_cancelled() {
+    JobContext ctx = new JobContext(mock(JobLogWriter.class), Job.builder().id(7L).build());
+
+    assertFalse(ctx.isCancelled());
+    ctx.checkCancelled();
+
+    ctx.cancel("timed_out");
+    ctx.cancel("cancelled");
+
+    assertTrue(ctx.isCancelled());
+    assertEquals("timed_out", ctx.getCancelStatus());
+    JobCancelledException e = assertThrows(JobCancelledException.class, ctx::checkCancelled);
+    assertEquals("Job 7 was cancelled", e.getMessage());
+  }
+
+  @Test
+  public void cancel_interrupts_the_job_only_while_it_runs() {
+    JobContext ctx = new JobContext(mock(JobLogWriter.class), Job.builder().id(7L).build());
+
+    ctx.cancel("cancelled");
+    assertFalse(Thread.currentThread().isInterrupted());
+
+    ctx.start();
+    ctx.cancel("cancelled");
+    assertTrue(Thread.currentThread().isInterrupted());
+
+    ctx.finish();
+    assertFalse(Thread.currentThread().isInterrupted());
+    ctx.cancel("cancelled");
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void putResult_and_addToResult_build_a_summary() {
+    JobContext ctx = new JobContext(mock(JobLogWriter.class), Job.builder().id(7L).build());
+
+    assertEquals(null, ctx.getResult());
+    ctx.putResult("file", "users.csv");
+    ctx.addToResult("rows", 2);
+    ctx.addToResult("rows", 3);
+    ctx.addToResult("errors", 0);
+
+    assertEquals(Map.of("file", "users.csv", "rows", 5L, "errors", 0L), ctx.getResult());
+    assertEquals(
+        List.of("file", "rows", "errors"), List.copyOf(((Map<?, ?>) ctx.getResult()).keySet()));
+  }
+
+  @Test
+  public void setResult_replaces_the_summary() {
+    JobContext ctx = new JobContext(mock(JobLogWriter.class), Job.builder().id(7L).build());
+
+    ctx.addToResult("rows", 2);
+    ctx.setResult(List.of(1, 2));
+    assertEquals(List.of(1, 2), ctx.getResult());
+
+    ctx.addToResult("rows", 1);
+    assertEquals(Map.of("rows", 1L), ctx.getResult());
   }
 }
@@ -0,0 +1,320 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobDispatchServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private ThreadPoolTaskExecutor jobExecutor;
+
+  @Mock private JobService jobService;
+
+  @Spy private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @InjectMocks private JobDispatchService jobDispatchService;
+
+  private final JobContextConsumer jobFunction = ctx -> {};
+
+  private final ZonedDateTime now = ZonedDateTime.now();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobDispatchService, "maxRunningPerUser", 0);
+    ReflectionTestUtils.setField(jobDispatchService, "agingIntervalMs", 60000L);
+    ReflectionTestUtils.setField(jobDispatchService, "maxWaiting", 10);
+    when(jobExecutor.getCorePoolSize()).thenReturn(1);
+  }
+
+  private Job job(long id, User user, int priority, ZonedDateTime queuedAt) {
+    return Job.builder()
+        .id(id)
+        .status("running")
+        .createdBy(user)
+        .priority(priority)
+        .queuedAt(queuedAt)
+        .build();
+  }
+
+  @Test
+  public void dispatch_time_moves_earlier_with_priority() {
+    Job urgent = job(1L, null, 2, now);
+    Job bulk = job(2L, null, -1, now);
+
+    jobDispatchService.setDispatchAt(urgent);
+    jobDispatchService.setDispatchAt(bulk);
+
+    assertEquals(now.minusMinutes(2), urgent.getDispatchAt());
+    assertEquals(now.plusMinutes(1), bulk.getDispatchAt());
+  }
+
+  @Test
+  public void job_starts_right_away_when_a_thread_is_free() {
+    Job job = job(1L, null, 0, now);
+
+    jobDispatchService.submit(job, jobFunction);
+
+    assertEquals("running", job.getStatus());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobService, times(1)).runJobAsync(job, jobFunction);
+  }
+
+  @Test
+  public void waiting_jobs_start_by_priority_as_threads_free_up() {
+    // arrange
+    Job first = job(1L, null, 0, now);
+    Job bulk = job(2L, null, 0, now);
+    Job urgent = job(3L, null, 5, now.plusSeconds(1));
+    jobDispatchService.submit(first, jobFunction);
+
+    // act
+    jobDispatchService.submit(bulk, jobFunction);
+    jobDispatchService.submit(urgent, jobFunction);
+
+    // assert
+    assertEquals("queued", bulk.getStatus());
+    assertEquals("queued", urgent.getStatus());
+    verify(jobService, never()).runJobAsync(bulk, jobFunction);
+
+    jobDispatchService.jobFinished(first);
+    assertEquals("running", urgent.getStatus());
+    assertEquals("queued", bulk.getStatus());
+
+    jobDispatchService.jobFinished(urgent);
+    assertEquals("running", bulk.getStatus());
+
+    InOrder order = inOrder(jobService);
+    order.verify(jobService).runJobAsync(first, jobFunction);
+    order.verify(jobService).runJobAsync(urgent, jobFunction);
+    order.verify(jobService).runJobAsync(bulk, jobFunction);
+  }
+
+  @Test
+  public void jobs_that_waited_long_enough_go_before_higher_priorities() {
+    // arrange
+    Job first = job(1L, null, 0, now);
+    Job old = job(2L, null, 0, now.minusMinutes(10));
+    Job urgent = job(3L, null, 5, now);
+    jobDispatchService.submit(first, jobFunction);
+    jobDispatchService.submit(urgent, jobFunction);
+    jobDispatchService.submit(old, jobFunction);
+
+    // act
+    jobDispatchService.jobFinished(first);
+
+    // assert
+    assertEquals("running", old.getStatus());
+    assertEquals("queued", urgent.getStatus());
+  }
+
+  @Test
+  public void users_are_held_to_their_limit() {
+    // arrange
+    when(jobExecutor.getCorePoolSize()).thenReturn(4);
+    ReflectionTestUtils.setField(jobDispatchService, "maxRunningPerUser", 1);
+    User heavy = User.builder().id(1L).build();
+    User light = User.builder().id(2L).build();
+    Job heavy1 = job(1L, heavy, 0, now);
+    Job heavy2 = job(2L, heavy, 9, now);
+    Job light1 = job(3L, light, 0, now);
+    Job system1 = job(4L, null, 0, now);
+    Job system2 = job(5L, null, 0, now);
+
+    // act
+    jobDispatchService.submit(heavy1, jobFunction);
+    jobDispatchService.submit(heavy2, jobFunction);
+    jobDispatchService.submit(light1, jobFunction);
+    jobDispatchService.submit(system1, jobFunction);
+
+    // assert
+    assertEquals("running", heavy1.getStatus());
+    assertEquals("queued", heavy2.getStatus());
+    assertEquals("running", light1.getStatus());
+    assertEquals("running", system1.getStatus());
+
+    jobDispatchService.jobFinished(light1);
+    assertEquals("queued", heavy2.getStatus());
+
+    jobDispatchService.jobFinished(heavy1);
+    assertEquals("running", heavy2.getStatus());
+
+    jobDispatchService.submit(system2, jobFunction);
+    assertEquals("running", system2.getStatus());
+  }
+
+  @Test
+  public void claimed_jobs_share_threads_and_user_limits_with_other_jobs() {
+    // arrange
+    when(jobExecutor.getCorePoolSize()).thenReturn(2);
+    ReflectionTestUtils.setField(jobDispatchService, "maxRunningPerUser", 1);
+    User user = User.builder().id(1L).build();
+    Job claimed = job(1L, user, 0, now);
+    Job sameUser = job(2L, user, 0, now);
+    Job otherUser = job(3L, User.builder().id(2L).build(), 0, now);
+    Job noRoom = job(4L, null, 0, now);
+
+    // act
+    jobDispatchService.startClaimed(claimed, jobFunction);
+    jobDispatchService.submit(sameUser, jobFunction);
+    jobDispatchService.startClaimed(otherUser, jobFunction);
+
+    // assert
+    verify(jobService, times(1)).runJobAsync(claimed, jobFunction);
+    verify(jobsRepository, never()).save(claimed);
+    assertEquals("queued", sameUser.getStatus());
+    assertEquals(0, jobDispatchService.getFreeThreads());
+    TaskRejectedException e =
+        assertThrows(
+            TaskRejectedException.class,
+            () -> jobDispatchService.startClaimed(noRoom, jobFunction));
+    assertEquals("Job 4 cannot start on this node yet", e.getMessage());
+
+    jobDispatchService.jobFinished(claimed);
+    assertEquals("running", sameUser.getStatus());
+    assertEquals(0, jobDispatchService.getFreeThreads());
+    jobDispatchService.jobFinished(sameUser);
+    assertEquals(1, jobDispatchService.getFreeThreads());
+  }
+
+  @Test
+  public void job_is_rejected_when_too_many_are_waiting() {
+    // arrange
+    ReflectionTestUtils.setField(jobDispatchService, "maxWaiting", 1);
+    jobDispatchService.submit(job(1L, null, 0, now), jobFunction);
+    jobDispatchService.submit(job(2L, null, 0, now), jobFunction);
+    Job rejected = job(3L, null, 0, now);
+
+    // act & assert
+    TaskRejectedException e =
+        assertThrows(
+            TaskRejectedException.class, () -> jobDispatchService.submit(rejected, jobFunction));
+    assertEquals("1 jobs are already waiting", e.getMessage());
+    verify(jobsRepository, never()).save(rejected);
+  }
+
+  @Test
+  public void removed_job_never_starts() {
+    // arrange
+    Job first = job(1L, null, 0, now);
+    Job cancelled = job(2L, null, 0, now);
+    jobDispatchService.submit(first, jobFunction);
+    jobDispatchService.submit(cancelled, jobFunction);
+
+    // act
+    assertFalse(jobDispatchService.remove(3L));
+    assertTrue(jobDispatchService.remove(2L));
+    assertFalse(jobDispatchService.remove(2L));
+    jobDispatchService.jobFinished(first);
+
+    // assert
+    verify(jobService, never()).runJobAsync(cancelled, jobFunction);
+  }
+
+  @Test
+  public void job_rejected_by_the_executor_frees_its_place() {
+    // arrange
+    ReflectionTestUtils.setField(jobDispatchService, "maxRunningPerUser", 1);
+    User user = User.builder().id(1L).build();
+    Job rejected = job(1L, user, 0, now);
+    Job next = job(2L, user, 0, now);
+    doThrow(new TaskRejectedException("full")).when(jobService).runJobAsync(rejected, jobFunction);
+
+    // act
+    assertThrows(
+        TaskRejectedException.class, () -> jobDispatchService.submit(rejected, jobFunction));
+    jobDispatchService.submit(next, jobFunction);
+
+    // assert
+    assertEquals("running", next.getStatus());
+  }
+
+  @Test
+  public void waiting_job_rejected_by_the_executor_keeps_waiting() {
+    // arrange
+    Job first = job(1L, null, 0, now);
+    Job waiting = job(2L, null, 0, now);
+    jobDispatchService.submit(first, jobFunction);
+    jobDispatchService.submit(waiting, jobFunction);
+    doThrow(new TaskRejectedException("full"))
+        .doNothing()
+        .when(jobService)
+        .runJobAsync(waiting, jobFunction);
+
+    // act
+    jobDispatchService.jobFinished(first);
+
+    // assert
+    assertEquals("queued", waiting.getStatus());
+    verify(jobsRepository, times(3)).save(waiting);
+
+    jobDispatchService.dispatch();
+    assertEquals("running", waiting.getStatus());
+    verify(jobService, times(2)).runJobAsync(waiting, jobFunction);
+  }
+
+  @Test
+  public void finishing_job_started_elsewhere_still_starts_waiting_jobs() {
+    // arrange
+    when(jobExecutor.getCorePoolSize()).thenReturn(0);
+    Job waiting = job(2L, null, 0, now);
+    jobDispatchService.submit(waiting, jobFunction);
+    when(jobExecutor.getCorePoolSize()).thenReturn(1);
+
+    // act
+    jobDispatchService.jobFinished(job(9L, null, 0, now));
+
+    // assert
+    assertEquals("running", waiting.getStatus());
+    verify(jobService, times(1)).runJobAsync(any(), any());
+  }
+
+  @Test
+  public void max_running_per_user_is_exposed_for_the_queue() {
+    ReflectionTestUtils.setField(jobDispatchService, "maxRunningPerUser", 3);
+
+    assertEquals(3, jobDispatchService.getMaxRunningPerUser());
+  }
+
+  @Test
+  public void waiting_jobs_are_counted_in_a_gauge() {
+    // arrange
+    jobDispatchService.registerMetrics();
+    jobDispatchService.submit(job(1L, null, 0, now), jobFunction);
+    jobDispatchService.submit(job(2L, null, 0, now), jobFunction);
+    jobDispatchService.submit(job(3L, null, 0, now), jobFunction);
+
+    // act
+    double waiting = meterRegistry.get("jobs.dispatch.waiting").gauge().value();
+
+    // assert
+    assertEquals(2.0, waiting);
+    assertEquals(2, jobDispatchService.getWaitingCount());
+  }
+}
@@ -0,0 +1,319 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockedConstruction;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLogServiceTests {
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @Mock private JobLogStreamService jobLogStreamService;
+
+  @InjectMocks private JobLogService jobLogService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogService, "maxBufferedLines", 100);
+    ReflectionTestUtils.setField(jobLogService, "maxBufferedChars", 1000);
+    ReflectionTestUtils.setField(jobLogService, "flushIntervalMs", 0L);
+    ReflectionTestUtils.setField(jobLogService, "compressEnabled", true);
+  }
+
+  private JobLogLine line(int lineNumber, String content) {
+    return JobLogLine.builder().jobId(5L).lineNumber(lineNumber).content(content).build();
+  }
+
+  @Test
+  public void unbuffered_writer_saves_every_line() {
+    JobLogWriter writer = jobLogService.openWriter(5L);
+
+    writer.append("a");
+
+    verify(jobLogLinesRepository, times(1)).saveAll(List.of(line(0, "a")));
+    verify(jobLogStreamService, times(1)).publish(List.of(line(0, "a")));
+  }
+
+  @Test
+  public void writer_continues_after_lines_already_logged() {
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(2);
+
+    jobLogService.appendLine(5L, "resumed");
+
+    verify(jobLogLinesRepository, times(1)).saveAll(List.of(line(2, "resumed")));
+  }
+
+  @Test
+  public void buffered_writer_is_flushed_periodically_until_closed() {
+    ReflectionTestUtils.setField(jobLogService, "bufferEnabled", true);
+    JobLogWriter writer = jobLogService.openWriter(5L);
+
+    writer.append("a");
+    verify(jobLogLinesRepository, times(0)).saveAll(any());
+
+    jobLogService.flushStaleWriters();
+    verify(jobLogLinesRepository, times(1)).saveAll(List.of(line(0, "a")));
+
+    writer.append("b");
+    jobLogService.closeWriter(writer);
+    verify(jobLogLinesRepository, times(1)).saveAll(List.of(line(1, "b")));
+
+    writer.append("c");
+    jobLogService.flushStaleWriters();
+    verify(jobLogLinesRepository, times(0)).saveAll(List.of(line(2, "c")));
+  }
+
+  @Test
+  public void periodic_flush_failure_keeps_other_writers_going() {
+    ReflectionTestUtils.setField(jobLogService, "bufferEnabled", true);
+    JobLogWriter writer = jobLogService.openWriter(5L);
+    when(jobLogLinesRepository.saveAll(any()))
+        .thenThrow(new RuntimeException("database unavailable"))
+        .thenReturn(List.of());
+
+    writer.append("a");
+    jobLogService.flushStaleWriters();
+    jobLogService.flushStaleWriters();
+
+    verify(jobLogLinesRepository, times(2)).saveAll(List.of(line(0, "a")));
+  }
+
+  @Test
+  public void close_stops_periodic_flushing_even_if_final_flush_fails() {
+    ReflectionTestUtils.setField(jobLogService, "bufferEnabled", true);
+    JobLogWriter writer = jobLogService.openWriter(5L);
+    doThrow(new RuntimeException("database unavailable"))
+        .when(jobLogLinesRepository)
+        .saveAll(any());
+
+    writer.append("a");
+    try {
+      jobLogService.closeWriter(writer);
+    } catch (RuntimeException e) {
+      // expected
+    }
+    jobLogService.flushStaleWriters();
+
+    verify(jobLogLinesRepository, times(1)).saveAll(List.of(line(0, "a")));
+  }
+
+  private void stubArchive(String log) {
+    int lineCount = log.split("\n", -1).length;
+    when(jobLogArchivesRepository.findById(5L))
+        .thenReturn(
+            Optional.of(
+                JobLogArchive.builder()
+                    .jobId(5L)
+                    .lineCount(lineCount)
+                    .content(JobLogService.gzip(log))
+                    .build()));
+    when(jobLogArchivesRepository.findLineCountByJobId(5L)).thenReturn(Optional.of(lineCount));
+  }
+
+  @Test
+  public void archive_compresses_the_log_and_deletes_its_lines() {
+    when(jobLogLinesRepository.findContentByJobId(5L)).thenReturn(Arrays.asList("a", null, "b"));
+
+    jobLogService.archive(5L);
+
+    ArgumentCaptor<JobLogArchive> archive = ArgumentCaptor.forClass(JobLogArchive.class);
+    verify(jobLogArchivesRepository, times(1)).save(archive.capture());
+    assertEquals(5L, archive.getValue().getJobId());
+    assertEquals(3, archive.getValue().getLineCount());
+    assertEquals(
+        List.of("a", "", "b"),
+        JobLogService.gunzipLines(archive.getValue().getContent(), 0, Integer.MAX_VALUE));
+    verify(jobLogLinesRepository, times(1)).deleteByJobIdAndLineNumberLessThan(5L, 3);
+  }
+
+  @Test
+  public void archive_skips_empty_and_archived_logs_and_can_be_disabled() {
+    jobLogService.archive(5L);
+
+    when(jobLogLinesRepository.findContentByJobId(5L)).thenReturn(List.of("a"));
+    when(jobLogArchivesRepository.existsById(5L)).thenReturn(true);
+    jobLogService.archive(5L);
+
+    when(jobLogArchivesRepository.existsById(5L)).thenReturn(false);
+    ReflectionTestUtils.setField(jobLogService, "compressEnabled", false);
+    jobLogService.archive(5L);
+
+    verify(jobLogArchivesRepository, times(0)).save(any());
+    verify(jobLogLinesRepository, times(0)).deleteByJobIdAndLineNumberLessThan(anyLong(), anyInt());
+  }
+
+  @Test
+  public void archive_leaves_lines_containing_newlines_alone() {
+    when(jobLogLinesRepository.findContentByJobId(5L)).thenReturn(List.of("a", "b\nc"));
+
+    jobLogService.archive(5L);
+
+    verify(jobLogArchivesRepository, times(0)).save(any());
+    verify(jobLogLinesRepository, times(0)).deleteByJobIdAndLineNumberLessThan(anyLong(), anyInt());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void multiline_message_reads_the_same_before_and_after_archive() {
+    // arrange
+    ArgumentCaptor<List<JobLogLine>> saved = ArgumentCaptor.forClass(List.class);
+    JobLogWriter writer = jobLogService.openWriter(5L);
+    writer.append("a\nb");
+    writer.append("c");
+    verify(jobLogLinesRepository, times(2)).saveAll(saved.capture());
+    List<JobLogLine> rows = saved.getAllValues().stream().flatMap(List::stream).toList();
+    when(jobLogLinesRepository.findContentByJobId(5L))
+        .thenReturn(rows.stream().map(JobLogLine::getContent).toList());
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L, 1, Limit.of(2)))
+        .thenReturn(rows.subList(1, 3));
+    List<JobLogLine> before = jobLogService.readLines(5L, 1, 2);
+
+    // act
+    jobLogService.archive(5L);
+
+    // assert
+    ArgumentCaptor<JobLogArchive> archive = ArgumentCaptor.forClass(JobLogArchive.class);
+    verify(jobLogArchivesRepository, times(1)).save(archive.capture());
+    assertEquals(rows.size(), archive.getValue().getLineCount());
+    verify(jobLogLinesRepository, times(1)).deleteByJobIdAndLineNumberLessThan(5L, 3);
+    when(jobLogArchivesRepository.findById(5L)).thenReturn(Optional.of(archive.getValue()));
+    when(jobLogArchivesRepository.findLineCountByJobId(5L)).thenReturn(Optional.of(3));
+    assertEquals(List.of(line(1, "b"), line(2, "c")), before);
+    assertEquals(before, jobLogService.readLines(5L, 1, 2));
+  }
+
+  @Test
+  public void lines_logged_after_the_archive_are_numbered_after_it() {
+    when(jobLogArchivesRepository.findLineCountByJobId(5L)).thenReturn(Optional.of(3));
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(1);
+
+    jobLogService.appendLine(5L, "late");
+
+    verify(jobLogLinesRepository, times(1)).saveAll(List.of(line(4, "late")));
+  }
+
+  @Test
+  public void readLines_reads_the_archive_then_the_lines_after_it() {
+    stubArchive("a\nb\nc");
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L, 3, Limit.of(2)))
+        .thenReturn(List.of(line(3, "d")));
+
+    assertEquals(
+        List.of(line(1, "b"), line(2, "c"), line(3, "d")), jobLogService.readLines(5L, 1, 4));
+    assertEquals(List.of(line(0, "a"), line(1, "b")), jobLogService.readLines(5L, 0, 2));
+    verify(jobLogLinesRepository, times(1))
+        .findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(anyLong(), anyInt(), any());
+  }
+
+  @Test
+  public void readLines_rereads_lines_archived_while_reading() {
+    // arrange
+    stubArchive("a\nb\nc");
+    when(jobLogArchivesRepository.findLineCountByJobId(5L))
+        .thenReturn(Optional.empty(), Optional.of(3));
+    when(jobLogLinesRepository.findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(
+            5L, 1, Limit.of(2)))
+        .thenReturn(List.of());
+
+    // act
+    List<JobLogLine> lines = jobLogService.readLines(5L, 1, 2);
+
+    // assert
+    assertEquals(List.of(line(1, "b"), line(2, "c")), lines);
+    verify(jobLogArchivesRepository, times(2)).findLineCountByJobId(5L);
+  }
+
+  @Test
+  public void readLines_past_the_archive_does_not_decompress_it() {
+    stubArchive("a\nb");
+
+    jobLogService.readLines(5L, 2, 10);
+
+    verify(jobLogArchivesRepository, times(0)).findById(5L);
+    verify(jobLogLinesRepository, times(1))
+        .findByJobIdAndLineNumberGreaterThanEqualOrderByLineNumber(5L, 2, Limit.of(10));
+  }
+
+  @Test
+  public void readAllLines_and_countLines_include_the_archive() {
+    stubArchive("a\nb");
+    when(jobLogLinesRepository.findContentByJobId(5L)).thenReturn(List.of("c"));
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(1);
+
+    assertEquals(List.of("a", "b", "c"), jobLogService.readAllLines(5L));
+    assertEquals(3, jobLogService.countLines(5L));
+  }
+
+  @Test
+  public void compressed_log_is_only_available_when_fully_archived() {
+    stubArchive("a\nb");
+
+    assertArrayEquals(
+        JobLogService.gzip("a\nb"), jobLogService.findCompressedLog(5L).orElseThrow());
+
+    when(jobLogLinesRepository.countByJobId(5L)).thenReturn(1);
+    assertTrue(jobLogService.findCompressedLog(5L).isEmpty());
+  }
+
+  @Test
+  public void gunzipLines_keeps_unicode_and_empty_lines() {
+    byte[] content = JobLogService.gzip("héllo ✓\n\n\r\nlast");
+
+    assertEquals(
+        List.of("héllo ✓", "", "\r", "last"),
+        JobLogService.gunzipLines(content, 0, Integer.MAX_VALUE));
+    assertEquals(List.of("", "\r"), JobLogService.gunzipLines(content, 1, 2));
+    assertEquals(List.of(), JobLogService.gunzipLines(content, 4, 2));
+  }
+
+  @Test
+  public void gunzipLines_of_corrupt_content_throws() {
+    assertThrows(
+        UncheckedIOException.class,
+        () -> JobLogService.gunzipLines(new byte[] {1, 2, 3}, 0, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void gzip_that_fails_throws() {
+    try (MockedConstruction<GZIPOutputStream> failing =
+        mockConstruction(
+            GZIPOutputStream.class,
+            (out, context) -> doThrow(new IOException("no space")).when(out).write(any()))) {
+      assertThrows(UncheckedIOException.class, () -> JobLogService.gzip("a"));
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockedConstruction;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+public class JobLogStreamServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogService jobLogService;
+
+  @InjectMocks private JobLogStreamService jobLogStreamService;
+
+  private MockedConstruction<SseEmitter> emitters;
+
+  private final Job running = Job.builder().id(5L).status("running").build();
+
+  /** When set, every event sent to an emitter created from then on fails with this */
+  private IOException sendFailure;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogStreamService, "timeoutMs", 1000L);
+    ReflectionTestUtils.setField(jobLogStreamService, "batchSize", 10);
+    ReflectionTestUtils.setField(
+        jobLogStreamService, "streamExecutor", (TaskExecutor) Runnable::run);
+    when(jobLogService.readLines(anyLong(), anyInt(), anyInt())).thenReturn(List.of());
+    emitters =
+        mockConstruction(
+            SseEmitter.class,
+            (emitter, context) -> {
+              if (sendFailure != null) {
+                doThrow(sendFailure).when(emitter).send(any(SseEventBuilder.class));
+              }
+            });
+  }
+
+  @AfterEach
+  public void teardown() {
+    emitters.close();
+  }
+
+  private JobLogLine line(int lineNumber, String content) {
+    return JobLogLine.builder().jobId(5L).lineNumber(lineNumber).content(content).build();
+  }
+
+  private Map<?, ?> subscriptions() {
+    return (Map<?, ?>) ReflectionTestUtils.getField(jobLogStreamService, "subscriptions");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void streams_are_dropped_when_they_complete_time_out_or_fail() throws Exception {
+    // arrange
+    SseEmitter completed = jobLogStreamService.subscribe(running, 0);
+    SseEmitter timedOut = jobLogStreamService.subscribe(running, 0);
+    SseEmitter failed = jobLogStreamService.subscribe(running, 0);
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Runnable> onTimeout = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Consumer<Throwable>> onError = ArgumentCaptor.forClass(Consumer.class);
+    verify(completed).onCompletion(onCompletion.capture());
+    verify(timedOut).onTimeout(onTimeout.capture());
+    verify(failed).onError(onError.capture());
+
+    // act
+    onCompletion.getValue().run();
+    onTimeout.getValue().run();
+    assertEquals(1, subscriptions().size());
+    onError.getValue().accept(new IOException("reset"));
+
+    // assert
+    assertTrue(subscriptions().isEmpty());
+    jobLogStreamService.publish(List.of(line(0, "a")));
+    verify(completed, never()).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  public void stream_closed_by_the_client_gets_no_more_lines() throws Exception {
+    // arrange
+    sendFailure = new IOException("broken pipe");
+    SseEmitter emitter = jobLogStreamService.subscribe(running, 0);
+
+    // act
+    jobLogStreamService.publish(List.of(line(0, "a")));
+    jobLogStreamService.publish(List.of(line(0, "a"), line(1, "b")));
+    jobLogStreamService.jobFinished(Job.builder().id(5L).status("complete").build());
+
+    // assert
+    verify(emitter, times(1)).send(any(SseEventBuilder.class));
+    verify(emitter, times(1)).completeWithError(sendFailure);
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void end_event_that_cannot_be_sent_fails_the_stream() throws Exception {
+    // arrange
+    sendFailure = new IOException("broken pipe");
+
+    // act
+    SseEmitter emitter =
+        jobLogStreamService.subscribe(Job.builder().id(6L).status("complete").build(), 0);
+
+    // assert
+    verify(emitter, times(1)).completeWithError(sendFailure);
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void pushed_lines_and_the_end_are_sent_in_order_off_the_calling_thread() throws Exception {
+    // arrange
+    List<Runnable> executed = new ArrayList<>();
+    ReflectionTestUtils.setField(
+        jobLogStreamService, "streamExecutor", (TaskExecutor) executed::add);
+    SseEmitter emitter = jobLogStreamService.subscribe(running, 0);
+
+    // act
+    jobLogStreamService.publish(List.of(line(0, "a")));
+    jobLogStreamService.publish(List.of(line(1, "b")));
+    jobLogStreamService.jobFinished(Job.builder().id(5L).status("complete").build());
+
+    // assert
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+    assertEquals(1, executed.size());
+    executed.get(0).run();
+    InOrder inOrder = inOrder(emitter);
+    inOrder.verify(emitter, times(3)).send(any(SseEventBuilder.class));
+    inOrder.verify(emitter).complete();
+  }
+
+  @Test
+  public void stream_keeps_going_after_an_update_fails() throws Exception {
+    // arrange
+    SseEmitter emitter = jobLogStreamService.subscribe(running, 0);
+    when(jobLogService.readLines(anyLong(), anyInt(), anyInt()))
+        .thenThrow(new IllegalStateException("database is down"));
+
+    // act
+    jobLogStreamService.jobFinished(Job.builder().id(5L).status("complete").build());
+    jobLogStreamService.publish(List.of(line(0, "a")));
+
+    // assert
+    verify(emitter, times(1)).send(any(SseEventBuilder.class));
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void task_enqueued_while_the_stream_stops_draining_still_runs() throws Exception {
+    // arrange
+    SseEmitter emitter = jobLogStreamService.subscribe(running, 0);
+    Object subscription = ((Set<?>) subscriptions().get(5L)).iterator().next();
+    Queue<Runnable> pending = spy(new ConcurrentLinkedQueue<Runnable>());
+    doReturn(false).doCallRealMethod().when(pending).isEmpty();
+    ReflectionTestUtils.setField(subscription, "pending", pending);
+
+    // act
+    jobLogStreamService.publish(List.of(line(0, "a")));
+
+    // assert
+    verify(emitter, times(1)).send(any(SseEventBuilder.class));
+    verify(pending, times(2)).isEmpty();
+  }
+
+  @Test
+  public void poll_without_streams_does_not_query() {
+    // act
+    jobLogStreamService.pollSubscriptions();
+
+    // assert
+    verify(jobsRepository, never()).findSummariesByIdIn(any());
+  }
+
+  @Test
+  public void poll_looks_up_all_jobs_at_once_and_catches_up_off_the_scheduler() throws Exception {
+    // arrange
+    List<Runnable> executed = new ArrayList<>();
+    SseEmitter first = jobLogStreamService.subscribe(running, 0);
+    SseEmitter second =
+        jobLogStreamService.subscribe(Job.builder().id(6L).status("running").build(), 0);
+    ReflectionTestUtils.setField(
+        jobLogStreamService, "streamExecutor", (TaskExecutor) executed::add);
+    when(jobsRepository.findSummariesByIdIn(any()))
+        .thenReturn(List.of(JobSummary.builder().id(5L).status("complete").build()));
+
+    // act
+    jobLogStreamService.pollSubscriptions();
+    jobLogStreamService.pollSubscriptions();
+
+    // assert
+    verify(jobsRepository, times(2)).findSummariesByIdIn(any());
+    verify(first, never()).complete();
+    assertEquals(2, executed.size());
+    executed.forEach(Runnable::run);
+    verify(first).complete();
+    verify(second).complete();
+    verify(jobLogService, times(4)).readLines(anyLong(), eq(0), anyInt());
+  }
+}
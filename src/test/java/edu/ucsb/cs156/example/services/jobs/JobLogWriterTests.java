@@ -0,0 +1,152 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class JobLogWriterTests {
+
+  private JobLogLine line(int lineNumber, String content) {
+    return JobLogLine.builder().jobId(3L).lineNumber(lineNumber).content(content).build();
+  }
+
+  @Test
+  public void flushes_when_line_threshold_is_reached() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 3L, 0, 3, 1000);
+
+    writer.append("a");
+    writer.append("b");
+    verify(repository, times(0)).saveAll(any());
+
+    writer.append("c");
+    verify(repository, times(1)).saveAll(List.of(line(0, "a"), line(1, "b"), line(2, "c")));
+  }
+
+  @Test
+  public void flushes_when_character_threshold_is_reached() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 3L, 0, 100, 10);
+
+    writer.append("12345");
+    writer.append(null);
+    verify(repository, times(0)).saveAll(any());
+
+    writer.append("67890");
+    verify(repository, times(1))
+        .saveAll(List.of(line(0, "12345"), line(1, null), line(2, "67890")));
+  }
+
+  @Test
+  public void reports_each_batch_it_saves() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    List<List<JobLogLine>> flushed = new ArrayList<>();
+    JobLogWriter writer = new JobLogWriter(repository, 3L, 4, 2, 1000, flushed::add);
+
+    writer.append("a");
+    writer.append("b");
+    writer.append("c");
+    writer.flush();
+
+    assertEquals(List.of(List.of(line(4, "a"), line(5, "b")), List.of(line(6, "c"))), flushed);
+  }
+
+  @Test
+  public void reports_batches_without_holding_the_writer_lock() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    List<Boolean> locked = new ArrayList<>();
+    JobLogWriter[] writer = new JobLogWriter[1];
+    writer[0] =
+        new JobLogWriter(repository, 3L, 0, 2, 1000, l -> locked.add(Thread.holdsLock(writer[0])));
+
+    writer[0].append("a");
+    writer[0].append("b");
+    writer[0].append("c");
+    writer[0].flushIfOlderThan(0, System.currentTimeMillis());
+
+    assertEquals(List.of(false, false), locked);
+  }
+
+  @Test
+  public void text_with_newlines_is_saved_as_one_line_each() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 3L, 0, 10, 1000);
+
+    writer.append("a\nb\n");
+    writer.append(null);
+    writer.flush();
+
+    verify(repository, times(1))
+        .saveAll(List.of(line(0, "a"), line(1, "b"), line(2, ""), line(3, null)));
+    assertEquals(4, writer.getAppendedLines());
+  }
+
+  @Test
+  public void flush_with_empty_buffer_does_nothing() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 3L, 0, 100, 1000);
+
+    writer.flush();
+
+    verify(repository, times(0)).saveAll(any());
+  }
+
+  @Test
+  public void lines_stay_buffered_when_saving_fails() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    when(repository.saveAll(any()))
+        .thenThrow(new RuntimeException("database unavailable"))
+        .thenReturn(List.of());
+    JobLogWriter writer = new JobLogWriter(repository, 3L, 0, 100, 1000);
+
+    writer.append("a");
+    assertThrows(RuntimeException.class, writer::flush);
+    writer.flush();
+
+    verify(repository, times(2)).saveAll(List.of(line(0, "a")));
+  }
+
+  @Test
+  public void flushIfOlderThan_only_flushes_old_buffers() {
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 3L, 0, 100, 1000);
+
+    writer.flushIfOlderThan(500, System.currentTimeMillis());
+    writer.append("a");
+    writer.flushIfOlderThan(500, System.currentTimeMillis() - 1000);
+    verify(repository, times(0)).saveAll(any());
+
+    writer.flushIfOlderThan(500, System.currentTimeMillis() + 500);
+    verify(repository, times(1)).saveAll(List.of(line(0, "a")));
+  }
+
+  @Test
+  public void counts_appended_lines_and_bytes() {
+    JobLogWriter writer = new JobLogWriter(mock(JobLogLinesRepository.class), 3L);
+
+    writer.append("abc");
+    writer.append("é€😀");
+    writer.append(null);
+
+    assertEquals(3, writer.getAppendedLines());
+    assertEquals(3 + 2 + 3 + 4, writer.getAppendedBytes());
+  }
+
+  @Test
+  public void utf8Length_matches_encoded_length() {
+    for (String s : List.of("", "ascii", "ü", "日本語", "😀x", "\uD800", "a\uD800b", "\uDC00")) {
+      assertEquals(s.getBytes(StandardCharsets.UTF_8).length, JobLogWriter.utf8Length(s), s);
+    }
+  }
+}
@@ -0,0 +1,331 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobTree;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+
+public class JobPipelineServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogService jobLogService;
+
+  @Mock private JobLogStreamService jobLogStreamService;
+
+  @Mock private JobAwaitService jobAwaitService;
+
+  @Mock private JobQueueService jobQueueService;
+
+  @Mock private JobDispatchService jobDispatchService;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobService jobService;
+
+  @InjectMocks private JobPipelineService jobPipelineService;
+
+  private final User user = User.builder().id(1L).build();
+
+  private final List<Job> children = new ArrayList<>();
+
+  private long nextId = 1;
+
+  private final JobContextConsumer part = ctx -> {};
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    when(currentUserService.getUser()).thenReturn(user);
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getId() == 0) {
+                job.setId(nextId++);
+                if (job.getParentId() != null) {
+                  children.add(job);
+                }
+              }
+              return job;
+            });
+  }
+
+  private JobPipeline pipeline(int parts, JobPipelineJoin join, boolean tolerateFailures) {
+    List<JobContextConsumer> consumers = new ArrayList<>();
+    for (int i = 0; i < parts; i++) {
+      consumers.add(part);
+    }
+    return JobPipeline.builder()
+        .parts(consumers)
+        .join(join)
+        .tolerateFailures(tolerateFailures)
+        .build();
+  }
+
+  private void finish(Job child, String status) {
+    child.setStatus(status);
+    jobPipelineService.childFinished(child);
+  }
+
+  @Test
+  public void pipeline_starts_a_child_for_each_part() {
+    // act
+    Job parent = jobPipelineService.runPipeline(pipeline(3, null, false));
+
+    // assert
+    assertEquals(1L, parent.getId());
+    assertEquals("running", parent.getStatus());
+    assertEquals(user, parent.getCreatedBy());
+    assertEquals(3, children.size());
+    for (Job child : children) {
+      assertEquals(1L, child.getParentId());
+      assertEquals(user, child.getCreatedBy());
+      verify(jobQueueService, times(1)).lease(child);
+      verify(jobDispatchService, times(1)).submit(child, part);
+    }
+    verify(jobLogService, times(1)).appendLine(1L, "Pipeline started with 3 parts");
+  }
+
+  @Test
+  public void pipeline_completes_when_all_children_complete() {
+    // arrange
+    Job parent = jobPipelineService.runPipeline(pipeline(2, null, false));
+
+    // act
+    finish(children.get(0), "complete");
+
+    // assert
+    assertEquals("running", parent.getStatus());
+    verify(jobLogService, times(1))
+        .appendLine(1L, "Part 1 of 2 finished with status complete (1 of 2 done)");
+
+    finish(children.get(1), "complete");
+    assertEquals("complete", parent.getStatus());
+    assertNotNull(parent.getFinishedAt());
+    verify(jobLogService, times(1)).appendLine(1L, "All 2 parts finished, 0 failed");
+    verify(jobLogStreamService, times(1)).jobFinished(parent);
+    verify(jobAwaitService, times(1)).jobFinished(parent);
+  }
+
+  @Test
+  public void join_runs_as_the_parent_once_all_children_finish() throws Exception {
+    // arrange
+    List<List<Job>> joined = new ArrayList<>();
+    Job parent = jobPipelineService.runPipeline(pipeline(2, (ctx, c) -> joined.add(c), false));
+    finish(children.get(0), "complete");
+    finish(children.get(1), "complete");
+
+    // act
+    ArgumentCaptor<JobContextConsumer> join = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(jobDispatchService, times(1)).submit(eq(parent), join.capture());
+    join.getValue().accept(new JobContext(mock(JobLogWriter.class), parent));
+
+    // assert
+    assertEquals(List.of(children), joined);
+    assertEquals("running", parent.getStatus());
+  }
+
+  @Test
+  public void rejected_join_ends_the_pipeline_as_rejected() {
+    // arrange
+    Job parent = jobPipelineService.runPipeline(pipeline(1, (ctx, c) -> {}, false));
+    doThrow(new TaskRejectedException("full")).when(jobDispatchService).submit(eq(parent), any());
+
+    // act
+    finish(children.get(0), "complete");
+
+    // assert
+    assertEquals("rejected", parent.getStatus());
+    assertNotNull(parent.getFinishedAt());
+    verify(jobLogService, times(1))
+        .appendLine(
+            parent.getId(), "Job rejected: too many jobs are already running or waiting to run");
+    verify(jobLogStreamService, times(1)).jobFinished(parent);
+    verify(jobAwaitService, times(1)).jobFinished(parent);
+  }
+
+  @Test
+  public void failed_child_cancels_the_others_unless_failures_are_tolerated() {
+    // arrange
+    Job parent = jobPipelineService.runPipeline(pipeline(3, (ctx, c) -> {}, false));
+
+    // act
+    finish(children.get(1), "error");
+
+    // assert
+    verify(jobService, times(1)).cancelJob(children.get(0).getId());
+    verify(jobService, times(1)).cancelJob(children.get(2).getId());
+    verify(jobService, never()).cancelJob(children.get(1).getId());
+
+    finish(children.get(0), "cancelled");
+    finish(children.get(2), "cancelled");
+    assertEquals("error", parent.getStatus());
+    verify(jobDispatchService, never()).submit(eq(parent), any());
+  }
+
+  @Test
+  public void tolerated_failures_still_run_the_join() {
+    // arrange
+    Job parent = jobPipelineService.runPipeline(pipeline(2, (ctx, c) -> {}, true));
+
+    // act
+    finish(children.get(0), "error");
+    finish(children.get(1), "complete");
+
+    // assert
+    verify(jobService, never()).cancelJob(anyLong());
+    verify(jobLogService, times(1)).appendLine(1L, "All 2 parts finished, 1 failed");
+    verify(jobDispatchService, times(1)).submit(eq(parent), any());
+  }
+
+  @Test
+  public void cancelling_a_pipeline_cancels_its_children() {
+    // arrange
+    Job parent = jobPipelineService.runPipeline(pipeline(2, (ctx, c) -> {}, true));
+
+    // act
+    jobPipelineService.cancel(parent.getId());
+
+    // assert
+    verify(jobService, times(1)).cancelJob(children.get(0).getId());
+    verify(jobService, times(1)).cancelJob(children.get(1).getId());
+    finish(children.get(0), "cancelled");
+    finish(children.get(1), "cancelled");
+    assertEquals("cancelled", parent.getStatus());
+    assertTrue(parent.getCancelRequested());
+  }
+
+  @Test
+  public void cancelling_a_job_that_is_not_a_pipeline_does_nothing() {
+    // act
+    jobPipelineService.cancel(42L);
+
+    // assert
+    verify(jobService, never()).cancelJob(anyLong());
+  }
+
+  @Test
+  public void rejected_child_stops_the_children_after_it_from_starting() {
+    // arrange
+    doThrow(new TaskRejectedException("full"))
+        .doNothing()
+        .when(jobDispatchService)
+        .submit(any(Job.class), eq(part));
+
+    // act
+    Job parent = jobPipelineService.runPipeline(pipeline(2, null, false));
+
+    // assert
+    assertEquals("rejected", children.get(0).getStatus());
+    assertEquals("cancelled", children.get(1).getStatus());
+    verify(jobDispatchService, times(1)).submit(any(Job.class), eq(part));
+    verify(jobLogService, times(1))
+        .appendLine(
+            children.get(0).getId(),
+            "Job rejected: too many jobs are already running or waiting to run");
+    verify(jobLogService, times(1))
+        .appendLine(children.get(1).getId(), "Job cancelled before it started");
+    assertEquals("error", parent.getStatus());
+  }
+
+  @Test
+  public void pipeline_with_no_parts_completes_right_away() {
+    // act
+    Job parent = jobPipelineService.runPipeline(pipeline(0, null, false));
+
+    // assert
+    assertEquals("complete", parent.getStatus());
+  }
+
+  @Test
+  public void only_the_first_report_of_a_finished_child_counts() {
+    // arrange
+    Job parent = jobPipelineService.runPipeline(pipeline(2, null, true));
+
+    // act
+    finish(children.get(0), "complete");
+    jobPipelineService.childFinished(children.get(0));
+    jobPipelineService.childFinished(Job.builder().id(99L).parentId(parent.getId()).build());
+    jobPipelineService.childFinished(Job.builder().id(98L).parentId(42L).build());
+    jobPipelineService.childFinished(Job.builder().id(97L).build());
+
+    // assert
+    assertEquals("running", parent.getStatus());
+    finish(children.get(1), "complete");
+    assertEquals("complete", parent.getStatus());
+  }
+
+  @Test
+  public void tree_counts_finished_and_failed_children() {
+    // arrange
+    JobSummary parent = JobSummary.builder().id(1L).status("running").build();
+    List<JobSummary> parts =
+        List.of(
+            JobSummary.builder().id(2L).parentId(1L).status("complete").build(),
+            JobSummary.builder().id(3L).parentId(1L).status("error").build(),
+            JobSummary.builder().id(4L).parentId(1L).status("running").build());
+    when(jobsRepository.findSummaryById(1L)).thenReturn(Optional.of(parent));
+    when(jobsRepository.findSummariesByParentId(1L)).thenReturn(parts);
+
+    // act
+    JobTree tree = jobPipelineService.getJobTree(1L);
+
+    // assert
+    assertEquals(parent, tree.getJob());
+    assertEquals(parts, tree.getChildren());
+    assertEquals(3, tree.getTotal());
+    assertEquals(2, tree.getFinished());
+    assertEquals(1, tree.getFailed());
+    assertEquals(66, tree.getPercentComplete());
+  }
+
+  @Test
+  public void tree_of_job_without_children_is_complete() {
+    // arrange
+    JobSummary job = JobSummary.builder().id(1L).status("complete").build();
+    when(jobsRepository.findSummaryById(1L)).thenReturn(Optional.of(job));
+    when(jobsRepository.findSummariesByParentId(1L)).thenReturn(List.of());
+
+    // act
+    JobTree tree = jobPipelineService.getJobTree(1L);
+
+    // assert
+    assertEquals(0, tree.getTotal());
+    assertEquals(100, tree.getPercentComplete());
+  }
+
+  @Test
+  public void tree_of_missing_job_is_not_found() {
+    when(jobsRepository.findSummaryById(1L)).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> jobPipelineService.getJobTree(1L));
+  }
+}
@@ -0,0 +1,287 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.SyntheticState;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.implementation.StubMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobQueueServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogService jobLogService;
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @Mock private JobDispatchService jobDispatchService;
+
+  @Mock private JobQueueService self;
+
+  @InjectMocks private JobQueueService jobQueueService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobQueueService, "mode", "database");
+    ReflectionTestUtils.setField(jobQueueService, "leaseDurationMs", 60000L);
+  }
+
+  private Job queuedJob(String type, String payload) {
+    return Job.builder().id(4L).status("queued").type(type).payload(payload).build();
+  }
+
+  @Test
+  public void enqueue_does_nothing_in_memory_mode() {
+    ReflectionTestUtils.setField(jobQueueService, "mode", "memory");
+    Job job = Job.builder().build();
+
+    assertFalse(jobQueueService.isEnabled());
+    assertFalse(jobQueueService.enqueue(job, TestJob.builder().build()));
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  public void enqueue_stores_job_as_json() {
+    Job job = Job.builder().status("running").build();
+
+    assertTrue(jobQueueService.enqueue(job, TestJob.builder().fail(true).sleepMs(5).build()));
+
+    assertEquals("queued", job.getStatus());
+    assertEquals(TestJob.class.getName(), job.getType());
+    assertEquals("{\"fail\":true,\"sleepMs\":5}", job.getPayload());
+    assertNotNull(job.getQueuedAt());
+    verify(jobDispatchService, times(1)).setDispatchAt(job);
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  public void enqueue_refuses_lambdas_anonymous_and_local_classes() {
+    class LocalJob implements JobContextConsumer {
+      @Override
+      public void accept(JobContext c) {}
+    }
+    JobContextConsumer anonymousJob =
+        new JobContextConsumer() {
+          @Override
+          public void accept(JobContext c) {}
+        };
+
+    assertFalse(jobQueueService.enqueue(Job.builder().build(), ctx -> {}));
+    assertFalse(jobQueueService.enqueue(Job.builder().build(), anonymousJob));
+    assertFalse(jobQueueService.enqueue(Job.builder().build(), new LocalJob()));
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  public void enqueue_refuses_generated_classes() throws Exception {
+    Class<?> generated =
+        new ByteBuddy()
+            .subclass(Object.class)
+            .implement(JobContextConsumer.class)
+            .modifiers(Visibility.PUBLIC, SyntheticState.SYNTHETIC)
+            .method(named("accept"))
+            .intercept(StubMethod.INSTANCE)
+            .make()
+            .load(getClass().getClassLoader())
+            .getLoaded();
+    JobContextConsumer generatedJob =
+        (JobContextConsumer) generated.getDeclaredConstructor().newInstance();
+
+    assertFalse(jobQueueService.enqueue(Job.builder().build(), generatedJob));
+    verify(jobsRepository, never()).save(any());
+  }
+
+  static class FileJob implements LocalJobContextConsumer {
+    @Override
+    public void accept(JobContext c) {}
+  }
+
+  @Test
+  public void enqueue_refuses_jobs_that_must_run_locally() {
+    assertTrue(jobQueueService.isEnabled());
+    assertFalse(jobQueueService.enqueue(Job.builder().build(), new FileJob()));
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  public void enqueue_refuses_jobs_that_cannot_be_stored_as_json() throws Exception {
+    Job job = Job.builder().status("running").build();
+    TestJob testJob = TestJob.builder().build();
+    doThrow(new JsonMappingException(null, "no serializer"))
+        .when(mapper)
+        .writeValueAsString(testJob);
+
+    assertFalse(jobQueueService.enqueue(job, testJob));
+
+    assertEquals("running", job.getStatus());
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  public void lease_only_applies_in_database_mode() {
+    Job job = Job.builder().build();
+    jobQueueService.lease(job);
+    assertEquals(jobQueueService.getNodeId(), job.getLeaseOwner());
+    assertTrue(job.getLeaseExpiresAt().isAfter(ZonedDateTime.now().plusSeconds(59)));
+
+    ReflectionTestUtils.setField(jobQueueService, "mode", "memory");
+    Job otherJob = Job.builder().build();
+    jobQueueService.lease(otherJob);
+    assertNull(otherJob.getLeaseOwner());
+    assertNull(otherJob.getLeaseExpiresAt());
+  }
+
+  @Test
+  public void claimQueuedJobs_leases_jobs_to_this_node() {
+    Job job = queuedJob(TestJob.class.getName(), "{}");
+    when(jobsRepository.findQueuedForUpdate(3, 0)).thenReturn(List.of(job));
+
+    List<Job> claimed = jobQueueService.claimQueuedJobs(3);
+
+    assertEquals(List.of(job), claimed);
+    assertEquals("running", job.getStatus());
+    assertEquals(jobQueueService.getNodeId(), job.getLeaseOwner());
+    verify(jobsRepository, times(1)).saveAll(List.of(job));
+    verify(jobsRepository, never()).countRunningByCreatedById(anyLong());
+  }
+
+  @Test
+  public void claimQueuedJobs_keeps_users_within_their_limit() {
+    // arrange
+    User busy = User.builder().id(1L).build();
+    User idle = User.builder().id(2L).build();
+    Job busy1 = Job.builder().id(1L).status("queued").createdBy(busy).build();
+    Job busy2 = Job.builder().id(2L).status("queued").createdBy(busy).build();
+    Job idle1 = Job.builder().id(3L).status("queued").createdBy(idle).build();
+    Job idle2 = Job.builder().id(4L).status("queued").createdBy(idle).build();
+    Job idle3 = Job.builder().id(5L).status("queued").createdBy(idle).build();
+    Job nobody = Job.builder().id(6L).status("queued").build();
+    when(jobDispatchService.getMaxRunningPerUser()).thenReturn(2);
+    when(jobsRepository.findQueuedForUpdate(6, 2))
+        .thenReturn(List.of(busy1, idle1, busy2, idle2, idle3, nobody));
+    when(jobsRepository.countRunningByCreatedById(1L)).thenReturn(1);
+    when(jobsRepository.countRunningByCreatedById(2L)).thenReturn(0);
+
+    // act
+    List<Job> claimed = jobQueueService.claimQueuedJobs(6);
+
+    // assert
+    assertEquals(List.of(busy1, idle1, idle2, nobody), claimed);
+    assertEquals("queued", busy2.getStatus());
+    assertEquals("queued", idle3.getStatus());
+    verify(jobsRepository, times(1)).countRunningByCreatedById(1L);
+    verify(jobsRepository, times(1)).saveAll(claimed);
+  }
+
+  @Test
+  public void pollQueue_does_nothing_in_memory_mode() {
+    ReflectionTestUtils.setField(jobQueueService, "mode", "memory");
+
+    jobQueueService.pollQueue();
+
+    verify(jobsRepository, never()).requeueExpiredLeases(any());
+    verify(self, never()).claimQueuedJobs(anyInt());
+  }
+
+  @Test
+  public void pollQueue_does_not_claim_when_no_thread_is_free() {
+    when(jobDispatchService.getFreeThreads()).thenReturn(0);
+    when(jobsRepository.requeueExpiredLeases(any())).thenReturn(1);
+
+    jobQueueService.pollQueue();
+
+    verify(jobsRepository, times(1)).failExpiredLeases(any());
+    verify(self, never()).claimQueuedJobs(anyInt());
+  }
+
+  @Test
+  public void pollQueue_starts_claimed_jobs_through_the_dispatcher() {
+    when(jobDispatchService.getFreeThreads()).thenReturn(2);
+    Job job = queuedJob(TestJob.class.getName(), "{\"fail\":false,\"sleepMs\":7}");
+    when(self.claimQueuedJobs(2)).thenReturn(List.of(job));
+
+    jobQueueService.pollQueue();
+
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(jobDispatchService, times(1)).startClaimed(eq(job), captor.capture());
+    assertEquals(7, ((TestJob) captor.getValue()).getSleepMs());
+  }
+
+  @Test
+  public void pollQueue_requeues_jobs_that_cannot_start() {
+    when(jobDispatchService.getFreeThreads()).thenReturn(1);
+    Job job = queuedJob(TestJob.class.getName(), "{}");
+    job.setLeaseOwner("me");
+    when(self.claimQueuedJobs(1)).thenReturn(List.of(job));
+    doThrow(new TaskRejectedException("full"))
+        .when(jobDispatchService)
+        .startClaimed(eq(job), any());
+
+    jobQueueService.pollQueue();
+
+    assertEquals("queued", job.getStatus());
+    assertNull(job.getLeaseOwner());
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  public void pollQueue_fails_jobs_that_cannot_be_loaded() {
+    when(jobDispatchService.getFreeThreads()).thenReturn(3);
+    Job unknownClass = queuedJob("edu.ucsb.cs156.example.jobs.NoSuchJob", "{}");
+    Job notAJob = queuedJob("java.lang.String", "{}");
+    Job badJson = queuedJob(TestJob.class.getName(), "not json");
+    when(self.claimQueuedJobs(3)).thenReturn(List.of(unknownClass, notAJob, badJson));
+
+    jobQueueService.pollQueue();
+
+    assertEquals("error", unknownClass.getStatus());
+    assertEquals("error", notAJob.getStatus());
+    assertEquals("error", badJson.getStatus());
+    assertNotNull(badJson.getFinishedAt());
+    verify(jobLogService, times(3)).appendLine(eq(4L), any());
+    verify(jobDispatchService, never()).startClaimed(any(), any());
+  }
+
+  @Test
+  public void renewLeases_extends_leases_owned_by_this_node() {
+    jobQueueService.renewLeases();
+    verify(jobsRepository, times(1)).renewLeases(eq(jobQueueService.getNodeId()), any());
+
+    ReflectionTestUtils.setField(jobQueueService, "mode", "memory");
+    jobQueueService.renewLeases();
+    verify(jobsRepository, times(1)).renewLeases(any(), any());
+  }
+}
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRetentionServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @InjectMocks private JobRetentionService jobRetentionService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobRetentionService, "enabled", true);
+    ReflectionTestUtils.setField(jobRetentionService, "maxAge", Duration.ofDays(30));
+    ReflectionTestUtils.setField(jobRetentionService, "maxCountPerStatus", 100);
+    ReflectionTestUtils.setField(jobRetentionService, "batchSize", 2);
+  }
+
+  @Test
+  public void purge_deletes_old_jobs_in_batches() {
+    // arrange
+    when(jobsRepository.findIdsOlderThan(
+            eq(JobService.FINISHED_STATUSES), any(ZonedDateTime.class), eq(Limit.of(2))))
+        .thenReturn(List.of(1L, 2L), List.of(3L), List.of());
+    when(jobsRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+    when(jobsRepository.deleteByIdIn(List.of(3L))).thenReturn(1);
+
+    // act
+    int deleted = jobRetentionService.purge();
+
+    // assert
+    assertEquals(3, deleted);
+    ArgumentCaptor<ZonedDateTime> cutoff = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository, times(3)).findIdsOlderThan(any(), cutoff.capture(), any());
+    ZonedDateTime expected = ZonedDateTime.now().minusDays(30);
+    assertTrue(Duration.between(cutoff.getValue(), expected).abs().toSeconds() < 5);
+  }
+
+  @Test
+  public void purge_keeps_newest_jobs_of_each_status() {
+    // arrange
+    when(jobsRepository.findIdsByStatusNewestFirst(anyString(), eq(PageRequest.of(100, 1))))
+        .thenReturn(List.of());
+    when(jobsRepository.findIdsByStatusNewestFirst("complete", PageRequest.of(100, 1)))
+        .thenReturn(List.of(50L));
+    when(jobsRepository.findIdsByStatusUpTo("complete", 50L, Limit.of(2)))
+        .thenReturn(List.of(7L, 9L), List.of());
+    when(jobsRepository.deleteByIdIn(List.of(7L, 9L))).thenReturn(2);
+
+    // act
+    int deleted = jobRetentionService.purge();
+
+    // assert
+    assertEquals(2, deleted);
+    for (String status : JobService.FINISHED_STATUSES) {
+      verify(jobsRepository).findIdsByStatusNewestFirst(status, PageRequest.of(100, 1));
+    }
+    verify(jobsRepository, never()).findIdsByStatusUpTo(eq("error"), anyLong(), any());
+  }
+
+  @Test
+  public void purge_stops_when_nothing_more_can_be_deleted() {
+    // arrange
+    when(jobsRepository.findIdsOlderThan(any(), any(), any())).thenReturn(List.of(1L));
+    when(jobsRepository.deleteByIdIn(List.of(1L))).thenReturn(0);
+
+    // act & assert
+    assertEquals(0, jobRetentionService.purge());
+    verify(jobsRepository, times(1)).deleteByIdIn(List.of(1L));
+  }
+
+  @Test
+  public void scheduledPurge_only_runs_when_enabled() {
+    jobRetentionService.scheduledPurge();
+    verify(jobsRepository, times(1)).findIdsOlderThan(any(), any(), any());
+
+    ReflectionTestUtils.setField(jobRetentionService, "enabled", false);
+    jobRetentionService.scheduledPurge();
+    verify(jobsRepository, times(1)).findIdsOlderThan(any(), any(), any());
+  }
+
+  @Test
+  public void deleteAllJobs_deletes_in_batches() {
+    // arrange
+    when(jobsRepository.findIds(Limit.of(2))).thenReturn(List.of(1L, 2L), List.of(3L), List.of());
+    when(jobsRepository.deleteByIdIn(anyCollection()))
+        .thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+
+    // act
+    int deleted = jobRetentionService.deleteAllJobs();
+
+    // assert
+    assertEquals(3, deleted);
+    verify(jobsRepository).deleteByIdIn(List.of(1L, 2L));
+    verify(jobsRepository).deleteByIdIn(List.of(3L));
+  }
+}
@@ -0,0 +1,253 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.JobScheduleSummary;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobScheduleServiceTests {
+
+  @Mock private JobSchedulesRepository jobSchedulesRepository;
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobService jobService;
+
+  @Mock private JobQueueService jobQueueService;
+
+  @Mock private TaskScheduler taskScheduler;
+
+  @InjectMocks private JobScheduleService jobScheduleService;
+
+  private final JobContextConsumer work = ctx -> {};
+
+  private final ScheduledJob hourly =
+      ScheduledJob.builder().name("hourly").cron("0 0 * * * *").job(() -> work).build();
+
+  private final ScheduledJob off =
+      ScheduledJob.builder().name("off").cron("-").job(() -> work).build();
+
+  private final Instant scheduledTime = Instant.parse("2026-01-01T10:00:00Z");
+
+  private final ZonedDateTime firedAt =
+      ZonedDateTime.ofInstant(scheduledTime, ZoneId.systemDefault());
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobScheduleService, "scheduledJobs", List.of(hourly, off));
+    when(jobQueueService.getNodeId()).thenReturn("node-1");
+  }
+
+  @Test
+  public void schedules_with_a_cron_are_started() {
+    // arrange
+    when(jobSchedulesRepository.existsById("hourly")).thenReturn(true);
+
+    // act
+    jobScheduleService.startSchedules();
+
+    // assert
+    verify(jobSchedulesRepository, never()).save(JobSchedule.builder().name("hourly").build());
+    verify(jobSchedulesRepository, times(1)).save(JobSchedule.builder().name("off").build());
+    ArgumentCaptor<Runnable> run = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Trigger> trigger = ArgumentCaptor.forClass(Trigger.class);
+    verify(taskScheduler, times(1)).schedule(run.capture(), trigger.capture());
+    Instant next = trigger.getValue().nextExecution(new SimpleTriggerContext());
+    assertEquals(0, next.getEpochSecond() % 3600);
+    run.getValue().run();
+    verify(jobSchedulesRepository, times(1))
+        .claimRun("hourly", ZonedDateTime.ofInstant(next, ZoneId.systemDefault()), "node-1");
+  }
+
+  @Test
+  public void schedule_added_by_another_node_first_is_left_alone() {
+    // arrange
+    when(jobSchedulesRepository.save(any(JobSchedule.class)))
+        .thenThrow(new DataIntegrityViolationException("JOB_SCHEDULES_PK"));
+
+    // act
+    jobScheduleService.startSchedules();
+
+    // assert
+    verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Trigger.class));
+  }
+
+  @Test
+  public void scheduled_run_launches_a_job_on_the_node_that_claims_it() {
+    // arrange
+    when(jobSchedulesRepository.claimRun("hourly", firedAt, "node-1")).thenReturn(1);
+    when(jobSchedulesRepository.findById("hourly"))
+        .thenReturn(Optional.of(JobSchedule.builder().name("hourly").build()));
+    when(jobService.runAsJob(work)).thenReturn(Job.builder().id(7L).build());
+
+    // act
+    jobScheduleService.fire(hourly, scheduledTime);
+
+    // assert
+    verify(jobService, times(1)).runAsJob(work);
+    verify(jobSchedulesRepository, times(1)).updateLastJobId("hourly", 7L);
+  }
+
+  @Test
+  public void run_claimed_by_another_node_is_skipped() {
+    // arrange
+    when(jobSchedulesRepository.claimRun("hourly", firedAt, "node-1")).thenReturn(0);
+
+    // act
+    jobScheduleService.fire(hourly, scheduledTime);
+
+    // assert
+    verify(jobService, never()).runAsJob(any());
+  }
+
+  @Test
+  public void run_is_skipped_while_the_last_one_is_still_running() {
+    // arrange
+    when(jobSchedulesRepository.claimRun("hourly", firedAt, "node-1")).thenReturn(1);
+    when(jobSchedulesRepository.findById("hourly"))
+        .thenReturn(Optional.of(JobSchedule.builder().name("hourly").lastJobId(6L).build()));
+    when(jobsRepository.findStatusById(6L)).thenReturn(Optional.of("running"));
+
+    // act
+    jobScheduleService.fire(hourly, scheduledTime);
+
+    // assert
+    verify(jobService, never()).runAsJob(any());
+    verify(jobSchedulesRepository, never()).updateLastJobId(eq("hourly"), anyLong());
+  }
+
+  @Test
+  public void run_goes_ahead_once_the_last_one_has_finished_or_been_deleted() {
+    // arrange
+    when(jobSchedulesRepository.claimRun("hourly", firedAt, "node-1")).thenReturn(1);
+    when(jobSchedulesRepository.findById("hourly"))
+        .thenReturn(Optional.of(JobSchedule.builder().name("hourly").lastJobId(6L).build()));
+    when(jobsRepository.findStatusById(6L)).thenReturn(Optional.of("complete"), Optional.empty());
+    when(jobService.runAsJob(work)).thenReturn(Job.builder().id(7L).build());
+
+    // act
+    jobScheduleService.fire(hourly, scheduledTime);
+    jobScheduleService.fire(hourly, scheduledTime);
+
+    // assert
+    verify(jobService, times(2)).runAsJob(work);
+  }
+
+  @Test
+  public void failure_to_launch_is_logged_not_thrown() {
+    // arrange
+    when(jobSchedulesRepository.claimRun("hourly", firedAt, "node-1")).thenReturn(1);
+    when(jobService.runAsJob(work)).thenThrow(new IllegalStateException("no"));
+
+    // act
+    jobScheduleService.fire(hourly, scheduledTime);
+
+    // assert
+    verify(jobSchedulesRepository, never()).updateLastJobId(eq("hourly"), anyLong());
+  }
+
+  @Test
+  public void schedules_are_listed_with_their_state_and_next_run() {
+    // arrange
+    when(jobSchedulesRepository.findById("hourly"))
+        .thenReturn(
+            Optional.of(
+                JobSchedule.builder()
+                    .name("hourly")
+                    .paused(true)
+                    .lastFiredAt(firedAt)
+                    .lastJobId(6L)
+                    .build()));
+    when(jobSchedulesRepository.findById("off")).thenReturn(Optional.empty());
+
+    // act
+    List<JobScheduleSummary> schedules = jobScheduleService.getSchedules();
+
+    // assert
+    assertEquals(2, schedules.size());
+    JobScheduleSummary first = schedules.get(0);
+    assertEquals("hourly", first.getName());
+    assertEquals("0 0 * * * *", first.getCron());
+    assertTrue(first.getPaused());
+    assertEquals(firedAt, first.getLastFiredAt());
+    assertEquals(6L, first.getLastJobId());
+    assertNotNull(first.getNextRunAt());
+    assertNull(schedules.get(1).getNextRunAt());
+  }
+
+  @Test
+  public void schedule_can_be_paused() {
+    // arrange
+    when(jobSchedulesRepository.updatePaused("hourly", true)).thenReturn(1);
+    when(jobSchedulesRepository.findById("hourly"))
+        .thenReturn(Optional.of(JobSchedule.builder().name("hourly").paused(true).build()));
+
+    // act
+    JobScheduleSummary summary = jobScheduleService.setPaused("hourly", true);
+
+    // assert
+    assertTrue(summary.getPaused());
+    verify(jobSchedulesRepository, never()).save(any());
+  }
+
+  @Test
+  public void schedule_can_be_resumed() {
+    // arrange
+    when(jobSchedulesRepository.updatePaused("hourly", false)).thenReturn(1);
+
+    // act
+    JobScheduleSummary summary = jobScheduleService.setPaused("hourly", false);
+
+    // assert
+    assertFalse(summary.getPaused());
+    verify(jobSchedulesRepository, times(1)).updatePaused("hourly", false);
+  }
+
+  @Test
+  public void pausing_schedule_without_a_row_yet_adds_one() {
+    // act
+    jobScheduleService.setPaused("hourly", true);
+
+    // assert
+    verify(jobSchedulesRepository, times(1))
+        .save(JobSchedule.builder().name("hourly").paused(true).build());
+  }
+
+  @Test
+  public void pausing_unknown_schedule_throws() {
+    assertThrows(EntityNotFoundException.class, () -> jobScheduleService.setPaused("nope", true));
+  }
+}
@@ -0,0 +1,622 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogService jobLogService;
+
+  @Mock private JobQueueService jobQueueService;
+
+  @Mock private JobLogStreamService jobLogStreamService;
+
+  @Mock private JobAwaitService jobAwaitService;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobDispatchService jobDispatchService;
+
+  @Mock private JobPipelineService jobPipelineService;
+
+  @Spy private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @InjectMocks private JobService jobService;
+
+  @Mock private JobLogWriter logWriter;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    when(jobLogService.openWriter(any(Long.class))).thenReturn(logWriter);
+  }
+
+  @Test
+  public void job_is_marked_rejected_when_executor_is_full() {
+    // arrange
+    User user = User.builder().id(1L).build();
+    when(currentUserService.getUser()).thenReturn(user);
+    JobContextConsumer jobFunction = ctx -> {};
+    doThrow(new TaskRejectedException("queue full"))
+        .when(jobDispatchService)
+        .submit(any(Job.class), eq(jobFunction));
+
+    // act
+    Job job = jobService.runAsJob(jobFunction);
+
+    // assert
+    assertEquals("rejected", job.getStatus());
+    assertNotNull(job.getFinishedAt());
+    verify(jobLogService, times(1))
+        .appendLine(0L, "Job rejected: too many jobs are already running or waiting to run");
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogStreamService, times(1)).jobFinished(job);
+    verify(jobAwaitService, times(1)).jobFinished(job);
+  }
+
+  @Test
+  public void job_is_handed_to_the_dispatcher() {
+    // arrange
+    JobContextConsumer jobFunction = ctx -> {};
+
+    // act
+    Job job = jobService.runAsJob(jobFunction, JobOptions.builder().priority(3).build());
+
+    // assert
+    assertEquals(3, job.getPriority());
+    assertNotNull(job.getQueuedAt());
+    verify(jobQueueService, times(1)).lease(job);
+    verify(jobDispatchService, times(1)).submit(job, jobFunction);
+  }
+
+  @Test
+  public void launch_with_key_of_running_job_returns_that_job() {
+    // arrange
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    Job running = Job.builder().id(7L).status("running").build();
+    when(jobsRepository.findByTypeAndIdempotencyKey(TestJob.class.getName(), "abc"))
+        .thenReturn(Optional.of(running));
+
+    // act
+    Job job = jobService.runAsJob(testJob, JobOptions.builder().idempotencyKey("abc").build());
+
+    // assert
+    assertEquals(running, job);
+    verify(jobsRepository, never()).save(any());
+    verify(jobDispatchService, never()).submit(any(), any());
+  }
+
+  @Test
+  public void launch_with_key_of_recently_finished_job_returns_that_job() {
+    // arrange
+    ReflectionTestUtils.setField(jobService, "idempotencyWindow", Duration.ofHours(1));
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    Job finished =
+        Job.builder()
+            .id(7L)
+            .status("complete")
+            .finishedAt(ZonedDateTime.now().minusMinutes(59))
+            .build();
+    when(jobsRepository.findByTypeAndIdempotencyKey(TestJob.class.getName(), "abc"))
+        .thenReturn(Optional.of(finished));
+
+    // act
+    Job job = jobService.runAsJob(testJob, JobOptions.builder().idempotencyKey("abc").build());
+
+    // assert
+    assertEquals(finished, job);
+    verify(jobsRepository, never()).releaseIdempotencyKey(7L);
+  }
+
+  @Test
+  public void launch_with_key_of_job_finished_long_ago_starts_new_job() {
+    // arrange
+    ReflectionTestUtils.setField(jobService, "idempotencyWindow", Duration.ofHours(1));
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    Job finished =
+        Job.builder()
+            .id(7L)
+            .status("complete")
+            .finishedAt(ZonedDateTime.now().minusHours(2))
+            .build();
+    when(jobsRepository.findByTypeAndIdempotencyKey(TestJob.class.getName(), "abc"))
+        .thenReturn(Optional.of(finished));
+
+    // act
+    Job job = jobService.runAsJob(testJob, JobOptions.builder().idempotencyKey("abc").build());
+
+    // assert
+    verify(jobsRepository, times(1)).releaseIdempotencyKey(7L);
+    assertEquals("abc", job.getIdempotencyKey());
+    assertEquals(TestJob.class.getName(), job.getType());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobDispatchService, times(1)).submit(job, testJob);
+  }
+
+  @Test
+  public void launch_that_loses_race_for_key_returns_the_winning_job() {
+    // arrange
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    Job winner = Job.builder().id(7L).status("running").build();
+    when(jobsRepository.findByTypeAndIdempotencyKey(TestJob.class.getName(), "abc"))
+        .thenReturn(Optional.empty(), Optional.of(winner));
+    when(jobsRepository.save(any(Job.class)))
+        .thenThrow(new DataIntegrityViolationException("JOBS_TYPE_IDEMPOTENCY_KEY_UK"));
+
+    // act
+    Job job = jobService.runAsJob(testJob, JobOptions.builder().idempotencyKey("abc").build());
+
+    // assert
+    assertEquals(winner, job);
+    verify(jobDispatchService, never()).submit(any(), any());
+  }
+
+  @Test
+  public void launch_that_loses_race_to_a_job_that_is_gone_throws() {
+    // arrange
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    DataIntegrityViolationException conflict =
+        new DataIntegrityViolationException("JOBS_TYPE_IDEMPOTENCY_KEY_UK");
+    when(jobsRepository.findByTypeAndIdempotencyKey(TestJob.class.getName(), "abc"))
+        .thenReturn(Optional.empty());
+    when(jobsRepository.save(any(Job.class))).thenThrow(conflict);
+
+    // act
+    DataIntegrityViolationException e =
+        assertThrows(
+            DataIntegrityViolationException.class,
+            () -> jobService.runAsJob(testJob, JobOptions.builder().idempotencyKey("abc").build()));
+
+    // assert
+    assertEquals(conflict, e);
+    verify(jobDispatchService, never()).submit(any(), any());
+  }
+
+  @Test
+  public void log_that_cannot_be_compressed_is_left_as_is() {
+    // arrange
+    when(currentUserService.getUser()).thenReturn(User.builder().id(1L).build());
+    JobContextConsumer jobFunction = ctx -> {};
+    doThrow(new TaskRejectedException("queue full"))
+        .when(jobDispatchService)
+        .submit(any(Job.class), eq(jobFunction));
+    doThrow(new IllegalStateException("disk full")).when(jobLogService).archive(0L);
+
+    // act
+    Job job = jobService.runAsJob(jobFunction);
+
+    // assert
+    assertEquals("rejected", job.getStatus());
+    verify(jobLogService, times(1)).archive(0L);
+  }
+
+  @Test
+  public void rejected_job_gives_up_its_key() {
+    // arrange
+    TestJob testJob = TestJob.builder().sleepMs(0).build();
+    when(jobsRepository.findByTypeAndIdempotencyKey(TestJob.class.getName(), "abc"))
+        .thenReturn(Optional.empty());
+    doThrow(new TaskRejectedException("queue full"))
+        .when(jobDispatchService)
+        .submit(any(Job.class), eq(testJob));
+
+    // act
+    Job job = jobService.runAsJob(testJob, JobOptions.builder().idempotencyKey("abc").build());
+
+    // assert
+    assertEquals("rejected", job.getStatus());
+    assertNull(job.getIdempotencyKey());
+  }
+
+  @Test
+  public void queued_job_is_left_for_the_queue_to_run() {
+    // arrange
+    JobContextConsumer jobFunction = ctx -> {};
+    when(jobQueueService.enqueue(any(Job.class), eq(jobFunction))).thenReturn(true);
+
+    // act
+    jobService.runAsJob(jobFunction);
+
+    // assert
+    verify(jobDispatchService, times(0)).submit(any(), any());
+    verify(jobsRepository, times(0)).save(any());
+  }
+
+  @Test
+  public void runJobAsync_releases_the_lease_when_done() throws Exception {
+    // arrange
+    Job job = Job.builder().status("running").leaseOwner("node").build();
+
+    // act
+    jobService.runJobAsync(job, ctx -> ctx.log("hi"));
+
+    // assert
+    assertEquals("complete", job.getStatus());
+    assertEquals(null, job.getLeaseOwner());
+    verify(logWriter, times(1)).append("hi");
+    verify(jobLogService, times(1)).closeWriter(logWriter);
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogStreamService, times(1)).jobFinished(job);
+    verify(jobAwaitService, times(1)).jobFinished(job);
+    verify(jobDispatchService, times(1)).jobFinished(job);
+  }
+
+  @Test
+  public void isFinished_is_true_only_for_final_statuses() {
+    assertTrue(JobService.isFinished("complete"));
+    assertTrue(JobService.isFinished("error"));
+    assertTrue(JobService.isFinished("rejected"));
+    assertTrue(JobService.isFinished("cancelled"));
+    assertTrue(JobService.isFinished("timed_out"));
+    assertFalse(JobService.isFinished("running"));
+    assertFalse(JobService.isFinished("queued"));
+  }
+
+  @Test
+  public void runAsJob_sets_the_timeout() {
+    Job job = jobService.runAsJob(ctx -> {}, JobOptions.builder().timeoutMs(5000L).build());
+
+    assertEquals(5000L, job.getTimeoutMs());
+  }
+
+  @Test
+  public void job_that_runs_too_long_times_out() throws Exception {
+    // arrange
+    Job job = Job.builder().status("running").timeoutMs(0L).build();
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.checkRunningJobs();
+          ctx.checkCancelled();
+          ctx.log("not reached");
+        });
+
+    // assert
+    assertEquals("timed_out", job.getStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+    verify(logWriter, times(1)).append("Job timed out after 0 ms");
+    verify(logWriter, never()).append("not reached");
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogStreamService, times(1)).jobFinished(job);
+    verify(jobAwaitService, times(1)).jobFinished(job);
+  }
+
+  @Test
+  public void job_that_ignores_cancellation_still_ends_cancelled() throws Exception {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").build();
+    when(jobsRepository.findById(3L)).thenReturn(Optional.of(job));
+    when(jobsRepository.requestCancel(3L)).thenReturn(1);
+
+    // act
+    jobService.runJobAsync(job, ctx -> jobService.cancelJob(3L));
+
+    // assert
+    assertEquals("cancelled", job.getStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+    verify(logWriter, times(1)).append("Job cancelled");
+  }
+
+  @Test
+  public void cancelled_job_is_interrupted() throws Exception {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").build();
+    when(jobsRepository.findById(3L)).thenReturn(Optional.of(job));
+    when(jobsRepository.requestCancel(3L)).thenReturn(1);
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          assertTrue(jobService.cancelJob(3L).getCancelRequested());
+          Thread.sleep(10000);
+        });
+
+    // assert
+    assertEquals("cancelled", job.getStatus());
+    verify(logWriter, never()).append("sleep interrupted");
+    verify(logWriter, times(1)).append("Job cancelled");
+  }
+
+  @Test
+  public void job_cancelled_on_another_node_is_interrupted() throws Exception {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").timeoutMs(60000L).build();
+    when(jobsRepository.findCancelRequestedIds(List.of(3L))).thenReturn(List.of(3L, 4L));
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.checkRunningJobs();
+          Thread.sleep(10000);
+        });
+
+    // assert
+    assertEquals("cancelled", job.getStatus());
+  }
+
+  @Test
+  public void job_cancelled_before_it_starts_does_not_run() throws Exception {
+    // arrange
+    Job job = Job.builder().status("running").cancelRequested(true).build();
+    JobContextConsumer jobFunction = ctx -> ctx.log("not reached");
+
+    // act
+    jobService.runJobAsync(job, jobFunction);
+
+    // assert
+    assertEquals("cancelled", job.getStatus());
+    verify(logWriter, never()).append("not reached");
+    verify(logWriter, times(1)).append("Job cancelled");
+  }
+
+  @Test
+  public void checkRunningJobs_does_nothing_when_no_jobs_run() {
+    jobService.checkRunningJobs();
+
+    verify(jobsRepository, never()).findCancelRequestedIds(anyCollection());
+  }
+
+  @Test
+  public void cancelJob_cancels_queued_job() {
+    // arrange
+    Job job = Job.builder().id(5L).status("queued").build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
+    when(jobsRepository.cancelQueued(eq(5L), any())).thenReturn(1);
+
+    // act
+    Job result = jobService.cancelJob(5L);
+
+    // assert
+    assertEquals("cancelled", result.getStatus());
+    assertTrue(result.getCancelRequested());
+    verify(jobsRepository).cancelQueued(5L, result.getFinishedAt());
+    verify(jobDispatchService).remove(5L);
+    verify(jobLogService, times(1)).appendLine(5L, "Job cancelled before it started");
+    verify(jobLogStreamService, times(1)).jobFinished(job);
+    verify(jobAwaitService, times(1)).jobFinished(job);
+    verify(jobsRepository, never()).requestCancel(5L);
+  }
+
+  @Test
+  public void cancelJob_flags_job_running_elsewhere() {
+    // arrange
+    Job job = Job.builder().id(6L).status("running").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job));
+    when(jobsRepository.requestCancel(6L)).thenReturn(1);
+
+    // act
+    Job result = jobService.cancelJob(6L);
+
+    // assert
+    assertEquals("running", result.getStatus());
+    assertTrue(result.getCancelRequested());
+  }
+
+  @Test
+  public void cancelJob_leaves_finished_job_alone() {
+    // arrange
+    Job job = Job.builder().id(8L).status("complete").build();
+    when(jobsRepository.findById(8L)).thenReturn(Optional.of(job));
+
+    // act
+    Job result = jobService.cancelJob(8L);
+
+    // assert
+    assertEquals("complete", result.getStatus());
+    assertFalse(result.getCancelRequested());
+    verify(jobLogStreamService, never()).jobFinished(any());
+    verify(jobAwaitService, never()).jobFinished(any());
+  }
+
+  @Test
+  public void cancelJob_of_missing_job_throws() {
+    when(jobsRepository.findById(9L)).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> jobService.cancelJob(9L));
+  }
+
+  @Test
+  public void runJobAsync_records_timings_and_log_size() throws Exception {
+    // arrange
+    ZonedDateTime createdAt = ZonedDateTime.now().minusSeconds(5);
+    Job job = Job.builder().status("running").createdAt(createdAt).build();
+    when(logWriter.getAppendedLines()).thenReturn(2L);
+    when(logWriter.getAppendedBytes()).thenReturn(12L);
+
+    // act
+    jobService.runJobAsync(job, TestJob.builder().build());
+
+    // assert
+    assertTrue(!job.getStartedAt().isBefore(createdAt));
+    assertTrue(!job.getFinishedAt().isBefore(job.getStartedAt()));
+    Timer wait =
+        meterRegistry.get("jobs.queue.wait").tags("type", "TestJob", "outcome", "complete").timer();
+    assertEquals(1, wait.count());
+    assertTrue(wait.totalTime(TimeUnit.SECONDS) >= 5);
+    assertEquals(
+        1,
+        meterRegistry
+            .get("jobs.run")
+            .tags("type", "TestJob", "outcome", "complete")
+            .timer()
+            .count());
+    DistributionSummary lines =
+        meterRegistry.get("jobs.log.lines").tags("type", "TestJob").summary();
+    DistributionSummary bytes =
+        meterRegistry.get("jobs.log.bytes").tags("type", "TestJob").summary();
+    assertEquals(2.0, lines.totalAmount());
+    assertEquals(12.0, bytes.totalAmount());
+  }
+
+  @Test
+  public void queue_wait_is_measured_from_when_the_job_was_queued() throws Exception {
+    // arrange
+    ZonedDateTime queuedAt = ZonedDateTime.now().minusSeconds(30);
+    Job job =
+        Job.builder()
+            .status("running")
+            .createdAt(ZonedDateTime.now().minusSeconds(60))
+            .queuedAt(queuedAt)
+            .build();
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          throw new Exception("boom");
+        });
+
+    // assert
+    Timer wait =
+        meterRegistry.get("jobs.queue.wait").tags("type", "anonymous", "outcome", "error").timer();
+    assertTrue(wait.totalTime(TimeUnit.SECONDS) >= 30);
+    assertTrue(wait.totalTime(TimeUnit.SECONDS) < 60);
+  }
+
+  @Test
+  public void queue_wait_is_not_recorded_for_unsaved_jobs() throws Exception {
+    Job job = Job.builder().status("running").build();
+
+    jobService.runJobAsync(job, ctx -> {});
+
+    assertNull(meterRegistry.find("jobs.queue.wait").timer());
+    assertEquals(1, meterRegistry.get("jobs.run").tags("outcome", "complete").timer().count());
+  }
+
+  @Test
+  public void jobType_groups_lambdas_and_anonymous_classes() {
+    JobContextConsumer anonymousJob =
+        new JobContextConsumer() {
+          @Override
+          public void accept(JobContext ctx) {}
+        };
+
+    assertEquals("TestJob", JobService.jobType(TestJob.builder().build()));
+    assertEquals("anonymous", JobService.jobType(ctx -> {}));
+    assertEquals("anonymous", JobService.jobType(anonymousJob));
+  }
+
+  @Test
+  public void runJobAsync_saves_the_result_as_json() throws Exception {
+    // arrange
+    Job job = Job.builder().id(8L).status("running").build();
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.addToResult("rows", 3);
+          throw new Exception("Fail!");
+        });
+
+    // assert
+    assertEquals("error", job.getStatus());
+    assertEquals("{\"rows\":3}", job.getResult());
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  public void runJobAsync_finishes_a_job_that_throws_an_error() throws Exception {
+    // arrange
+    Job job = Job.builder().id(8L).status("running").build();
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          throw new AssertionError("Broken!");
+        });
+
+    // assert
+    assertEquals("error", job.getStatus());
+    assertNotNull(job.getFinishedAt());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogService, times(1)).closeWriter(logWriter);
+    verify(jobDispatchService, times(1)).jobFinished(job);
+    verify(jobPipelineService, times(1)).childFinished(job);
+  }
+
+  @Test
+  public void runJobAsync_drops_a_result_that_cannot_be_serialized() throws Exception {
+    // arrange
+    Job job = Job.builder().id(8L).status("running").build();
+
+    // act
+    jobService.runJobAsync(job, ctx -> ctx.setResult(new Object()));
+
+    // assert
+    assertEquals("complete", job.getStatus());
+    assertNull(job.getResult());
+  }
+
+  @Test
+  public void getJobResult_of_missing_job_throws() {
+    when(jobsRepository.findResultById(9L)).thenReturn(Optional.empty());
+    when(jobsRepository.existsById(9L)).thenReturn(false);
+
+    assertThrows(EntityNotFoundException.class, () -> jobService.getJobResult(9L));
+  }
+
+  @Test
+  public void getCompressedJobLogs_of_missing_job_throws() {
+    when(jobsRepository.findById(9L)).thenReturn(Optional.empty());
+
+    assertThrows(IllegalArgumentException.class, () -> jobService.getCompressedJobLogs(9L));
+  }
+
+  @Test
+  public void getJobResult_of_job_without_result_is_empty() {
+    when(jobsRepository.findResultById(9L)).thenReturn(Optional.empty());
+    when(jobsRepository.existsById(9L)).thenReturn(true);
+
+    assertEquals(Optional.empty(), jobService.getJobResult(9L));
+  }
+}